@@ -0,0 +1,109 @@
+package com.ppm.gitppm.benchmarks;
+
+import com.ppm.gitppm.SyntheticRepoGenerator;
+import com.ppm.gitppm.service.CommitGraphMaintenance;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History walks with and without .git/objects/info/commit-graph, as
+ * written by CommitGraphMaintenance. The walks do not keep commit bodies,
+ * like ahead/behind counting and merge-base lookups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommitGraphBenchmark {
+    @Param({"20000"})
+    public int commits;
+
+    @Param({"false", "true"})
+    public boolean commitGraph;
+
+    private Path directory;
+    private Repository repository;
+    private ObjectId main;
+    private ObjectId branch;
+
+    @Setup(Level.Trial)
+    public void createRepository() throws Exception {
+        directory = Files.createTempDirectory("gitppm-bench");
+        SyntheticRepoGenerator generator = new SyntheticRepoGenerator();
+        generator.setFileCount(200);
+        generator.setCommitCount(commits);
+        generator.setBranchCount(1);
+        generator.generate(directory);
+
+        repository = new FileRepositoryBuilder().findGitDir(directory.toFile()).build();
+        if (commitGraph && new CommitGraphMaintenance(repository).updateIfStale() == null) {
+            throw new IllegalStateException("No commit graph written for " + directory);
+        }
+        main = repository.resolve(Constants.R_HEADS + "main");
+        List<Ref> branches = repository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS + "feature/");
+        branch = branches.get(0).getObjectId();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteRepository() throws Exception {
+        repository.close();
+        FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.RETRY);
+    }
+
+    /**
+     * Every commit reachable from main, e.g. to count or page history
+     */
+    @Benchmark
+    public int walkFullHistory() throws Exception {
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            walk.markStart(walk.parseCommit(main));
+            int count = 0;
+            while (walk.next() != null) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Merge base of main and a branch created at a random older commit
+     */
+    @Benchmark
+    public RevCommit mergeBase() throws Exception {
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            walk.setRevFilter(RevFilter.MERGE_BASE);
+            walk.markStart(walk.parseCommit(main));
+            walk.markStart(walk.parseCommit(branch));
+            return walk.next();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.ppm.gitppm.benchmarks;
+
+import com.ppm.gitppm.SyntheticRepoGenerator;
+import com.ppm.gitppm.model.CommitInfo;
+import com.ppm.gitppm.model.FileChange;
+import com.ppm.gitppm.service.GitService;
+import com.ppm.gitppm.service.JGitCacheSettings;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GitService hot paths on a synthetic repository. Throughput mode gives
+ * operations per second, sample mode the latency percentiles. Add
+ * -prof gc for the allocation rate, and e.g. -p files=100000 or
+ * -p cacheProfile=large to change the repository or the JGit caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitServiceBenchmark {
+    @Param({"1000", "20000"})
+    public int files;
+
+    @Param({"200"})
+    public int commits;
+
+    @Param({"50"})
+    public int branches;
+
+    @Param({"0.01"})
+    public double dirtyFraction;
+
+    @Param({"default"})
+    public String cacheProfile;
+
+    private Path directory;
+    private GitService gitService;
+    private List<String> dirtyPaths;
+    private List<String> singlePath;
+
+    @Setup(Level.Trial)
+    public void createRepository() throws Exception {
+        JGitCacheSettings.forProfile(cacheProfile).install();
+        directory = Files.createTempDirectory("gitppm-bench");
+        SyntheticRepoGenerator generator = new SyntheticRepoGenerator();
+        generator.setFileCount(files);
+        generator.setCommitCount(commits);
+        generator.setBranchCount(branches);
+        generator.setDirtyFraction(dirtyFraction);
+        dirtyPaths = generator.generate(directory);
+        singlePath = List.of(dirtyPaths.isEmpty() ? generator.filePath(0) : dirtyPaths.get(0));
+
+        gitService = new GitService();
+        gitService.openRepository(directory.toString(), null);
+        gitService.getStatus();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteRepository() throws Exception {
+        gitService.close();
+        FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.RETRY);
+    }
+
+    /**
+     * Full working tree scan, as after opening a repository
+     */
+    @Benchmark
+    public List<FileChange> getStatus() throws Exception {
+        return gitService.getStatus();
+    }
+
+    /**
+     * Re-evaluating a single path, as after a file watcher event
+     */
+    @Benchmark
+    public List<FileChange> getStatusForChangedPath() throws Exception {
+        return gitService.getStatus(singlePath);
+    }
+
+    @Benchmark
+    public List<CommitInfo> getRecentCommits() throws Exception {
+        return gitService.getRecentCommits(50);
+    }
+
+    @Benchmark
+    public List<String> getBranches() throws Exception {
+        return gitService.getBranches();
+    }
+
+    /**
+     * Stage the dirty files and unstage them again, so every invocation
+     * starts from the same index
+     */
+    @Benchmark
+    public void stageAndUnstageFiles() throws Exception {
+        gitService.stageFiles(dirtyPaths);
+        gitService.unstageFiles(dirtyPaths);
+    }
+}
@@ -0,0 +1,184 @@
+package com.ppm.gitppm.benchmarks;
+
+import com.ppm.gitppm.service.JGitCacheSettings;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares history and diff throughput of the default and the large
+ * performance profile on an existing repository:
+ *
+ *   java -cp benchmarks/target/benchmarks.jar com.ppm.gitppm.benchmarks.PackProfileBenchmark &lt;repository&gt;
+ *        [--rounds 3] [--warmup 1] [--diff-commits 200]
+ *
+ * Each round runs every profile once, alternating, so the OS page cache
+ * is equally warm for both. Warmup rounds are not reported. The JGit
+ * cache is reinstalled (and thus emptied) before each run. Reports the
+ * median of all rounds. A plain main rather than a JMH benchmark, since
+ * the cache settings are process-wide and each run needs a cold cache.
+ */
+public class PackProfileBenchmark {
+    private static final List<String> PROFILES = List.of(
+            JGitCacheSettings.DEFAULT_PROFILE, JGitCacheSettings.LARGE_PROFILE);
+
+    private static class Run {
+        private int commits;
+        private long logNanos;
+        private int diffs;
+        private long diffBytes;
+        private long diffNanos;
+
+        double commitsPerSecond() {
+            return commits / (logNanos / 1e9);
+        }
+
+        double diffMegabytesPerSecond() {
+            return diffBytes / (1024.0 * 1024.0) / (diffNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("log %d commits in %d ms (%.0f commits/s), diff %d commits, %.1f MB in %d ms (%.1f MB/s)",
+                    commits, logNanos / 1_000_000, commitsPerSecond(), diffs, diffBytes / (1024.0 * 1024.0),
+                    diffNanos / 1_000_000, diffMegabytesPerSecond());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: PackProfileBenchmark <repository> [--rounds N] [--warmup N] [--diff-commits N]");
+            System.exit(2);
+        }
+        File directory = new File(args[0]);
+        int rounds = 3;
+        int warmup = 1;
+        int diffCommits = 200;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--rounds" -> rounds = Integer.parseInt(args[i + 1]);
+                case "--warmup" -> warmup = Integer.parseInt(args[i + 1]);
+                case "--diff-commits" -> diffCommits = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Map<String, List<Run>> runs = new LinkedHashMap<>();
+        for (int round = 1 - warmup; round <= rounds; round++) {
+            for (String profile : PROFILES) {
+                JGitCacheSettings settings = JGitCacheSettings.forProfile(profile);
+                settings.install();
+                Run run = run(directory, diffCommits);
+                if (round < 1) {
+                    continue;
+                }
+                runs.computeIfAbsent(profile, p -> new ArrayList<>()).add(run);
+                System.out.printf("round %d, %-7s %s%n", round, profile, run);
+            }
+        }
+
+        System.out.println();
+        for (Map.Entry<String, List<Run>> entry : runs.entrySet()) {
+            List<Run> profileRuns = entry.getValue();
+            double commitsPerSecond = median(profileRuns.stream().mapToDouble(Run::commitsPerSecond).toArray());
+            double megabytesPerSecond = median(profileRuns.stream().mapToDouble(Run::diffMegabytesPerSecond).toArray());
+            System.out.printf("%-7s median: log %.0f commits/s, diff %.1f MB/s  (%s)%n", entry.getKey(),
+                    commitsPerSecond, megabytesPerSecond, JGitCacheSettings.forProfile(entry.getKey()));
+        }
+    }
+
+    private static Run run(File directory, int diffCommits) throws IOException {
+        Run run = new Run();
+        try (Repository repository = new FileRepositoryBuilder().findGitDir(directory).setMustExist(true).build()) {
+            long start = System.nanoTime();
+            run.commits = walkHistory(repository);
+            run.logNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            CountingOutputStream out = new CountingOutputStream();
+            run.diffs = diffHistory(repository, diffCommits, out);
+            run.diffBytes = out.count;
+            run.diffNanos = System.nanoTime() - start;
+        }
+        return run;
+    }
+
+    /**
+     * Parse every commit reachable from any branch, message included
+     */
+    private static int walkHistory(Repository repository) throws IOException {
+        try (RevWalk walk = new RevWalk(repository)) {
+            for (Ref ref : repository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS)) {
+                walk.markStart(walk.parseCommit(ref.getObjectId()));
+            }
+            int commits = 0;
+            for (RevCommit commit : walk) {
+                commit.getShortMessage();
+                commits++;
+            }
+            return commits;
+        }
+    }
+
+    /**
+     * Format the patches of the last commits on the first-parent line,
+     * which reads every changed blob out of the packs
+     */
+    private static int diffHistory(Repository repository, int maxCommits, OutputStream out) throws IOException {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        if (head == null) {
+            return 0;
+        }
+        try (RevWalk walk = new RevWalk(repository);
+             DiffFormatter formatter = new DiffFormatter(out)) {
+            formatter.setRepository(repository);
+            walk.setFirstParent(true);
+            walk.markStart(walk.parseCommit(head));
+            int diffs = 0;
+            for (RevCommit commit : walk) {
+                if (diffs >= maxCommits || commit.getParentCount() == 0) {
+                    break;
+                }
+                RevCommit parent = walk.parseCommit(commit.getParent(0));
+                formatter.format(parent.getTree(), commit.getTree());
+                diffs++;
+            }
+            return diffs;
+        }
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
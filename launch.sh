@@ -26,6 +26,18 @@ fi
 echo "✓ Maven found: $(mvn --version | head -n 1)"
 echo "✓ Java found: $(java -version 2>&1 | head -n 1)"
 echo ""
+
+# --trace records a performance trace to ~/.gitppm/traces, --trace=DIR elsewhere
+for arg in "$@"; do
+    case "$arg" in
+        --trace) export GITPPM_TRACE=true ;;
+        --trace=*) export GITPPM_TRACE="${arg#--trace=}" ;;
+    esac
+done
+if [ -n "$GITPPM_TRACE" ]; then
+    echo "⏱️  Tracing enabled (convert with TraceRecorder, then open in ui.perfetto.dev or chrome://tracing)"
+    echo ""
+fi
 echo "🚀 Starting Git PPM..."
 echo ""
 
@@ -1,5 +1,6 @@
 package com.ppm.gitppm;
 
+import com.ppm.gitppm.service.JGitCacheSettings;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -8,6 +9,14 @@ import javafx.stage.Stage;
 import java.io.IOException;
 
 public class HelloApplication extends Application {
+    /**
+     * Configure JGit's caches before any repository is opened
+     */
+    @Override
+    public void init() {
+        JGitCacheSettings.fromSystemProperties().install();
+    }
+
     @Override
     public void start(Stage stage) throws IOException {
         FXMLLoader fxmlLoader = new FXMLLoader(HelloApplication.class.getResource("login-view.fxml"));
@@ -0,0 +1,423 @@
+package com.ppm.gitppm;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Builds repositories of a chosen shape for load and soak testing, so
+ * slow cases can be reproduced without access to the real repositories:
+ *
+ *   SyntheticRepoGenerator generate &lt;dir&gt; [--files 10000] [--depth 3] [--commits 1000]
+ *       [--merge-density 0.1] [--binary-fraction 0.02] [--binary-size 65536]
+ *       [--branches 20] [--tags 0] [--dirty 0] [--seed 42] [--no-gc]
+ *   SyntheticRepoGenerator churn &lt;dir&gt; [--rate 20] [--duration 0] [--report 10] [--csv file]
+ *
+ * History is written straight into a pack rather than through the
+ * working tree, and each commit only rewrites the trees of the
+ * directories it touched. The same
+ * options and seed always produce the same commits. See WorkingTreeChurn
+ * for the churn mode.
+ */
+public class SyntheticRepoGenerator {
+    private static final int FILES_PER_DIRECTORY = 50;
+    private static final int FILES_PER_COMMIT = 5;
+    private static final int MAX_TOPIC_LENGTH = 3;
+    private static final Instant EPOCH = Instant.parse("2020-01-01T00:00:00Z");
+
+    private int fileCount = 10000;
+    private int depth = 3;
+    private int commitCount = 1000;
+    private double mergeDensity = 0.1;
+    private double binaryFraction = 0.02;
+    private int binarySize = 64 * 1024;
+    private int branchCount = 20;
+    private int tagCount = 0;
+    private double dirtyFraction = 0.0;
+    private long seed = 42;
+    private boolean gc = true;
+    private Consumer<String> log = message -> { };
+
+    // Generation state
+    private Random random;
+    private boolean[] binary;
+    private int directoryFanout;
+    private int revision;
+
+    public void setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+    }
+
+    /**
+     * Directory levels above the files; 0 puts every file in the root
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public void setCommitCount(int commitCount) {
+        this.commitCount = commitCount;
+    }
+
+    /**
+     * Share of commits on the main line that merge a short topic branch
+     */
+    public void setMergeDensity(double mergeDensity) {
+        this.mergeDensity = mergeDensity;
+    }
+
+    /**
+     * Share of files holding random binary content instead of text
+     */
+    public void setBinaryFraction(double binaryFraction) {
+        this.binaryFraction = binaryFraction;
+    }
+
+    public void setBinarySize(int binarySize) {
+        this.binarySize = binarySize;
+    }
+
+    public void setBranchCount(int branchCount) {
+        this.branchCount = branchCount;
+    }
+
+    public void setTagCount(int tagCount) {
+        this.tagCount = tagCount;
+    }
+
+    /**
+     * Share of files modified in the working tree after checkout
+     */
+    public void setDirtyFraction(double dirtyFraction) {
+        this.dirtyFraction = dirtyFraction;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Whether to pack objects and refs at the end, like a repository
+     * that has been gc'ed
+     */
+    public void setGc(boolean gc) {
+        this.gc = gc;
+    }
+
+    public void setLog(Consumer<String> log) {
+        this.log = log;
+    }
+
+    /**
+     * Path of the n-th file relative to the repository root
+     */
+    public String filePath(int n) {
+        StringBuilder path = new StringBuilder();
+        int directory = n / FILES_PER_DIRECTORY;
+        for (int level = depth - 1; level >= 0; level--) {
+            int digit = (int) (directory / Math.pow(directoryFanout, level)) % directoryFanout;
+            path.append(level == depth - 1 ? "module" : "pkg").append(digit).append('/');
+        }
+        return path.append(String.format("File%06d", n)).append(binary[n] ? ".bin" : ".txt").toString();
+    }
+
+    /**
+     * Create the repository in an empty or missing directory, check out
+     * main and return the paths left modified in the working tree
+     */
+    public List<String> generate(Path root) throws IOException, GitAPIException {
+        random = new Random(seed);
+        binary = new boolean[fileCount];
+        for (int n = 0; n < fileCount; n++) {
+            binary[n] = random.nextDouble() < binaryFraction;
+        }
+        int directories = Math.max(1, (fileCount + FILES_PER_DIRECTORY - 1) / FILES_PER_DIRECTORY);
+        directoryFanout = depth == 0 ? 1 : Math.max(2, (int) Math.ceil(Math.pow(directories, 1.0 / depth)));
+        revision = 0;
+
+        long start = System.nanoTime();
+        try (Git git = Git.init().setDirectory(root.toFile()).setInitialBranch("main").call()) {
+            Repository repository = git.getRepository();
+            List<ObjectId> history;
+            try (ObjectInserter inserter = newInserter(repository)) {
+                history = writeHistory(inserter);
+                inserter.flush();
+            }
+            log.accept(String.format("Wrote %d commits over %d files in %d ms", history.size(), fileCount,
+                    (System.nanoTime() - start) / 1_000_000));
+
+            writeRefs(repository, history);
+            if (gc) {
+                long gcStart = System.nanoTime();
+                git.gc().call();
+                log.accept(String.format("Packed objects and refs in %d ms", (System.nanoTime() - gcStart) / 1_000_000));
+            }
+
+            long checkoutStart = System.nanoTime();
+            git.reset().setMode(ResetCommand.ResetType.HARD).setRef(Constants.R_HEADS + "main").call();
+            log.accept(String.format("Checked out main in %d ms", (System.nanoTime() - checkoutStart) / 1_000_000));
+        }
+
+        List<String> dirty = new ArrayList<>();
+        int dirtyCount = (int) Math.round(fileCount * dirtyFraction);
+        for (int i = 0; i < dirtyCount; i++) {
+            int n = (int) ((long) i * fileCount / dirtyCount);
+            Files.write(root.resolve(filePath(n)), "uncommitted edit\n".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+            dirty.add(filePath(n));
+        }
+        log.accept(String.format("Done in %d ms, %d files left modified", (System.nanoTime() - start) / 1_000_000,
+                dirty.size()));
+        return dirty;
+    }
+
+    /**
+     * Write everything into a single pack instead of one loose file per object
+     */
+    private static ObjectInserter newInserter(Repository repository) {
+        if (repository.getObjectDatabase() instanceof ObjectDirectory) {
+            return ((ObjectDirectory) repository.getObjectDatabase()).newPackInserter();
+        }
+        return repository.newObjectInserter();
+    }
+
+    /**
+     * Write the commits of main, including merged topic branches, and
+     * return them in creation order
+     */
+    private List<ObjectId> writeHistory(ObjectInserter inserter) throws IOException {
+        List<ObjectId> history = new ArrayList<>();
+        TreeNode files = new TreeNode();
+        for (int n = 0; n < fileCount; n++) {
+            files.put(filePath(n), insertBlob(inserter, n));
+        }
+        ObjectId main = insertCommit(inserter, files, "Initial import", history);
+
+        int topics = 0;
+        while (history.size() < commitCount) {
+            int remaining = commitCount - history.size();
+            if (remaining >= 2 && random.nextDouble() < mergeDensity) {
+                // A short topic branch off main, merged back without fast-forward
+                int topicLength = 1 + random.nextInt(Math.min(MAX_TOPIC_LENGTH, remaining - 1));
+                TreeNode topicFiles = files.copy();
+                Map<String, ObjectId> topicChanges = new HashMap<>();
+                ObjectId topic = main;
+                topics++;
+                for (int i = 0; i < topicLength; i++) {
+                    modifyFiles(inserter, topicFiles, topicChanges);
+                    topic = insertCommit(inserter, topicFiles, "Topic " + topics + ": change " + (i + 1),
+                            history, topic);
+                }
+                topicChanges.forEach(files::put);
+                main = insertCommit(inserter, files, "Merge topic " + topics, history, main, topic);
+            } else {
+                modifyFiles(inserter, files, null);
+                main = insertCommit(inserter, files, "Change " + history.size(), history, main);
+            }
+        }
+        return history;
+    }
+
+    private void modifyFiles(ObjectInserter inserter, TreeNode files, Map<String, ObjectId> changes)
+            throws IOException {
+        for (int i = 0; i < FILES_PER_COMMIT && fileCount > 0; i++) {
+            int n = random.nextInt(fileCount);
+            ObjectId blob = insertBlob(inserter, n);
+            files.put(filePath(n), blob);
+            if (changes != null) {
+                changes.put(filePath(n), blob);
+            }
+        }
+    }
+
+    private ObjectId insertBlob(ObjectInserter inserter, int n) throws IOException {
+        int version = revision++;
+        if (binary[n]) {
+            byte[] content = new byte[binarySize];
+            random.nextBytes(content);
+            return inserter.insert(Constants.OBJ_BLOB, content);
+        }
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < 20; line++) {
+            text.append("File ").append(n).append(", line ").append(line).append('\n');
+        }
+        text.append("Revision ").append(version).append('\n');
+        return inserter.insert(Constants.OBJ_BLOB, text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ObjectId insertCommit(ObjectInserter inserter, TreeNode files, String message,
+                                  List<ObjectId> history, ObjectId... parents) throws IOException {
+        PersonIdent ident = new PersonIdent("Generator", "generator@example.com",
+                EPOCH.plusSeconds(60L * history.size()), ZoneOffset.UTC);
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(files.write(inserter));
+        commit.setParentIds(parents);
+        commit.setAuthor(ident);
+        commit.setCommitter(ident);
+        commit.setMessage(message + "\n");
+        ObjectId id = inserter.insert(commit);
+        history.add(id);
+        return id;
+    }
+
+    /**
+     * Directory of the generated history that remembers its tree id until
+     * something below it changes
+     */
+    private static class TreeNode {
+        private final TreeMap<String, TreeNode> directories = new TreeMap<>();
+        private final TreeMap<String, ObjectId> files = new TreeMap<>();
+        private ObjectId treeId;
+
+        void put(String path, ObjectId blob) {
+            treeId = null;
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                files.put(path, blob);
+            } else {
+                directories.computeIfAbsent(path.substring(0, slash), name -> new TreeNode())
+                        .put(path.substring(slash + 1), blob);
+            }
+        }
+
+        TreeNode copy() {
+            TreeNode copy = new TreeNode();
+            directories.forEach((name, directory) -> copy.directories.put(name, directory.copy()));
+            copy.files.putAll(files);
+            copy.treeId = treeId;
+            return copy;
+        }
+
+        ObjectId write(ObjectInserter inserter) throws IOException {
+            if (treeId != null) {
+                return treeId;
+            }
+            // Git sorts a directory as if its name ended with '/'
+            TreeSet<String> names = new TreeSet<>(files.keySet());
+            for (String directory : directories.keySet()) {
+                names.add(directory + "/");
+            }
+            TreeFormatter formatter = new TreeFormatter();
+            for (String name : names) {
+                if (name.endsWith("/")) {
+                    String directory = name.substring(0, name.length() - 1);
+                    formatter.append(directory, FileMode.TREE, directories.get(directory).write(inserter));
+                } else {
+                    formatter.append(name, FileMode.REGULAR_FILE, files.get(name));
+                }
+            }
+            treeId = inserter.insert(formatter);
+            return treeId;
+        }
+    }
+
+    /**
+     * Point main at the last commit, and branches and lightweight tags at
+     * random commits, in one batch
+     */
+    private void writeRefs(Repository repository, List<ObjectId> history) throws IOException {
+        BatchRefUpdate batch = repository.getRefDatabase().newBatchUpdate();
+        batch.addCommand(new ReceiveCommand(ObjectId.zeroId(), history.get(history.size() - 1),
+                Constants.R_HEADS + "main"));
+        for (int b = 0; b < branchCount; b++) {
+            batch.addCommand(new ReceiveCommand(ObjectId.zeroId(), history.get(random.nextInt(history.size())),
+                    String.format("%sfeature/branch-%05d", Constants.R_HEADS, b)));
+        }
+        for (int t = 0; t < tagCount; t++) {
+            batch.addCommand(new ReceiveCommand(ObjectId.zeroId(), history.get(random.nextInt(history.size())),
+                    String.format("%sv%05d", Constants.R_TAGS, t)));
+        }
+        try (RevWalk walk = new RevWalk(repository)) {
+            batch.execute(walk, NullProgressMonitor.INSTANCE);
+        }
+        for (ReceiveCommand command : batch.getCommands()) {
+            if (command.getResult() != ReceiveCommand.Result.OK) {
+                throw new IOException("Failed to create " + command.getRefName() + ": " + command.getResult());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !(args[0].equals("generate") || args[0].equals("churn"))) {
+            System.err.println("Usage: SyntheticRepoGenerator generate <dir> [options]");
+            System.err.println("       SyntheticRepoGenerator churn <dir> [options]");
+            System.exit(2);
+        }
+        Path root = Paths.get(args[1]).toAbsolutePath();
+        Map<String, String> options = new HashMap<>();
+        for (int i = 2; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            boolean flag = i + 1 >= args.length || args[i + 1].startsWith("--");
+            options.put(args[i].substring(2), flag ? "true" : args[++i]);
+        }
+
+        if (args[0].equals("churn")) {
+            WorkingTreeChurn churn = new WorkingTreeChurn(root);
+            churn.setRate(Double.parseDouble(options.getOrDefault("rate", "20")));
+            churn.setDurationSeconds(Long.parseLong(options.getOrDefault("duration", "0")));
+            churn.setReportSeconds(Long.parseLong(options.getOrDefault("report", "10")));
+            churn.setSeed(Long.parseLong(options.getOrDefault("seed", "42")));
+            if (options.containsKey("csv")) {
+                churn.setCsvFile(Paths.get(options.get("csv")));
+            }
+            churn.run();
+            return;
+        }
+
+        if (Files.exists(root)) {
+            try (Stream<Path> children = Files.list(root)) {
+                if (children.findAny().isPresent()) {
+                    System.err.println("Target directory is not empty: " + root);
+                    System.exit(1);
+                }
+            }
+        }
+        SyntheticRepoGenerator generator = new SyntheticRepoGenerator();
+        generator.setFileCount(Integer.parseInt(options.getOrDefault("files", "10000")));
+        generator.setDepth(Integer.parseInt(options.getOrDefault("depth", "3")));
+        generator.setCommitCount(Integer.parseInt(options.getOrDefault("commits", "1000")));
+        generator.setMergeDensity(Double.parseDouble(options.getOrDefault("merge-density", "0.1")));
+        generator.setBinaryFraction(Double.parseDouble(options.getOrDefault("binary-fraction", "0.02")));
+        generator.setBinarySize(Integer.parseInt(options.getOrDefault("binary-size", "65536")));
+        generator.setBranchCount(Integer.parseInt(options.getOrDefault("branches", "20")));
+        generator.setTagCount(Integer.parseInt(options.getOrDefault("tags", "0")));
+        generator.setDirtyFraction(Double.parseDouble(options.getOrDefault("dirty", "0")));
+        generator.setSeed(Long.parseLong(options.getOrDefault("seed", "42")));
+        generator.setGc(!options.containsKey("no-gc"));
+        generator.setLog(System.out::println);
+        generator.generate(root);
+    }
+}
@@ -0,0 +1,305 @@
+package com.ppm.gitppm;
+
+import com.ppm.gitppm.service.FileWatcherService;
+import com.ppm.gitppm.service.GitService;
+import com.ppm.gitppm.service.WatchServiceHub;
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Soak test for the file watcher and status refresh path. Mutates the
+ * working tree of a (throwaway) repository at a fixed rate, modifying
+ * tracked files and creating and deleting files in churn/, while a
+ * FileWatcherService feeds incremental status refreshes the same way the
+ * main window does. Every report interval it prints, and optionally
+ * appends as CSV, the latency from writing a file to the status that
+ * includes it, status run times, heap usage and watched directories.
+ * Writes the watcher never reported show up as "unseen". A file created
+ * and deleted again before the watcher reported it leaves no net change,
+ * so it is not expected to be reported and not counted.
+ */
+public class WorkingTreeChurn {
+    private static final String CHURN_DIRECTORY = "churn";
+
+    private final Path root;
+    private double rate = 20;
+    private long durationSeconds = 0;
+    private long reportSeconds = 10;
+    private long seed = 42;
+    private Path csvFile;
+
+    private final Map<String, Long> unacknowledgedWrites = new ConcurrentHashMap<>();
+    // Created files the watcher has not reported yet, a subset of the above
+    private final Set<String> unacknowledgedCreates = ConcurrentHashMap.newKeySet();
+    private final List<Long> writeLatencies = new ArrayList<>();
+    private final List<Long> statusDurations = new ArrayList<>();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final List<String> churnFiles = new ArrayList<>();
+    private int nextChurnFile = 0;
+
+    public WorkingTreeChurn(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * File changes per second
+     */
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * How long to run, or 0 to run until the process is stopped
+     */
+    public void setDurationSeconds(long durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public void setReportSeconds(long reportSeconds) {
+        this.reportSeconds = reportSeconds;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setCsvFile(Path csvFile) {
+        this.csvFile = csvFile;
+    }
+
+    public void run() throws IOException, GitAPIException, InterruptedException {
+        List<String> tracked = trackedFiles();
+        if (tracked.isEmpty()) {
+            throw new IOException("No files to modify in " + root);
+        }
+        Files.createDirectories(root.resolve(CHURN_DIRECTORY));
+
+        GitService gitService = new GitService();
+        gitService.openRepository(root.toString(), null);
+        ExecutorService statusThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ChurnStatus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        WatchServiceHub hub = new WatchServiceHub();
+        FileWatcherService watcher = new FileWatcherService(hub, statusThread);
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "ChurnDriver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        try {
+            long registerStart = System.nanoTime();
+            watcher.startWatching(root.toString(), new FileWatcherService.FileChangeListener() {
+                @Override
+                public void onFilesChanged(Set<String> filePaths) {
+                    refreshStatus(gitService, filePaths);
+                }
+            }).join();
+            gitService.getStatus();
+            System.out.printf("Watching %d directories (registered in %d ms), %d tracked files, %.1f changes/s%n",
+                    watcher.getRegisteredDirectoryCount(), (System.nanoTime() - registerStart) / 1_000_000,
+                    tracked.size(), rate);
+            writeCsvHeader();
+
+            Random random = new Random(seed);
+            long periodMicros = Math.max(1, (long) (1_000_000 / rate));
+            scheduler.scheduleAtFixedRate(() -> mutate(random, tracked), 0, periodMicros, TimeUnit.MICROSECONDS);
+            scheduler.scheduleAtFixedRate(() -> report(start, hub, true), reportSeconds, reportSeconds, TimeUnit.SECONDS);
+
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(stopped::countDown));
+            if (durationSeconds > 0) {
+                stopped.await(durationSeconds, TimeUnit.SECONDS);
+            } else {
+                stopped.await();
+            }
+        } finally {
+            scheduler.shutdownNow();
+            report(start, hub, false);
+            watcher.shutdown();
+            hub.close();
+            statusThread.shutdownNow();
+            gitService.close();
+        }
+    }
+
+    private List<String> trackedFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> root.relativize(file).toString().replace('\\', '/'))
+                    .filter(path -> !path.startsWith(".git/") && !path.startsWith(CHURN_DIRECTORY + "/"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * One change: mostly edits of tracked files, some creates and deletes
+     */
+    private void mutate(Random random, List<String> tracked) {
+        try {
+            double choice = random.nextDouble();
+            String path;
+            if (choice < 0.7 || (choice >= 0.9 && churnFiles.isEmpty())) {
+                path = tracked.get(random.nextInt(tracked.size()));
+                Files.write(root.resolve(path), ("churn " + writes.get() + "\n").getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.APPEND);
+            } else if (choice < 0.9) {
+                path = CHURN_DIRECTORY + "/file-" + (nextChurnFile++) + ".txt";
+                Files.write(root.resolve(path), ("created " + writes.get() + "\n").getBytes(StandardCharsets.UTF_8));
+                churnFiles.add(path);
+                unacknowledgedCreates.add(path);
+            } else {
+                path = churnFiles.remove(random.nextInt(churnFiles.size()));
+                Files.deleteIfExists(root.resolve(path));
+                if (unacknowledgedCreates.remove(path)) {
+                    // Back to the state the watcher last reported
+                    unacknowledgedWrites.remove(path);
+                    writes.incrementAndGet();
+                    return;
+                }
+            }
+            unacknowledgedWrites.putIfAbsent(path, System.nanoTime());
+            writes.incrementAndGet();
+        } catch (IOException e) {
+            System.err.println("Churn write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs on the delivery thread, one batch at a time, like the main window
+     */
+    private void refreshStatus(GitService gitService, Set<String> filePaths) {
+        batches.incrementAndGet();
+        boolean overflow = filePaths.contains("");
+        long start = System.nanoTime();
+        try {
+            if (overflow) {
+                overflows.incrementAndGet();
+                gitService.getStatus();
+            } else {
+                gitService.getStatus(filePaths);
+            }
+        } catch (Exception e) {
+            System.err.println("Status refresh failed: " + e.getMessage());
+            return;
+        }
+        long end = System.nanoTime();
+
+        List<Long> latencies = new ArrayList<>();
+        if (overflow) {
+            // A full scan covers every write made so far
+            for (String path : unacknowledgedWrites.keySet()) {
+                Long written = unacknowledgedWrites.remove(path);
+                if (written != null && written < start) {
+                    unacknowledgedCreates.remove(path);
+                    latencies.add(end - written);
+                } else if (written != null) {
+                    unacknowledgedWrites.putIfAbsent(path, written);
+                }
+            }
+        } else {
+            for (String path : filePaths) {
+                Long written = unacknowledgedWrites.remove(path);
+                unacknowledgedCreates.remove(path);
+                if (written != null) {
+                    latencies.add(end - written);
+                }
+            }
+        }
+        synchronized (this) {
+            writeLatencies.addAll(latencies);
+            statusDurations.add(end - start);
+        }
+    }
+
+    /**
+     * Print the figures measured since the previous report. Unless forced,
+     * nothing is printed when nothing was measured.
+     */
+    private void report(long start, WatchServiceHub hub, boolean force) {
+        long[] latencies;
+        long[] durations;
+        synchronized (this) {
+            if (!force && writeLatencies.isEmpty() && statusDurations.isEmpty()) {
+                return;
+            }
+            latencies = writeLatencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            durations = statusDurations.stream().mapToLong(Long::longValue).sorted().toArray();
+            writeLatencies.clear();
+            statusDurations.clear();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long heapCommitted = runtime.totalMemory();
+        long heapUsed = heapCommitted - runtime.freeMemory();
+        long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+
+        System.out.printf("[%6ds] writes %d, batches %d (%d overflows), unseen %d | write->status p50 %d ms, "
+                        + "p99 %d ms, max %d ms | status p50 %d ms, p99 %d ms | heap %d/%d MB, %d watched dirs%n",
+                elapsedSeconds, writes.get(), batches.get(), overflows.get(), unacknowledgedWrites.size(),
+                millis(latencies, 0.50), millis(latencies, 0.99), millis(latencies, 1.0),
+                millis(durations, 0.50), millis(durations, 0.99),
+                heapUsed >> 20, heapCommitted >> 20, hub.getWatchedDirectoryCount());
+        appendCsv(String.join(",", Arrays.asList(
+                String.valueOf(elapsedSeconds), String.valueOf(writes.get()), String.valueOf(batches.get()),
+                String.valueOf(overflows.get()), String.valueOf(unacknowledgedWrites.size()),
+                String.valueOf(millis(latencies, 0.50)), String.valueOf(millis(latencies, 0.99)),
+                String.valueOf(millis(latencies, 1.0)), String.valueOf(millis(durations, 0.50)),
+                String.valueOf(millis(durations, 0.99)), String.valueOf(heapUsed), String.valueOf(heapCommitted),
+                String.valueOf(hub.getWatchedDirectoryCount()))));
+    }
+
+    private static long millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+    }
+
+    private void writeCsvHeader() {
+        if (csvFile != null && !Files.exists(csvFile)) {
+            appendCsv("elapsed_s,writes,batches,overflows,unseen,latency_p50_ms,latency_p99_ms,latency_max_ms,"
+                    + "status_p50_ms,status_p99_ms,heap_used,heap_committed,watched_dirs");
+        }
+    }
+
+    private void appendCsv(String line) {
+        if (csvFile == null) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(line);
+            writer.newLine();
+        } catch (IOException e) {
+            System.err.println("Failed to write " + csvFile + ": " + e.getMessage());
+        }
+    }
+}
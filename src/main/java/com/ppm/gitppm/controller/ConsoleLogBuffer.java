@@ -0,0 +1,100 @@
+package com.ppm.gitppm.controller;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fixed-capacity observable list of console lines. Appending beyond the
+ * capacity drops the oldest lines, so memory use stays bounded however
+ * long the application runs. A batch of appends fires a single change
+ * event. Must only be modified on the JavaFX thread.
+ */
+public class ConsoleLogBuffer extends ObservableListBase<String> {
+    private final String[] lines;
+    private int head = 0;
+    private int size = 0;
+
+    public ConsoleLogBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.lines = new String[capacity];
+    }
+
+    public int getCapacity() {
+        return lines.length;
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return lines[(head + index) % lines.length];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Append lines, evicting the oldest ones when the buffer is full
+     */
+    public void appendAll(Collection<String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<String> incoming = new ArrayList<>(batch);
+        if (incoming.size() > lines.length) {
+            incoming = incoming.subList(incoming.size() - lines.length, incoming.size());
+        }
+
+        beginChange();
+        try {
+            int overflow = size + incoming.size() - lines.length;
+            if (overflow > 0) {
+                List<String> evicted = new ArrayList<>(overflow);
+                for (int i = 0; i < overflow; i++) {
+                    evicted.add(lines[head]);
+                    lines[head] = null;
+                    head = (head + 1) % lines.length;
+                }
+                size -= overflow;
+                nextRemove(0, evicted);
+            }
+
+            int from = size;
+            for (String line : incoming) {
+                lines[(head + size) % lines.length] = line;
+                size++;
+            }
+            nextAdd(from, size);
+        } finally {
+            endChange();
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+
+        List<String> removed = new ArrayList<>(this);
+        beginChange();
+        try {
+            Arrays.fill(lines, null);
+            head = 0;
+            size = 0;
+            nextRemove(0, removed);
+        } finally {
+            endChange();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.ppm.gitppm.controller;
+
+import com.ppm.gitppm.model.FileChange;
+import com.ppm.gitppm.service.StatusSnapshot;
+import javafx.collections.ObservableListBase;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Observable view of the latest status for the changes list. It holds the
+ * snapshot itself rather than a copy, so rows are only materialized when
+ * the list view renders them. An update fires a single change covering
+ * the range between the unchanged head and tail of the list, so cells,
+ * scroll position and selection outside that range are kept.
+ * Must only be modified on the JavaFX thread.
+ */
+public class FileChangeList extends ObservableListBase<FileChange> {
+    private List<FileChange> snapshot = List.of();
+
+    @Override
+    public FileChange get(int index) {
+        return snapshot.get(index);
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Paths of all staged entries, without materializing the others
+     */
+    public List<String> getStagedPaths() {
+        if (snapshot instanceof StatusSnapshot) {
+            return ((StatusSnapshot) snapshot).getStagedPaths();
+        }
+        return snapshot.stream()
+                .filter(FileChange::isStaged)
+                .map(FileChange::getFilePath)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Show a new snapshot
+     */
+    public void update(List<FileChange> latest) {
+        List<FileChange> previous = snapshot;
+        int common = Math.min(previous.size(), latest.size());
+        int head = 0;
+        while (head < common && isSameEntry(previous, head, latest, head)) {
+            head++;
+        }
+        int tail = 0;
+        while (tail < common - head
+                && isSameEntry(previous, previous.size() - 1 - tail, latest, latest.size() - 1 - tail)) {
+            tail++;
+        }
+
+        snapshot = latest;
+        int removedEnd = previous.size() - tail;
+        int addedEnd = latest.size() - tail;
+        if (head == removedEnd && head == addedEnd) {
+            return;
+        }
+        beginChange();
+        try {
+            if (removedEnd > head) {
+                nextRemove(head, previous.subList(head, removedEnd));
+            }
+            if (addedEnd > head) {
+                nextAdd(head, addedEnd);
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    private static boolean isSameEntry(List<FileChange> previous, int index, List<FileChange> latest,
+                                       int latestIndex) {
+        if (previous instanceof StatusSnapshot && latest instanceof StatusSnapshot) {
+            return ((StatusSnapshot) previous).isSameEntry(index, (StatusSnapshot) latest, latestIndex);
+        }
+        return previous.get(index).equals(latest.get(latestIndex));
+    }
+}
@@ -0,0 +1,131 @@
+package com.ppm.gitppm.controller;
+
+import javafx.collections.ObservableList;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Brings an ObservableList in line with a new snapshot using as few list
+ * changes as possible. Items are matched by key; unchanged items stay in
+ * place, so ListView keeps its scroll position, selection and cells, and
+ * only the rows that were added, removed or changed fire events.
+ * Comparing the snapshots is O(n), but the UI work is O(changed).
+ * Snapshots with duplicate keys, and reorders that would need more than a
+ * few moves, are applied with a single setAll() instead.
+ */
+public final class KeyedListPatcher<T, K> {
+    // Each move scans and shifts the list, so many of them cost more than a reset
+    private static final int MAX_MOVES = 32;
+
+    private final Function<? super T, ? extends K> keyFunction;
+    private final BiPredicate<? super T, ? super T> sameContent;
+
+    /**
+     * @param keyFunction identity of an item, stable across snapshots
+     * @param sameContent whether two items with the same key render the same;
+     *                    items that differ are replaced in place
+     */
+    public KeyedListPatcher(Function<? super T, ? extends K> keyFunction,
+                            BiPredicate<? super T, ? super T> sameContent) {
+        this.keyFunction = keyFunction;
+        this.sameContent = sameContent;
+    }
+
+    /**
+     * Patch the target list to equal the given snapshot, in the snapshot's order
+     */
+    public void patch(ObservableList<T> target, List<? extends T> snapshot) {
+        if (target.isEmpty() || snapshot.isEmpty()) {
+            target.setAll(snapshot);
+            return;
+        }
+
+        Map<K, T> wanted = new HashMap<>(snapshot.size() * 2);
+        for (T item : snapshot) {
+            if (wanted.put(keyFunction.apply(item), item) != null) {
+                // Items cannot be matched by key
+                target.setAll(snapshot);
+                return;
+            }
+        }
+        Set<K> present = new HashSet<>(target.size() * 2);
+        for (T item : target) {
+            if (!present.add(keyFunction.apply(item))) {
+                target.setAll(snapshot);
+                return;
+            }
+        }
+        present.retainAll(wanted.keySet());
+        removeMissing(target, wanted);
+
+        int moves = 0;
+        int i = 0;
+        while (i < snapshot.size()) {
+            T next = snapshot.get(i);
+            K key = keyFunction.apply(next);
+
+            if (!present.contains(key)) {
+                // Insert the whole run of new items with one change
+                int end = i + 1;
+                while (end < snapshot.size() && !present.contains(keyFunction.apply(snapshot.get(end)))) {
+                    end++;
+                }
+                target.addAll(i, snapshot.subList(i, end));
+                i = end;
+                continue;
+            }
+
+            T current = target.get(i);
+            if (!Objects.equals(keyFunction.apply(current), key)) {
+                if (++moves > MAX_MOVES) {
+                    target.setAll(snapshot);
+                    return;
+                }
+                // Moved: take it from its old position, which is further down
+                int from = indexOf(target, key, i + 1);
+                current = target.remove(from);
+                target.add(i, current);
+            }
+            if (current != next && !sameContent.test(current, next)) {
+                target.set(i, next);
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Remove items whose key is not in the snapshot, one change per run of
+     * adjacent removals
+     */
+    private void removeMissing(ObservableList<T> target, Map<K, T> wanted) {
+        int end = target.size();
+        while (end > 0) {
+            if (wanted.containsKey(keyFunction.apply(target.get(end - 1)))) {
+                end--;
+                continue;
+            }
+            int start = end - 1;
+            while (start > 0 && !wanted.containsKey(keyFunction.apply(target.get(start - 1)))) {
+                start--;
+            }
+            target.remove(start, end);
+            end = start;
+        }
+    }
+
+    private int indexOf(List<T> list, K key, int from) {
+        for (int i = from; i < list.size(); i++) {
+            if (Objects.equals(keyFunction.apply(list.get(i)), key)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Key not found: " + key);
+    }
+}
@@ -1,9 +1,13 @@
 package com.ppm.gitppm.controller;
 
+import com.ppm.gitppm.model.CloneOptions;
+import com.ppm.gitppm.model.CloneProgress;
 import com.ppm.gitppm.model.GitAuthType;
 import com.ppm.gitppm.model.GitCredentials;
+import com.ppm.gitppm.service.AsyncGitService;
 import com.ppm.gitppm.service.GitService;
-import javafx.application.Platform;
+import com.ppm.gitppm.service.GitTaskExecutor;
+import com.ppm.gitppm.service.UiDispatcher;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -16,6 +20,9 @@ import java.awt.Desktop;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class LoginController {
     @FXML private ComboBox<GitAuthType> authTypeComboBox;
@@ -37,15 +44,29 @@ public class LoginController {
     @FXML private Button githubSignInButton;
     @FXML private Label githubStatusLabel;
     
+    // Clone options and progress
+    @FXML private TitledPane cloneOptionsPane;
+    @FXML private TextField cloneDepthField;
+    @FXML private TextField cloneBranchField;
+    @FXML private CheckBox cloneSingleBranchCheckBox;
+    @FXML private CheckBox cloneNoCheckoutCheckBox;
+    @FXML private VBox cloneProgressSection;
+    @FXML private ProgressBar cloneProgressBar;
+    @FXML private Label cloneProgressLabel;
+    
     @FXML private Button openRepoButton;
     @FXML private Button cloneRepoButton;
     @FXML private Label statusLabel;
 
     private GitService gitService;
+    private AsyncGitService asyncGit;
+    private CompletableFuture<Void> pendingClone;
+    private final UiDispatcher uiDispatcher = UiDispatcher.getDefault();
 
     @FXML
     public void initialize() {
         gitService = new GitService();
+        asyncGit = new AsyncGitService(gitService);
         
         // Setup auth type combo box
         authTypeComboBox.getItems().addAll(GitAuthType.values());
@@ -153,31 +174,99 @@ public class LoginController {
                 return;
             }
 
+            CloneOptions options = collectCloneOptions();
+            if (options == null) {
+                return;
+            }
+
             credentials.setRemoteUrl(remoteUrl);
             credentials.setRepositoryPath(localPath);
 
             // Show progress
             statusLabel.setText("Cloning repository...");
             statusLabel.setStyle("-fx-text-fill: #2196F3;");
+            setCloning(true);
 
-            // Clone in background thread
-            new Thread(() -> {
-                try {
-                    gitService.cloneRepository(remoteUrl, localPath, credentials);
-                    
-                    Platform.runLater(() -> {
-                        showSuccess("Repository cloned successfully!");
-                        openMainWindow(credentials);
-                    });
-                } catch (Exception e) {
-                    Platform.runLater(() -> 
-                        showError("Failed to clone repository: " + e.getMessage())
-                    );
+            // Clone in background, streaming progress to the progress bar
+            pendingClone = asyncGit.cloneRepository(remoteUrl, localPath, credentials, options,
+                    progress -> uiDispatcher.postLatest(cloneProgressBar, () -> showCloneProgress(progress)));
+            pendingClone.whenCompleteAsync((result, error) -> {
+                setCloning(false);
+                if (error == null) {
+                    showSuccess("Repository cloned successfully!");
+                    openMainWindow(credentials);
+                    return;
                 }
-            }).start();
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (cause instanceof CancellationException) {
+                    showError("Clone cancelled");
+                } else {
+                    showError("Failed to clone repository: " + cause.getMessage());
+                }
+            }, GitTaskExecutor.FX_THREAD);
         });
     }
 
+    @FXML
+    private void onCancelClone() {
+        if (pendingClone != null) {
+            cloneProgressLabel.setText("Cancelling...");
+            pendingClone.cancel(true);
+        }
+    }
+
+    private void setCloning(boolean cloning) {
+        cloneProgressSection.setVisible(cloning);
+        cloneProgressSection.setManaged(cloning);
+        openRepoButton.setDisable(cloning);
+        cloneRepoButton.setDisable(cloning);
+        cloneOptionsPane.setDisable(cloning);
+        if (cloning) {
+            cloneProgressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+            cloneProgressLabel.setText("Connecting...");
+        } else {
+            pendingClone = null;
+        }
+    }
+
+    private void showCloneProgress(CloneProgress progress) {
+        if (pendingClone == null) {
+            return;
+        }
+        double fraction = progress.getFraction();
+        cloneProgressBar.setProgress(fraction >= 0 ? fraction : ProgressBar.INDETERMINATE_PROGRESS);
+        cloneProgressLabel.setText(progress.toString());
+    }
+
+    /**
+     * Collect clone options from the form
+     */
+    private CloneOptions collectCloneOptions() {
+        CloneOptions options = new CloneOptions();
+
+        String depth = cloneDepthField.getText();
+        if (depth != null && !depth.isBlank()) {
+            try {
+                options.setDepth(Integer.parseInt(depth.trim()));
+            } catch (NumberFormatException e) {
+                options.setDepth(-1);
+            }
+            if (options.getDepth() <= 0) {
+                showError("Depth must be a positive number of commits");
+                return null;
+            }
+        }
+
+        String branch = cloneBranchField.getText();
+        if (branch != null && !branch.isBlank()) {
+            options.setBranch(branch.trim());
+        }
+        options.setSingleBranch(cloneSingleBranchCheckBox.isSelected());
+        options.setNoCheckout(cloneNoCheckoutCheckBox.isSelected());
+        return options;
+    }
+
     @FXML
     private void onGitHubSignIn() {
         // Note: Full OAuth implementation requires a web server to handle callback
@@ -1,34 +1,77 @@
 package com.ppm.gitppm.controller;
 
+import com.ppm.gitppm.model.AheadBehind;
 import com.ppm.gitppm.model.CommitInfo;
 import com.ppm.gitppm.model.FileChange;
 import com.ppm.gitppm.model.GitCredentials;
+import com.ppm.gitppm.model.OperationStats;
+import com.ppm.gitppm.model.RepositorySummary;
+import com.ppm.gitppm.model.SyncReport;
+import com.ppm.gitppm.service.AsyncGitService;
+import com.ppm.gitppm.service.BackgroundSyncScheduler;
 import com.ppm.gitppm.service.FileWatcherService;
 import com.ppm.gitppm.service.GitService;
+import com.ppm.gitppm.service.JGitCacheSettings;
+import com.ppm.gitppm.service.OperationMetrics;
+import com.ppm.gitppm.service.RepositoryRegistry;
+import com.ppm.gitppm.service.TraceRecorder;
+import com.ppm.gitppm.service.UiDispatcher;
+import com.ppm.gitppm.service.Workspace;
+import com.ppm.gitppm.service.WorkspaceRepository;
+import com.ppm.gitppm.service.WorkspaceSync;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.CheckBoxListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
 import javafx.util.StringConverter;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.transport.PushResult;
 import org.kordamp.ikonli.javafx.FontIcon;
 
 import java.awt.Desktop;
 import java.io.File;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class MainController {
+    private static final int COMMIT_PAGE_SIZE = Integer.getInteger("gitppm.history.pageSize", 50);
+    private static final int COMMIT_PREFETCH_DISTANCE = 10;
+    private static final int COMMIT_SEARCH_LIMIT = 500;
+    private static final int CONSOLE_CAPACITY = Integer.getInteger("gitppm.console.capacity", 10000);
+    private static final String METRICS_FILE = System.getProperty("gitppm.metrics.file");
+
     // Top toolbar
     @FXML private Label repoNameLabel;
     @FXML private ComboBox<String> branchComboBox;
+    @FXML private Label aheadBehindLabel;
     @FXML private Label statusMessageLabel;
     @FXML private Label fileWatcherStatusLabel;
     
@@ -40,21 +83,43 @@ public class MainController {
     // Right panel - History & Info
     @FXML private Label commitsCountLabel;
     @FXML private ListView<CommitInfo> commitsListView;
+    @FXML private TextField commitSearchField;
     @FXML private Label repoPathInfoLabel;
     @FXML private Label currentBranchInfoLabel;
     @FXML private Label remoteUrlInfoLabel;
+    @FXML private Label cacheStatsInfoLabel;
     @FXML private ListView<String> branchesListView;
-    @FXML private TextArea consoleArea;
+    @FXML private ListView<String> consoleListView;
+    @FXML private ListView<WorkspaceRepository> workspaceListView;
+    @FXML private Label workspaceCountLabel;
+    @FXML private Tab performanceTab;
+    @FXML private ListView<OperationStats> performanceListView;
+    @FXML private Label performanceSummaryLabel;
 
     private GitService gitService;
+    private AsyncGitService asyncGit;
+    private CompletableFuture<List<FileChange>> pendingFullStatus;
+    private boolean loadingCommits = false;
+    private boolean historyExhausted = false;
+    private int historyGeneration = 0;
     private GitCredentials credentials;
     private FileWatcherService fileWatcherService;
-    private ObservableList<FileChange> fileChanges;
+    private BackgroundSyncScheduler syncScheduler;
+    private Workspace workspace;
+    private WorkspaceRepository foregroundRepository;
+    private CompletableFuture<SyncReport> pendingWorkspaceSync;
+    private final FileChangeList fileChanges = new FileChangeList();
     private ObservableList<CommitInfo> commits;
+    private final ObservableList<WorkspaceRepository> workspaceRepositories = FXCollections.observableArrayList();
+    private final ConsoleLogBuffer consoleLines = new ConsoleLogBuffer(CONSOLE_CAPACITY);
+    private final UiDispatcher uiDispatcher = UiDispatcher.getDefault();
+    private final OperationMetrics metrics = OperationMetrics.getDefault();
+    private final TraceRecorder trace = TraceRecorder.getDefault();
+    private final Timeline performanceRefresh = new Timeline(
+            new KeyFrame(Duration.seconds(1), e -> updatePerformance()));
 
     @FXML
     public void initialize() {
-        this.fileChanges = FXCollections.observableArrayList();
         this.commits = FXCollections.observableArrayList();
         setupUI();
     }
@@ -62,9 +127,13 @@ public class MainController {
     public void initializeData(GitService gitService, GitCredentials credentials) {
         this.gitService = gitService;
         this.credentials = credentials;
+        this.asyncGit = new AsyncGitService(gitService);
+        gitService.setOperationLog(this::logToConsole);
+        startWorkspace();
         
         loadRepositoryData();
         startFileWatcher();
+        startBackgroundSync();
     }
 
     /**
@@ -73,164 +142,345 @@ public class MainController {
     private void setupUI() {
         // Setup changes list view with custom cell factory
         changesListView.setItems(fileChanges);
-        changesListView.setCellFactory(param -> new ListCell<FileChange>() {
-            @Override
-            protected void updateItem(FileChange item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                    setGraphic(null);
-                    setStyle("");
-                } else {
-                    // Create checkbox for staging
-                    CheckBox checkBox = new CheckBox();
-                    checkBox.setSelected(item.isStaged());
-                    checkBox.setOnAction(e -> {
-                        try {
-                            if (checkBox.isSelected()) {
-                                gitService.stageFiles(List.of(item.getFilePath()));
-                                item.setStaged(true);
-                                logToConsole("Staged: " + item.getFilePath());
-                            } else {
-                                gitService.unstageFiles(List.of(item.getFilePath()));
-                                item.setStaged(false);
-                                logToConsole("Unstaged: " + item.getFilePath());
-                            }
-                        } catch (Exception ex) {
-                            showError("Failed to stage/unstage file: " + ex.getMessage());
-                        }
-                    });
-                    
-                    // Create icon based on change type
-                    FontIcon icon = new FontIcon();
-                    switch (item.getChangeType()) {
-                        case ADDED:
-                            icon.setIconLiteral("fa-plus-circle");
-                            icon.setIconColor(Color.web("#4CAF50"));
-                            break;
-                        case MODIFIED:
-                            icon.setIconLiteral("fa-edit");
-                            icon.setIconColor(Color.web("#FF9800"));
-                            break;
-                        case DELETED:
-                            icon.setIconLiteral("fa-minus-circle");
-                            icon.setIconColor(Color.web("#F44336"));
-                            break;
-                        case UNTRACKED:
-                            icon.setIconLiteral("fa-question-circle");
-                            icon.setIconColor(Color.web("#2196F3"));
-                            break;
-                        case CONFLICTING:
-                            icon.setIconLiteral("fa-exclamation-triangle");
-                            icon.setIconColor(Color.web("#9C27B0"));
-                            break;
-                        default:
-                            icon.setIconLiteral("fa-file");
-                            icon.setIconColor(Color.web("#757575"));
-                    }
-                    icon.setIconSize(14);
-                    
-                    // Create label with file path
-                    Label label = new Label(item.getFilePath());
-                    label.setStyle("-fx-padding: 0 0 0 8;");
-                    
-                    // Create HBox with all elements
-                    javafx.scene.layout.HBox hbox = new javafx.scene.layout.HBox(5, checkBox, icon, label);
-                    hbox.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
-                    
-                    setGraphic(hbox);
-                }
-            }
-        });
+        changesListView.setCellFactory(param -> new FileChangeCell());
 
         // Setup commits list view
         commitsListView.setItems(commits);
-        commitsListView.setCellFactory(param -> new ListCell<CommitInfo>() {
-            @Override
-            protected void updateItem(CommitInfo item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                    setGraphic(null);
-                } else {
-                    SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy HH:mm");
-                    String dateStr = sdf.format(Date.from(item.getTimestamp()));
-                    
-                    Label idLabel = new Label(item.getShortId());
-                    idLabel.setStyle("-fx-font-family: monospace; -fx-font-weight: bold;");
-                    
-                    Label messageLabel = new Label(item.getMessage());
-                    messageLabel.setWrapText(true);
-                    messageLabel.setStyle("-fx-font-weight: bold;");
-                    
-                    Label authorLabel = new Label("by " + item.getAuthor());
-                    authorLabel.setStyle("-fx-text-fill: #666; -fx-font-size: 11;");
-                    
-                    Label dateLabel = new Label(dateStr);
-                    dateLabel.setStyle("-fx-text-fill: #999; -fx-font-size: 10;");
-                    
-                    javafx.scene.layout.VBox vbox = new javafx.scene.layout.VBox(3);
-                    javafx.scene.layout.HBox header = new javafx.scene.layout.HBox(8, idLabel, messageLabel);
-                    javafx.scene.layout.HBox footer = new javafx.scene.layout.HBox(15, authorLabel, dateLabel);
-                    
-                    vbox.getChildren().addAll(header, footer);
-                    setGraphic(vbox);
-                }
-            }
-        });
+        commitsListView.setCellFactory(param -> new CommitCell());
+
+        // Console only renders the visible lines of its bounded buffer
+        consoleListView.setItems(consoleLines);
 
         // Setup branches list
         branchesListView.setItems(FXCollections.observableArrayList());
+
+        // Workspace rows load their repository when first shown
+        workspaceListView.setItems(workspaceRepositories);
+        workspaceListView.setCellFactory(param -> new WorkspaceCell());
+        workspaceListView.getSelectionModel().selectedItemProperty().addListener((obs, oldValue, newValue) -> {
+            if (workspace != null) {
+                workspace.setFocused(newValue);
+            }
+        });
+
+        // Operation timings are only polled while their tab is shown
+        performanceListView.setItems(FXCollections.observableArrayList());
+        performanceRefresh.setCycleCount(Animation.INDEFINITE);
+        performanceTab.selectedProperty().addListener((obs, wasSelected, selected) -> {
+            if (selected) {
+                updatePerformance();
+                performanceRefresh.play();
+            } else {
+                performanceRefresh.stop();
+            }
+        });
+    }
+
+    /**
+     * Icon literal and color shown for a change type
+     */
+    private static class ChangeIcon {
+        private final String literal;
+        private final Color color;
+
+        ChangeIcon(String literal, String color) {
+            this.literal = literal;
+            this.color = Color.web(color);
+        }
+    }
+
+    private static final Map<FileChange.ChangeType, ChangeIcon> CHANGE_ICONS = new EnumMap<>(Map.of(
+            FileChange.ChangeType.ADDED, new ChangeIcon("fa-plus-circle", "#4CAF50"),
+            FileChange.ChangeType.MODIFIED, new ChangeIcon("fa-edit", "#FF9800"),
+            FileChange.ChangeType.DELETED, new ChangeIcon("fa-minus-circle", "#F44336"),
+            FileChange.ChangeType.UNTRACKED, new ChangeIcon("fa-question-circle", "#2196F3"),
+            FileChange.ChangeType.CONFLICTING, new ChangeIcon("fa-exclamation-triangle", "#9C27B0")
+    ));
+    private static final ChangeIcon DEFAULT_CHANGE_ICON = new ChangeIcon("fa-file", "#757575");
+
+    private static final DateTimeFormatter COMMIT_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm").withZone(ZoneId.systemDefault());
+    // Commits are immutable, so the id alone decides whether a row changed
+    private static final KeyedListPatcher<CommitInfo, String> COMMIT_PATCHER = new KeyedListPatcher<>(
+            CommitInfo::getCommitId, (shown, latest) -> true);
+    private static final DateTimeFormatter CONSOLE_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /**
+     * Row of the changes list. The node graph is built once per cell;
+     * updateItem only rebinds the checkbox, text and, when the change type
+     * differs from the previous item, the icon.
+     */
+    private class FileChangeCell extends ListCell<FileChange> {
+        private final CheckBox checkBox = new CheckBox();
+        private final FontIcon icon = new FontIcon();
+        private final Label label = new Label();
+        private final HBox row = new HBox(5, checkBox, icon, label);
+        private FileChange.ChangeType shownType;
+
+        FileChangeCell() {
+            icon.setIconSize(14);
+            label.setStyle("-fx-padding: 0 0 0 8;");
+            row.setAlignment(Pos.CENTER_LEFT);
+            checkBox.setOnAction(e -> toggleStaged());
+        }
+
+        @Override
+        protected void updateItem(FileChange item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+
+            checkBox.setSelected(item.isStaged());
+            label.setText(item.getFilePath());
+            if (item.getChangeType() != shownType) {
+                shownType = item.getChangeType();
+                ChangeIcon spec = CHANGE_ICONS.getOrDefault(shownType, DEFAULT_CHANGE_ICON);
+                icon.setIconLiteral(spec.literal);
+                icon.setIconColor(spec.color);
+            }
+            if (getGraphic() != row) {
+                setGraphic(row);
+            }
+        }
+
+        private void toggleStaged() {
+            FileChange item = getItem();
+            if (item == null) {
+                return;
+            }
+            boolean stage = checkBox.isSelected();
+            List<String> paths = List.of(item.getFilePath());
+            CompletableFuture<Void> operation = stage
+                    ? asyncGit.stageFiles(paths)
+                    : asyncGit.unstageFiles(paths);
+            handleResult(operation, result -> {
+                logToConsole((stage ? "Staged: " : "Unstaged: ") + item.getFilePath());
+                // Rows are views of the status snapshot, so re-read the file's status
+                refreshChanges(paths);
+            }, "Failed to stage/unstage file", () -> {
+                // The cell may show another file by now
+                if (getItem() == item) {
+                    checkBox.setSelected(item.isStaged());
+                }
+            });
+        }
+    }
+
+    /**
+     * Row of the commit history, built once per cell and rebound on update
+     */
+    private class CommitCell extends ListCell<CommitInfo> {
+        private final Label idLabel = new Label();
+        private final Label messageLabel = new Label();
+        private final Label authorLabel = new Label();
+        private final Label dateLabel = new Label();
+        private final VBox content = new VBox(3,
+                new HBox(8, idLabel, messageLabel),
+                new HBox(15, authorLabel, dateLabel));
+
+        CommitCell() {
+            idLabel.setStyle("-fx-font-family: monospace; -fx-font-weight: bold;");
+            messageLabel.setWrapText(true);
+            messageLabel.setStyle("-fx-font-weight: bold;");
+            authorLabel.setStyle("-fx-text-fill: #666; -fx-font-size: 11;");
+            dateLabel.setStyle("-fx-text-fill: #999; -fx-font-size: 10;");
+        }
+
+        @Override
+        protected void updateItem(CommitInfo item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+
+            idLabel.setText(item.getShortId());
+            messageLabel.setText(item.getMessage());
+            authorLabel.setText("by " + item.getAuthor());
+            dateLabel.setText(COMMIT_DATE_FORMAT.format(item.getTimestamp()));
+            if (getGraphic() != content) {
+                setGraphic(content);
+            }
+
+            // Infinite scroll: fetch the next page when nearing the end
+            if (getIndex() >= commits.size() - COMMIT_PREFETCH_DISTANCE) {
+                loadMoreCommits();
+            }
+        }
+    }
+
+    /**
+     * Workspace row: repository name and its summary. Showing a row is
+     * what opens the repository, so off-screen repositories cost nothing.
+     */
+    private class WorkspaceCell extends ListCell<WorkspaceRepository> {
+        private final Label nameLabel = new Label();
+        private final Label summaryLabel = new Label();
+        private final Tooltip pathTooltip = new Tooltip();
+        private final VBox content = new VBox(3, nameLabel, summaryLabel);
+
+        WorkspaceCell() {
+            nameLabel.setStyle("-fx-font-weight: bold;");
+            summaryLabel.setStyle("-fx-text-fill: #666; -fx-font-size: 11;");
+        }
+
+        @Override
+        protected void updateItem(WorkspaceRepository item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setText(null);
+                setGraphic(null);
+                setTooltip(null);
+                return;
+            }
+
+            RepositorySummary summary = item.getSummary();
+            nameLabel.setText(item.isForeground() ? item.getName() + " (current)" : item.getName());
+            summaryLabel.setText(summary.toString());
+            summaryLabel.setStyle(summary.getError() != null
+                    ? "-fx-text-fill: #F44336; -fx-font-size: 11;"
+                    : "-fx-text-fill: #666; -fx-font-size: 11;");
+            pathTooltip.setText(item.getPath().toString());
+            if (getGraphic() != content) {
+                setGraphic(content);
+                setTooltip(pathTooltip);
+            }
+            workspace.ensureLoaded(item);
+        }
     }
 
     /**
      * Load repository data
      */
     private void loadRepositoryData() {
-        try {
-            // Set repository name
-            File repoDir = gitService.getRepositoryDirectory();
-            repoNameLabel.setText(repoDir.getName());
-            repoPathInfoLabel.setText(repoDir.getAbsolutePath());
-            
-            // Load branches
-            List<String> branches = gitService.getBranches();
-            branchComboBox.setItems(FXCollections.observableArrayList(branches));
-            branchesListView.setItems(FXCollections.observableArrayList(branches));
-            
-            // Set current branch
-            String currentBranch = gitService.getCurrentBranch();
-            branchComboBox.setValue(currentBranch);
-            currentBranchInfoLabel.setText(currentBranch);
-            
-            // Load changes
-            refreshChanges();
-            
-            // Load commit history
-            refreshCommits();
-            
-            logToConsole("Repository loaded: " + repoDir.getName());
-            updateStatusMessage("Ready", false);
-            
-        } catch (Exception e) {
-            showError("Failed to load repository data: " + e.getMessage());
+        // Set repository name
+        File repoDir = gitService.getRepositoryDirectory();
+        repoNameLabel.setText(repoDir.getName());
+        repoPathInfoLabel.setText(repoDir.getAbsolutePath());
+        updateStatusMessage("Loading repository...", true);
+
+        // Load branches and current branch
+        refreshBranches();
+
+        // Load changes
+        refreshChanges();
+
+        // Load commit history
+        refreshCommits();
+
+        // Speed up later history walks
+        updateCommitGraph();
+
+        logToConsole("Repository loaded: " + repoDir.getName());
+        logToConsole("JGit cache: " + JGitCacheSettings.fromSystemProperties());
+        if (trace.isEnabled()) {
+            logToConsole("Tracing to " + trace.getDirectory());
+        }
+        updateStatusMessage("Ready", false);
+    }
+
+    /**
+     * Reload the branch lists and the current branch
+     */
+    private void refreshBranches() {
+        handleResult(asyncGit.getBranches().thenCombine(asyncGit.getCurrentBranch(), BranchState::new),
+                state -> {
+                    branchComboBox.setItems(FXCollections.observableArrayList(state.branches));
+                    branchesListView.setItems(FXCollections.observableArrayList(state.branches));
+                    currentBranchInfoLabel.setText(state.currentBranch);
+                    branchComboBox.setValue(state.currentBranch);
+                    workspace.updateSummary(foregroundRepository, summary -> summary.withBranch(state.currentBranch));
+                }, "Failed to load branches");
+    }
+
+    private static class BranchState {
+        private final List<String> branches;
+        private final String currentBranch;
+
+        BranchState(List<String> branches, String currentBranch) {
+            this.branches = branches;
+            this.currentBranch = currentBranch;
         }
     }
 
+    /**
+     * Create the workspace with the current repository as its foreground
+     * entry. Summary changes are coalesced per repository into one row
+     * update per frame.
+     */
+    private void startWorkspace() {
+        workspace = new Workspace(credentials);
+        foregroundRepository = workspace.adopt(gitService);
+        workspace.setSummaryListener(repository ->
+                uiDispatcher.postLatest(repository, () -> showSummary(repository)));
+        workspaceRepositories.setAll(workspace.getRepositories());
+        updateWorkspaceCount();
+    }
+
+    private void showSummary(WorkspaceRepository repository) {
+        int index = workspaceRepositories.indexOf(repository);
+        if (index >= 0) {
+            // Replacing the element makes the list view redraw just that row
+            workspaceRepositories.set(index, repository);
+        }
+    }
+
+    private void updateWorkspaceCount() {
+        int count = workspaceRepositories.size();
+        workspaceCountLabel.setText(count + " repositor" + (count != 1 ? "ies" : "y"));
+    }
+
     /**
      * Start file watcher service
      */
     private void startFileWatcher() {
-        fileWatcherService = new FileWatcherService();
+        fileWatcherService = new FileWatcherService(workspace.getWatchHub());
         try {
             String repoPath = gitService.getRepositoryDirectory().getAbsolutePath();
-            fileWatcherService.startWatching(repoPath, (filePath, changeType) -> {
-                logToConsole("File " + changeType + ": " + filePath);
-                refreshChanges();
+            CompletableFuture<Void> ready = fileWatcherService.startWatching(repoPath,
+                    new FileWatcherService.FileChangeListener() {
+                @Override
+                public void onFilesChanged(Set<String> filePaths) {
+                    if (filePaths.contains("")) {
+                        logToConsole("Index, HEAD or branch changed, or watcher events lost; rescanning repository");
+                        refreshChanges();
+                        refreshCommits();
+                    } else {
+                        logToConsole(filePaths.size() == 1
+                                ? "File changed: " + filePaths.iterator().next()
+                                : filePaths.size() + " files changed");
+                        refreshChanges(filePaths);
+                    }
+                }
             });
-            
-            fileWatcherStatusLabel.setText("● File Watcher: Active");
-            fileWatcherStatusLabel.setStyle("-fx-text-fill: #4CAF50;");
+
+            // Show registration progress until the initial walk is done
+            fileWatcherStatusLabel.setText("● File Watcher: Starting...");
+            fileWatcherStatusLabel.setStyle("-fx-text-fill: #2196F3;");
+            Timeline progress = new Timeline(new KeyFrame(Duration.millis(250), e ->
+                    fileWatcherStatusLabel.setText(String.format("● File Watcher: Starting (%d/~%d dirs)",
+                            fileWatcherService.getRegisteredDirectoryCount(),
+                            fileWatcherService.getEstimatedDirectoryCount()))));
+            progress.setCycleCount(Animation.INDEFINITE);
+            progress.play();
+
+            ready.whenCompleteAsync((result, error) -> {
+                progress.stop();
+                if (error != null) {
+                    fileWatcherStatusLabel.setText("● File Watcher: Inactive");
+                    fileWatcherStatusLabel.setStyle("-fx-text-fill: #F44336;");
+                    logToConsole("Failed to start file watcher: " + error.getMessage());
+                } else {
+                    fileWatcherStatusLabel.setText("● File Watcher: Active");
+                    fileWatcherStatusLabel.setStyle("-fx-text-fill: #4CAF50;");
+                    logToConsole("File watcher active, watching "
+                            + fileWatcherService.getRegisteredDirectoryCount() + " directories");
+                }
+            }, uiDispatcher);
         } catch (IOException e) {
             fileWatcherStatusLabel.setText("● File Watcher: Inactive");
             fileWatcherStatusLabel.setStyle("-fx-text-fill: #F44336;");
@@ -239,35 +489,205 @@ public class MainController {
     }
 
     /**
-     * Refresh file changes
+     * Fetch all remotes periodically and keep the ahead/behind indicator
+     * current. The interval is set with -Dgitppm.sync.intervalSeconds.
+     */
+    private void startBackgroundSync() {
+        syncScheduler = new BackgroundSyncScheduler(asyncGit, new BackgroundSyncScheduler.SyncListener() {
+            @Override
+            public void onSynced(AheadBehind aheadBehind) {
+                uiDispatcher.postLatest(aheadBehindLabel, () -> showAheadBehind(aheadBehind));
+                updateCommitGraph();
+            }
+
+            @Override
+            public void onSyncFailed(Throwable error, long retryInSeconds) {
+                logToConsole("Background fetch failed, retrying in " + retryInSeconds + " s: "
+                        + error.getMessage());
+            }
+        });
+        syncScheduler.start();
+    }
+
+    /**
+     * Recompute ahead/behind after local ref changes. Cheap when neither
+     * the branch nor its upstream moved.
+     */
+    private void refreshAheadBehind() {
+        asyncGit.getAheadBehind().whenComplete((aheadBehind, error) -> {
+            if (error == null) {
+                uiDispatcher.postLatest(aheadBehindLabel, () -> showAheadBehind(aheadBehind));
+            }
+        });
+    }
+
+    private void showAheadBehind(AheadBehind aheadBehind) {
+        boolean visible = aheadBehind != null;
+        aheadBehindLabel.setVisible(visible);
+        aheadBehindLabel.setManaged(visible);
+        workspace.updateSummary(foregroundRepository, summary -> summary.withAheadBehind(aheadBehind));
+        if (!visible) {
+            return;
+        }
+        aheadBehindLabel.setText(aheadBehind.toString());
+        String upstream = aheadBehind.getUpstream().startsWith(Constants.R_REMOTES)
+                ? aheadBehind.getUpstream().substring(Constants.R_REMOTES.length())
+                : aheadBehind.getUpstream();
+        aheadBehindLabel.setTooltip(new Tooltip(aheadBehind.isInSync()
+                ? "Up to date with " + upstream
+                : String.format("%d commit%s to push, %d to pull (%s)", aheadBehind.getAhead(),
+                        aheadBehind.getAhead() != 1 ? "s" : "", aheadBehind.getBehind(), upstream)));
+        aheadBehindLabel.setStyle(aheadBehind.getBehind() > 0 ? "-fx-text-fill: #FF9800;" : "");
+    }
+
+    /**
+     * Show registry and pack cache hit rates, for tuning the
+     * gitppm.registry.* and gitppm.cache.* settings
+     */
+    private void updateCacheStatistics() {
+        cacheStatsInfoLabel.setText(RepositoryRegistry.getDefault().getStatistics().toString());
+    }
+
+    /**
+     * Refresh file changes with a full status scan.
+     * The result of a pending full scan is dropped, since the new one
+     * supersedes it. The pending scan is not cancelled: that would
+     * interrupt JGit while it reads packs and the index through
+     * interruptible channels, which closes them.
      */
     private void refreshChanges() {
-        try {
-            List<FileChange> changes = gitService.getStatus();
-            Platform.runLater(() -> {
-                fileChanges.clear();
-                fileChanges.addAll(changes);
-                changesCountLabel.setText(changes.size() + " file" + (changes.size() != 1 ? "s" : ""));
-            });
-        } catch (Exception e) {
-            showError("Failed to refresh changes: " + e.getMessage());
+        CompletableFuture<List<FileChange>> status = asyncGit.getStatus();
+        pendingFullStatus = status;
+        handleResult(status, changes -> {
+            if (status == pendingFullStatus) {
+                postChanges(changes);
+            }
+        }, "Failed to refresh changes");
+    }
+
+    /**
+     * Refresh file changes, re-evaluating only the given paths
+     */
+    private void refreshChanges(Collection<String> changedPaths) {
+        handleResult(asyncGit.getStatus(changedPaths), this::postChanges, "Failed to refresh changes");
+    }
+
+    /**
+     * Every status result is a complete snapshot, so when several arrive
+     * in one frame only the newest is shown
+     */
+    private void postChanges(List<FileChange> changes) {
+        uiDispatcher.postLatest(fileChanges, () -> showChanges(changes));
+    }
+
+    private void showChanges(List<FileChange> changes) {
+        try (TraceRecorder.Span span = trace.begin("ui", "show changes")) {
+            span.arg("files", changes.size());
+            fileChanges.update(changes);
         }
+        changesCountLabel.setText(changes.size() + " file" + (changes.size() != 1 ? "s" : ""));
+        workspace.updateSummary(foregroundRepository, summary -> summary.withDirtyCount(changes.size()));
     }
 
     /**
-     * Refresh commits
+     * Refresh commits: only the commits on top of the loaded head are
+     * walked and prepended. Falls back to a reload if history was rewritten.
      */
     private void refreshCommits() {
-        try {
-            List<CommitInfo> commitList = gitService.getRecentCommits(50);
-            Platform.runLater(() -> {
-                commits.clear();
-                commits.addAll(commitList);
-                commitsCountLabel.setText(commitList.size() + " commit" + (commitList.size() != 1 ? "s" : ""));
-            });
-        } catch (Exception e) {
-            showError("Failed to refresh commits: " + e.getMessage());
+        refreshAheadBehind();
+        updateCacheStatistics();
+        if (isSearchingCommits()) {
+            return;
+        }
+        if (commits.isEmpty()) {
+            reloadCommits();
+            return;
         }
+
+        int generation = historyGeneration;
+        String knownHead = commits.get(0).getCommitId();
+        handleResult(asyncGit.getCommitsSince(knownHead, COMMIT_PAGE_SIZE), newCommits -> {
+            if (generation != historyGeneration) {
+                return;
+            }
+            if (newCommits == null) {
+                reloadCommits();
+            } else if (!newCommits.isEmpty()) {
+                commits.addAll(0, newCommits);
+                updateCommitsCount();
+            }
+        }, "Failed to refresh commits");
+    }
+
+    /**
+     * Drop the loaded history and load the first page of HEAD
+     */
+    private void reloadCommits() {
+        commitSearchField.clear();
+        int generation = ++historyGeneration;
+        loadingCommits = true;
+        historyExhausted = false;
+        handleResult(asyncGit.getCommitPage(null, COMMIT_PAGE_SIZE), page -> {
+            if (generation != historyGeneration) {
+                return;
+            }
+            loadingCommits = false;
+            historyExhausted = page.size() < COMMIT_PAGE_SIZE;
+            COMMIT_PATCHER.patch(commits, page);
+            updateCommitsCount();
+        }, "Failed to load commits", () -> loadingCommits = false);
+    }
+
+    /**
+     * Append the next page of history, if any
+     */
+    private void loadMoreCommits() {
+        if (loadingCommits || historyExhausted || commits.isEmpty()) {
+            return;
+        }
+
+        int generation = historyGeneration;
+        loadingCommits = true;
+        String cursor = commits.get(commits.size() - 1).getCommitId();
+        handleResult(asyncGit.getCommitPage(cursor, COMMIT_PAGE_SIZE), page -> {
+            if (generation != historyGeneration) {
+                return;
+            }
+            loadingCommits = false;
+            historyExhausted = page.size() < COMMIT_PAGE_SIZE;
+            commits.addAll(page);
+            updateCommitsCount();
+        }, "Failed to load more commits", () -> loadingCommits = false);
+    }
+
+    @FXML
+    private void onSearchCommits() {
+        String query = commitSearchField.getText();
+        if (query == null || query.isBlank()) {
+            reloadCommits();
+            return;
+        }
+
+        // Search results replace the paged history until the search is cleared
+        int generation = ++historyGeneration;
+        historyExhausted = true;
+        handleResult(asyncGit.searchCommits(query, COMMIT_SEARCH_LIMIT), matches -> {
+            if (generation != historyGeneration) {
+                return;
+            }
+            COMMIT_PATCHER.patch(commits, matches);
+            commitsCountLabel.setText(matches.size() + " match" + (matches.size() != 1 ? "es" : ""));
+        }, "Failed to search commits");
+    }
+
+    private boolean isSearchingCommits() {
+        String query = commitSearchField.getText();
+        return query != null && !query.isBlank();
+    }
+
+    private void updateCommitsCount() {
+        int count = commits.size();
+        commitsCountLabel.setText(count + (historyExhausted ? "" : "+") + " commit" + (count != 1 ? "s" : ""));
     }
 
     @FXML
@@ -275,42 +695,30 @@ public class MainController {
         logToConsole("Refreshing repository status...");
         refreshChanges();
         refreshCommits();
-        try {
-            String currentBranch = gitService.getCurrentBranch();
-            branchComboBox.setValue(currentBranch);
+        handleResult(asyncGit.getCurrentBranch(), currentBranch -> {
             currentBranchInfoLabel.setText(currentBranch);
-        } catch (IOException e) {
-            showError("Failed to refresh branch: " + e.getMessage());
-        }
-        logToConsole("Refresh complete");
+            branchComboBox.setValue(currentBranch);
+            logToConsole("Refresh complete");
+        }, "Failed to refresh branch");
     }
 
     @FXML
     private void onStageAll() {
-        try {
-            gitService.stageAll();
+        handleResult(asyncGit.stageAll(), result -> {
             logToConsole("All changes staged");
             refreshChanges();
-        } catch (Exception e) {
-            showError("Failed to stage all: " + e.getMessage());
-        }
+        }, "Failed to stage all");
     }
 
     @FXML
     private void onUnstageAll() {
-        try {
-            List<String> stagedFiles = fileChanges.stream()
-                    .filter(FileChange::isStaged)
-                    .map(FileChange::getFilePath)
-                    .collect(Collectors.toList());
-            
-            if (!stagedFiles.isEmpty()) {
-                gitService.unstageFiles(stagedFiles);
+        List<String> stagedFiles = fileChanges.getStagedPaths();
+
+        if (!stagedFiles.isEmpty()) {
+            handleResult(asyncGit.unstageFiles(stagedFiles), result -> {
                 logToConsole("All changes unstaged");
-                refreshChanges();
-            }
-        } catch (Exception e) {
-            showError("Failed to unstage all: " + e.getMessage());
+                refreshChanges(stagedFiles);
+            }, "Failed to unstage all");
         }
     }
 
@@ -331,118 +739,125 @@ public class MainController {
 
     @FXML
     private void onCommit() {
+        commit(false);
+    }
+
+    @FXML
+    private void onCommitAndPush() {
+        commit(true);
+    }
+
+    /**
+     * Commit the staged changes, optionally pushing once the commit is written
+     */
+    private void commit(boolean push) {
         String message = commitMessageArea.getText();
         if (message == null || message.trim().isEmpty()) {
             showError("Please enter a commit message");
             return;
         }
 
-        try {
-            String commitId = gitService.commit(message, credentials.getUsername(), 
-                    credentials.getUsername() + "@git.local");
+        List<String> stagedFiles = fileChanges.getStagedPaths();
+        CompletableFuture<String> commit = asyncGit.commit(message, credentials.getUsername(),
+                credentials.getUsername() + "@git.local");
+        handleResult(commit, commitId -> {
             logToConsole("Committed: " + commitId.substring(0, 7));
             commitMessageArea.clear();
-            refreshChanges();
+            refreshChanges(stagedFiles);
             refreshCommits();
+            updateCommitGraph();
             updateStatusMessage("Changes committed successfully", false);
-        } catch (Exception e) {
-            showError("Failed to commit: " + e.getMessage());
-        }
-    }
-
-    @FXML
-    private void onCommitAndPush() {
-        onCommit();
-        
-        // Wait a bit for commit to complete, then push
-        new Thread(() -> {
-            try {
-                Thread.sleep(500);
-                Platform.runLater(this::onPush);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            if (push) {
+                updateStatusMessage("Pushing to remote...", true);
+                logToConsole("Pushing changes to remote repository...");
             }
-        }).start();
+        }, "Failed to commit");
+
+        if (push) {
+            // Pipeline: the push only starts once the commit is written. A failed
+            // commit is already reported above, so the push is just cancelled.
+            CompletableFuture<Iterable<PushResult>> pushed = commit
+                    .handle((commitId, error) -> error == null
+                            ? asyncGit.push()
+                            : CompletableFuture.<Iterable<PushResult>>failedFuture(new CancellationException()))
+                    .thenCompose(operation -> operation);
+            handleResult(pushed, result -> {
+                logToConsole("Push completed successfully");
+                refreshAheadBehind();
+                updateStatusMessage("Push completed", false);
+            }, "Failed to push");
+        }
     }
 
     @FXML
     private void onPush() {
         updateStatusMessage("Pushing to remote...", true);
         logToConsole("Pushing changes to remote repository...");
-        
-        new Thread(() -> {
-            try {
-                gitService.push();
-                Platform.runLater(() -> {
-                    logToConsole("Push completed successfully");
-                    updateStatusMessage("Push completed", false);
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> 
-                    showError("Failed to push: " + e.getMessage())
-                );
-            }
-        }).start();
+
+        handleResult(asyncGit.push(), result -> {
+            logToConsole("Push completed successfully");
+            refreshAheadBehind();
+            updateStatusMessage("Push completed", false);
+        }, "Failed to push");
     }
 
     @FXML
     private void onPull() {
         updateStatusMessage("Pulling from remote...", true);
         logToConsole("Pulling changes from remote repository...");
-        
-        new Thread(() -> {
-            try {
-                gitService.pull();
-                Platform.runLater(() -> {
-                    logToConsole("Pull completed successfully");
-                    updateStatusMessage("Pull completed", false);
-                    refreshChanges();
-                    refreshCommits();
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> 
-                    showError("Failed to pull: " + e.getMessage())
-                );
-            }
-        }).start();
+
+        handleResult(asyncGit.pull(), result -> {
+            logToConsole("Pull completed successfully");
+            updateStatusMessage("Pull completed", false);
+            refreshChanges();
+            refreshCommits();
+            updateCommitGraph();
+        }, "Failed to pull");
     }
 
     @FXML
     private void onFetch() {
         updateStatusMessage("Fetching from remote...", true);
         logToConsole("Fetching changes from remote repository...");
-        
-        new Thread(() -> {
-            try {
-                gitService.fetch();
-                Platform.runLater(() -> {
-                    logToConsole("Fetch completed successfully");
-                    updateStatusMessage("Fetch completed", false);
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> 
-                    showError("Failed to fetch: " + e.getMessage())
-                );
+
+        handleResult(asyncGit.fetch(), result -> {
+            logToConsole("Fetch completed successfully");
+            updateStatusMessage("Fetch completed", false);
+            refreshAheadBehind();
+            updateCommitGraph();
+        }, "Failed to fetch");
+    }
+
+    /**
+     * Rewrite the commit graph in the background when new commits arrived,
+     * after open, commit, pull and fetch. Cheap when the graph still covers
+     * every ref. This is maintenance only, so failures go to the console,
+     * not a dialog.
+     */
+    private void updateCommitGraph() {
+        asyncGit.updateCommitGraph().whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (!(cause instanceof CancellationException)) {
+                    logToConsole("Commit graph update failed: " + cause.getMessage());
+                }
+            } else if (result != null) {
+                logToConsole(result.toString());
             }
-        }).start();
+        }, uiDispatcher);
     }
 
     @FXML
     private void onBranchChanged() {
         String selectedBranch = branchComboBox.getValue();
-        if (selectedBranch != null) {
-            try {
-                String currentBranch = gitService.getCurrentBranch();
-                if (!selectedBranch.equals(currentBranch)) {
-                    gitService.checkoutBranch(selectedBranch);
-                    logToConsole("Switched to branch: " + selectedBranch);
-                    currentBranchInfoLabel.setText(selectedBranch);
-                    refreshChanges();
-                    refreshCommits();
-                }
-            } catch (Exception e) {
-                showError("Failed to checkout branch: " + e.getMessage());
-            }
+        if (selectedBranch != null && !selectedBranch.equals(currentBranchInfoLabel.getText())) {
+            handleResult(asyncGit.checkoutBranch(selectedBranch), result -> {
+                logToConsole("Switched to branch: " + selectedBranch);
+                currentBranchInfoLabel.setText(selectedBranch);
+                refreshChanges();
+                reloadCommits();
+            }, "Failed to checkout branch");
         }
     }
 
@@ -455,20 +870,18 @@ public class MainController {
         
         Optional<String> result = dialog.showAndWait();
         result.ifPresent(branchName -> {
-            try {
-                gitService.createBranch(branchName);
-                gitService.checkoutBranch(branchName);
+            CompletableFuture<List<String>> operation = asyncGit.createBranch(branchName)
+                    .thenCompose(created -> asyncGit.checkoutBranch(branchName))
+                    .thenCompose(checkedOut -> asyncGit.getBranches());
+            handleResult(operation, branches -> {
                 logToConsole("Created and switched to new branch: " + branchName);
-                
+
                 // Refresh branches
-                List<String> branches = gitService.getBranches();
+                currentBranchInfoLabel.setText(branchName);
                 branchComboBox.setItems(FXCollections.observableArrayList(branches));
                 branchComboBox.setValue(branchName);
                 branchesListView.setItems(FXCollections.observableArrayList(branches));
-                currentBranchInfoLabel.setText(branchName);
-            } catch (Exception e) {
-                showError("Failed to create branch: " + e.getMessage());
-            }
+            }, "Failed to create branch");
         });
     }
 
@@ -491,25 +904,161 @@ public class MainController {
 
     @FXML
     private void onClearConsole() {
-        consoleArea.clear();
+        consoleLines.clear();
+    }
+
+    private void updatePerformance() {
+        performanceListView.getItems().setAll(metrics.getSnapshot());
+        performanceSummaryLabel.setText("Since " + CONSOLE_TIME_FORMAT.format(
+                LocalTime.ofInstant(metrics.getSince(), ZoneId.systemDefault())) + " · " + uiDispatcher);
+    }
+
+    @FXML
+    private void onResetMetrics() {
+        metrics.reset();
+        updatePerformance();
     }
 
     /**
-     * Log message to console
+     * Save the operation timings, e.g. to attach them to a bug report
+     */
+    @FXML
+    private void onExportMetrics() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Operation Metrics");
+        fileChooser.setInitialFileName("gitppm-metrics.json");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON files", "*.json"));
+
+        File file = fileChooser.showSaveDialog(performanceListView.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        try {
+            metrics.writeJson(file.toPath());
+            logToConsole("Operation metrics written to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            showError("Failed to write metrics: " + e.getMessage());
+        }
+    }
+
+    @FXML
+    private void onAddWorkspaceRepositories() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select a Repository or a Folder of Repositories");
+
+        File selectedDirectory = directoryChooser.showDialog(workspaceListView.getScene().getWindow());
+        if (selectedDirectory == null) {
+            return;
+        }
+        try {
+            List<Path> found = Workspace.findRepositories(selectedDirectory.toPath());
+            if (found.isEmpty()) {
+                showError("No Git repositories found in " + selectedDirectory.getAbsolutePath());
+                return;
+            }
+            for (Path path : found) {
+                workspace.addRepository(path);
+            }
+            workspaceRepositories.setAll(workspace.getRepositories());
+            updateWorkspaceCount();
+            logToConsole("Workspace: added " + found.size() + " repositor" + (found.size() != 1 ? "ies" : "y")
+                    + " from " + selectedDirectory.getAbsolutePath());
+        } catch (IOException e) {
+            showError("Failed to scan folder: " + e.getMessage());
+        }
+    }
+
+    @FXML
+    private void onRefreshWorkspace() {
+        workspace.refreshAll();
+    }
+
+    @FXML
+    private void onFetchAllWorkspace() {
+        syncWorkspace(WorkspaceSync.Mode.FETCH);
+    }
+
+    @FXML
+    private void onPullAllWorkspace() {
+        syncWorkspace(WorkspaceSync.Mode.PULL);
+    }
+
+    /**
+     * Fetch or pull every workspace repository concurrently and log one
+     * line per repository plus a summary with wall clock and summed times
+     */
+    private void syncWorkspace(WorkspaceSync.Mode mode) {
+        if (pendingWorkspaceSync != null && !pendingWorkspaceSync.isDone()) {
+            logToConsole("Workspace sync already running");
+            return;
+        }
+        updateStatusMessage(mode + " running...", true);
+        logToConsole(mode + ": syncing " + workspaceRepositories.size() + " repositories...");
+
+        pendingWorkspaceSync = new WorkspaceSync(workspace).syncAll(mode, entry -> logToConsole("  " + entry));
+        handleResult(pendingWorkspaceSync, report -> {
+            logToConsole(report.toString());
+            updateStatusMessage(report.toString(), false);
+            List<SyncReport.Entry> failures = report.getFailures();
+            if (!failures.isEmpty()) {
+                showError(mode + " failed for " + failures.size() + " repositor"
+                        + (failures.size() != 1 ? "ies" : "y") + ":\n" + failures.stream()
+                        .map(entry -> entry.getRepositoryName() + ": " + entry.getError())
+                        .collect(Collectors.joining("\n")));
+            }
+            if (mode == WorkspaceSync.Mode.PULL) {
+                refreshChanges();
+                refreshCommits();
+            } else {
+                refreshAheadBehind();
+            }
+            updateCommitGraph();
+        }, "Workspace sync failed");
+    }
+
+    /**
+     * Log message to console. Safe to call from any thread; messages logged
+     * within one frame are appended in one batch.
      */
     private void logToConsole(String message) {
-        Platform.runLater(() -> {
-            SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss");
-            String timestamp = sdf.format(new Date());
-            consoleArea.appendText("[" + timestamp + "] " + message + "\n");
-        });
+        String timestamp = CONSOLE_TIME_FORMAT.format(LocalTime.now());
+        uiDispatcher.postBatch(consoleLines, "[" + timestamp + "] " + message, this::appendToConsole);
+    }
+
+    private void appendToConsole(List<String> lines) {
+        consoleLines.appendAll(lines);
+        consoleListView.scrollTo(consoleLines.size() - 1);
+    }
+
+    /**
+     * Handle the result of an asynchronous Git operation on the JavaFX thread.
+     * Cancelled operations are ignored; failures are reported with showError.
+     */
+    private <T> void handleResult(CompletableFuture<T> operation, Consumer<T> onSuccess, String failureMessage) {
+        handleResult(operation, onSuccess, failureMessage, () -> { });
+    }
+
+    private <T> void handleResult(CompletableFuture<T> operation, Consumer<T> onSuccess, String failureMessage,
+                                  Runnable onFailure) {
+        operation.whenCompleteAsync((result, error) -> {
+            if (error == null) {
+                onSuccess.accept(result);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (!(cause instanceof CancellationException)) {
+                onFailure.run();
+                showError(failureMessage + ": " + cause.getMessage());
+            }
+        }, uiDispatcher);
     }
 
     /**
-     * Update status message
+     * Update status message. Only the last message of a frame is shown.
      */
     private void updateStatusMessage(String message, boolean isLoading) {
-        Platform.runLater(() -> {
+        uiDispatcher.postLatest(statusMessageLabel, () -> {
             statusMessageLabel.setText((isLoading ? "⟳ " : "● ") + message);
             statusMessageLabel.setStyle(isLoading ? 
                     "-fx-text-fill: #2196F3;" : "-fx-text-fill: #4CAF50;");
@@ -517,19 +1066,25 @@ public class MainController {
     }
 
     /**
-     * Show error message
+     * Show error message. Errors raised within one frame share one dialog.
      */
     private void showError(String message) {
+        logToConsole("ERROR: " + message);
+        uiDispatcher.postLatest(statusMessageLabel, () -> {
+            statusMessageLabel.setText("● " + message);
+            statusMessageLabel.setStyle("-fx-text-fill: #F44336;");
+        });
+        uiDispatcher.postBatch(Alert.AlertType.ERROR, message, this::showErrorDialog);
+    }
+
+    private void showErrorDialog(List<String> messages) {
+        // showAndWait is not allowed while the dispatcher drains in a pulse
         Platform.runLater(() -> {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle("Error");
             alert.setHeaderText(null);
-            alert.setContentText(message);
+            alert.setContentText(String.join("\n", messages));
             alert.showAndWait();
-            
-            logToConsole("ERROR: " + message);
-            statusMessageLabel.setText("● " + message);
-            statusMessageLabel.setStyle("-fx-text-fill: #F44336;");
         });
     }
 
@@ -537,11 +1092,28 @@ public class MainController {
      * Cleanup when closing
      */
     public void cleanup() {
+        performanceRefresh.stop();
+        if (METRICS_FILE != null) {
+            try {
+                metrics.writeJson(Paths.get(METRICS_FILE));
+            } catch (IOException e) {
+                System.err.println("Failed to write metrics to " + METRICS_FILE + ": " + e.getMessage());
+            }
+        }
+        if (pendingWorkspaceSync != null) {
+            pendingWorkspaceSync.cancel(true);
+        }
+        if (syncScheduler != null) {
+            syncScheduler.shutdown();
+        }
         if (fileWatcherService != null) {
             fileWatcherService.shutdown();
         }
         if (gitService != null) {
             gitService.close();
         }
+        if (workspace != null) {
+            workspace.close();
+        }
     }
 }
@@ -0,0 +1,59 @@
+package com.ppm.gitppm.model;
+
+public class AheadBehind {
+    private final String branch;
+    private final String upstream;
+    private final int ahead;
+    private final int behind;
+    private final boolean truncated;
+
+    public AheadBehind(String branch, String upstream, int ahead, int behind, boolean truncated) {
+        this.branch = branch;
+        this.upstream = upstream;
+        this.ahead = ahead;
+        this.behind = behind;
+        this.truncated = truncated;
+    }
+
+    public String getBranch() {
+        return branch;
+    }
+
+    /**
+     * Full name of the remote-tracking ref, e.g. refs/remotes/origin/main
+     */
+    public String getUpstream() {
+        return upstream;
+    }
+
+    /**
+     * Commits on the branch that are not on its upstream
+     */
+    public int getAhead() {
+        return ahead;
+    }
+
+    /**
+     * Commits on the upstream that are not on the branch
+     */
+    public int getBehind() {
+        return behind;
+    }
+
+    /**
+     * True when counting stopped at the walk limit, so the counts are lower bounds
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public boolean isInSync() {
+        return ahead == 0 && behind == 0;
+    }
+
+    @Override
+    public String toString() {
+        String suffix = truncated ? "+" : "";
+        return String.format("↑%d%s ↓%d%s", ahead, suffix, behind, suffix);
+    }
+}
@@ -0,0 +1,99 @@
+package com.ppm.gitppm.model;
+
+/**
+ * Snapshot of the repository registry and JGit pack cache counters
+ */
+public class CacheStatistics {
+    private final int openRepositories;
+    private final long repositoryHits;
+    private final long repositoryMisses;
+    private final long repositoryEvictions;
+    private final long windowHits;
+    private final long windowMisses;
+    private final long windowEvictions;
+    private final long openPackBytes;
+    private final long openPackFiles;
+
+    public CacheStatistics(int openRepositories, long repositoryHits, long repositoryMisses,
+                           long repositoryEvictions, long windowHits, long windowMisses,
+                           long windowEvictions, long openPackBytes, long openPackFiles) {
+        this.openRepositories = openRepositories;
+        this.repositoryHits = repositoryHits;
+        this.repositoryMisses = repositoryMisses;
+        this.repositoryEvictions = repositoryEvictions;
+        this.windowHits = windowHits;
+        this.windowMisses = windowMisses;
+        this.windowEvictions = windowEvictions;
+        this.openPackBytes = openPackBytes;
+        this.openPackFiles = openPackFiles;
+    }
+
+    /**
+     * Repositories currently kept open by the registry
+     */
+    public int getOpenRepositories() {
+        return openRepositories;
+    }
+
+    public long getRepositoryHits() {
+        return repositoryHits;
+    }
+
+    public long getRepositoryMisses() {
+        return repositoryMisses;
+    }
+
+    public long getRepositoryEvictions() {
+        return repositoryEvictions;
+    }
+
+    /**
+     * Share of opens served by an already open repository
+     */
+    public double getRepositoryHitRatio() {
+        return ratio(repositoryHits, repositoryMisses);
+    }
+
+    public long getWindowHits() {
+        return windowHits;
+    }
+
+    public long getWindowMisses() {
+        return windowMisses;
+    }
+
+    public long getWindowEvictions() {
+        return windowEvictions;
+    }
+
+    /**
+     * Share of pack reads served from a cached window
+     */
+    public double getWindowHitRatio() {
+        return ratio(windowHits, windowMisses);
+    }
+
+    /**
+     * Bytes of pack data currently held in the window cache
+     */
+    public long getOpenPackBytes() {
+        return openPackBytes;
+    }
+
+    public long getOpenPackFiles() {
+        return openPackFiles;
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Repositories: %d open, %.0f%% hits (%d evicted) | Pack cache: %.1f%% hits, "
+                        + "%d evictions, %.1f MB in %d files", openRepositories, getRepositoryHitRatio() * 100,
+                repositoryEvictions, getWindowHitRatio() * 100, windowEvictions,
+                openPackBytes / (1024.0 * 1024.0), openPackFiles);
+    }
+}
@@ -0,0 +1,65 @@
+package com.ppm.gitppm.model;
+
+public class CloneOptions {
+    private int depth;
+    private String branch;
+    private boolean singleBranch;
+    private boolean noCheckout;
+
+    public CloneOptions() {
+    }
+
+    /**
+     * Number of commits to fetch per branch, or 0 for the full history
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Branch to check out, or null for the remote's default branch
+     */
+    public String getBranch() {
+        return branch;
+    }
+
+    public void setBranch(String branch) {
+        this.branch = branch;
+    }
+
+    /**
+     * Fetch only the checked out branch instead of all branches
+     */
+    public boolean isSingleBranch() {
+        return singleBranch;
+    }
+
+    public void setSingleBranch(boolean singleBranch) {
+        this.singleBranch = singleBranch;
+    }
+
+    /**
+     * Fetch objects and refs without populating the working tree
+     */
+    public boolean isNoCheckout() {
+        return noCheckout;
+    }
+
+    public void setNoCheckout(boolean noCheckout) {
+        this.noCheckout = noCheckout;
+    }
+
+    public boolean isShallow() {
+        return depth > 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth=%s, branch=%s, singleBranch=%s, noCheckout=%s",
+                depth > 0 ? depth : "full", branch != null ? branch : "default", singleBranch, noCheckout);
+    }
+}
@@ -0,0 +1,59 @@
+package com.ppm.gitppm.model;
+
+public class CloneProgress {
+    private final String task;
+    private final int completed;
+    private final int total;
+    private final long bytesReceived;
+
+    public CloneProgress(String task, int completed, int total, long bytesReceived) {
+        this.task = task;
+        this.completed = completed;
+        this.total = total;
+        this.bytesReceived = bytesReceived;
+    }
+
+    /**
+     * Current phase as reported by Git, e.g. "Receiving objects"
+     * or "Resolving deltas"
+     */
+    public String getTask() {
+        return task;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Amount of work in the current phase, or 0 when unknown
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Size of the pack data written to disk so far
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Fraction of the current phase that is done, or -1 when unknown
+     */
+    public double getFraction() {
+        return total > 0 ? Math.min(1.0, (double) completed / total) : -1;
+    }
+
+    @Override
+    public String toString() {
+        String text = total > 0
+                ? String.format("%s: %d%% (%d/%d)", task, completed * 100L / total, completed, total)
+                : String.format("%s: %d", task, completed);
+        if (bytesReceived > 0) {
+            text += String.format(", %.1f MiB", bytesReceived / (1024.0 * 1024.0));
+        }
+        return text;
+    }
+}
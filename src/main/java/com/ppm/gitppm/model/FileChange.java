@@ -1,5 +1,7 @@
 package com.ppm.gitppm.model;
 
+import java.util.Objects;
+
 public class FileChange {
     private String filePath;
     private ChangeType changeType;
@@ -60,6 +62,25 @@ public class FileChange {
         this.staged = staged;
     }
 
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FileChange)) {
+            return false;
+        }
+        FileChange change = (FileChange) other;
+        return staged == change.staged
+                && changeType == change.changeType
+                && Objects.equals(filePath, change.filePath);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(filePath, changeType, staged);
+    }
+
     @Override
     public String toString() {
         return String.format("[%s] %s %s", 
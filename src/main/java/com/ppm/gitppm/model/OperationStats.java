@@ -0,0 +1,96 @@
+package com.ppm.gitppm.model;
+
+/**
+ * Snapshot of the timings recorded for one kind of Git operation.
+ * Durations are in microseconds.
+ */
+public class OperationStats {
+    private final String name;
+    private final long count;
+    private final long errors;
+    private final long bytes;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+
+    public OperationStats(String name, long count, long errors, long bytes, long meanMicros,
+                          long p50Micros, long p90Micros, long p99Micros, long maxMicros) {
+        this.name = name;
+        this.count = count;
+        this.errors = errors;
+        this.bytes = bytes;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of calls, including failed ones
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Pack bytes received, for operations that transfer objects
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP90Micros() {
+        return p90Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format("%s · %d call%s", name, count, count != 1 ? "s" : ""));
+        if (errors > 0) {
+            text.append(String.format(", %d failed", errors));
+        }
+        text.append(String.format(" · p50 %s · p99 %s · max %s",
+                formatMicros(p50Micros), formatMicros(p99Micros), formatMicros(maxMicros)));
+        if (bytes > 0) {
+            text.append(String.format(" · %.1f MB received", bytes / (1024.0 * 1024.0)));
+        }
+        return text.toString();
+    }
+
+    private static String formatMicros(long micros) {
+        if (micros < 1000) {
+            return micros + " µs";
+        }
+        if (micros < 10_000_000) {
+            return String.format("%.1f ms", micros / 1000.0);
+        }
+        return String.format("%.1f s", micros / 1_000_000.0);
+    }
+}
@@ -0,0 +1,88 @@
+package com.ppm.gitppm.model;
+
+public class RepositorySummary {
+    private final String branch;
+    private final int dirtyCount;
+    private final AheadBehind aheadBehind;
+    private final String error;
+
+    public RepositorySummary(String branch, int dirtyCount, AheadBehind aheadBehind, String error) {
+        this.branch = branch;
+        this.dirtyCount = dirtyCount;
+        this.aheadBehind = aheadBehind;
+        this.error = error;
+    }
+
+    /**
+     * Summary of a repository that has not been loaded yet
+     */
+    public static RepositorySummary unknown() {
+        return new RepositorySummary(null, -1, null, null);
+    }
+
+    public static RepositorySummary failed(String error) {
+        return new RepositorySummary(null, -1, null, error);
+    }
+
+    /**
+     * Current branch, or null while unknown
+     */
+    public String getBranch() {
+        return branch;
+    }
+
+    /**
+     * Number of changed files, or -1 while unknown
+     */
+    public int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    /**
+     * Ahead/behind counts, or null without upstream or while unknown
+     */
+    public AheadBehind getAheadBehind() {
+        return aheadBehind;
+    }
+
+    /**
+     * Message of the last failed refresh, or null
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isLoaded() {
+        return branch != null;
+    }
+
+    public RepositorySummary withBranch(String branch) {
+        return new RepositorySummary(branch, dirtyCount, aheadBehind, null);
+    }
+
+    public RepositorySummary withDirtyCount(int dirtyCount) {
+        return new RepositorySummary(branch, dirtyCount, aheadBehind, null);
+    }
+
+    public RepositorySummary withAheadBehind(AheadBehind aheadBehind) {
+        return new RepositorySummary(branch, dirtyCount, aheadBehind, null);
+    }
+
+    @Override
+    public String toString() {
+        if (error != null) {
+            return "Error: " + error;
+        }
+        if (!isLoaded()) {
+            return "Loading...";
+        }
+        StringBuilder text = new StringBuilder(branch);
+        if (dirtyCount >= 0) {
+            text.append(" · ").append(dirtyCount == 0 ? "clean" : dirtyCount + " changed");
+        }
+        if (aheadBehind != null) {
+            text.append(" · ").append(aheadBehind);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package com.ppm.gitppm.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of fetching or pulling every repository of a workspace
+ */
+public class SyncReport {
+    private final String operation;
+    private final List<Entry> entries;
+    private final long wallMillis;
+
+    /**
+     * Outcome for one repository
+     */
+    public static class Entry {
+        private final String repositoryName;
+        private final String host;
+        private final long millis;
+        private final String error;
+
+        public Entry(String repositoryName, String host, long millis, String error) {
+            this.repositoryName = repositoryName;
+            this.host = host;
+            this.millis = millis;
+            this.error = error;
+        }
+
+        public String getRepositoryName() {
+            return repositoryName;
+        }
+
+        /**
+         * Remote host(s) the repository talked to, "local" for file remotes
+         */
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Time spent on the transfer itself, excluding time queued
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * Failure message, or null on success
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%s): %s in %d ms", repositoryName, host,
+                    error == null ? "ok" : "failed: " + error, millis);
+        }
+    }
+
+    public SyncReport(String operation, List<Entry> entries, long wallMillis) {
+        this.operation = operation;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        this.wallMillis = wallMillis;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public List<Entry> getFailures() {
+        return entries.stream().filter(entry -> !entry.isSuccessful()).collect(Collectors.toList());
+    }
+
+    /**
+     * Elapsed time from start to the last repository finishing
+     */
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    /**
+     * Sum of the individual transfer times, i.e. the time a sequential
+     * run would have taken
+     */
+    public long getTotalMillis() {
+        return entries.stream().mapToLong(Entry::getMillis).sum();
+    }
+
+    /**
+     * How much faster the concurrent run was than a sequential one
+     */
+    public double getSpeedup() {
+        return wallMillis > 0 ? (double) getTotalMillis() / wallMillis : 1.0;
+    }
+
+    @Override
+    public String toString() {
+        int failed = getFailures().size();
+        return String.format("%s: %d repositor%s in %d ms wall clock (%d ms summed, %.1fx)%s",
+                operation, entries.size(), entries.size() != 1 ? "ies" : "y", wallMillis,
+                getTotalMillis(), getSpeedup(), failed > 0 ? ", " + failed + " failed" : "");
+    }
+}
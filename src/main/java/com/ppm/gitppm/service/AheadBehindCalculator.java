@@ -0,0 +1,122 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.AheadBehind;
+import org.eclipse.jgit.lib.BranchConfig;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Counts how far a branch and its upstream have diverged.
+ * The merge base is found first, and each side is then walked only down
+ * to it, stopping after a fixed number of commits. The merge-base walk
+ * itself is not limited: stopping it early would yield a wrong base and
+ * wrong counts rather than a lower bound, and with the commit graph it
+ * only reads parents and commit times. The last result is
+ * kept together with the two tips it was computed for, so polling an
+ * unchanged branch and remote only costs two ref lookups.
+ */
+public class AheadBehindCalculator {
+    private static final int DEFAULT_WALK_LIMIT = 10_000;
+
+    private final Repository repository;
+    private final int walkLimit;
+    private ObjectId cachedLocal;
+    private ObjectId cachedUpstream;
+    private AheadBehind cachedResult;
+
+    public AheadBehindCalculator(Repository repository) {
+        this(repository, Integer.getInteger("gitppm.aheadBehind.limit", DEFAULT_WALK_LIMIT));
+    }
+
+    public AheadBehindCalculator(Repository repository, int walkLimit) {
+        this.repository = repository;
+        this.walkLimit = walkLimit;
+    }
+
+    /**
+     * Get ahead/behind counts of the current branch against its upstream,
+     * or null when HEAD is detached or the branch tracks nothing
+     */
+    public synchronized AheadBehind compute() throws IOException {
+        String branch = repository.getBranch();
+        if (branch == null || ObjectId.isId(branch)) {
+            return null;
+        }
+
+        String upstreamName = new BranchConfig(repository.getConfig(), branch).getRemoteTrackingBranch();
+        if (upstreamName == null) {
+            return null;
+        }
+        Ref localRef = repository.exactRef(Constants.R_HEADS + branch);
+        Ref upstreamRef = repository.exactRef(upstreamName);
+        if (localRef == null || upstreamRef == null
+                || localRef.getObjectId() == null || upstreamRef.getObjectId() == null) {
+            return null;
+        }
+
+        ObjectId local = localRef.getObjectId();
+        ObjectId upstream = upstreamRef.getObjectId();
+        if (cachedResult != null && cachedResult.getBranch().equals(branch)
+                && Objects.equals(local, cachedLocal) && Objects.equals(upstream, cachedUpstream)) {
+            return cachedResult;
+        }
+
+        AheadBehind result = count(branch, upstreamName, local, upstream);
+        cachedLocal = local;
+        cachedUpstream = upstream;
+        cachedResult = result;
+        return result;
+    }
+
+    private AheadBehind count(String branch, String upstreamName, ObjectId local, ObjectId upstream)
+            throws IOException {
+        if (local.equals(upstream)) {
+            return new AheadBehind(branch, upstreamName, 0, 0, false);
+        }
+
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            RevCommit localCommit = walk.parseCommit(local);
+            RevCommit upstreamCommit = walk.parseCommit(upstream);
+
+            walk.setRevFilter(RevFilter.MERGE_BASE);
+            walk.markStart(localCommit);
+            walk.markStart(upstreamCommit);
+            RevCommit base = walk.next();
+
+            int[] ahead = countUntil(walk, localCommit, base);
+            int[] behind = countUntil(walk, upstreamCommit, base);
+            return new AheadBehind(branch, upstreamName, ahead[0], behind[0],
+                    ahead[1] != 0 || behind[1] != 0);
+        }
+    }
+
+    /**
+     * Count commits reachable from tip but not from base, up to the walk
+     * limit. Returns {count, truncated ? 1 : 0}.
+     */
+    private int[] countUntil(RevWalk walk, RevCommit tip, RevCommit base) throws IOException {
+        walk.reset();
+        walk.setRevFilter(RevFilter.ALL);
+        walk.markStart(tip);
+        if (base != null) {
+            walk.markUninteresting(base);
+        }
+        int count = 0;
+        while (walk.next() != null) {
+            if (count == walkLimit) {
+                return new int[] {count, 1};
+            }
+            count++;
+        }
+        return new int[] {count, 0};
+    }
+}
@@ -0,0 +1,169 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.AheadBehind;
+import com.ppm.gitppm.model.CloneOptions;
+import com.ppm.gitppm.model.CloneProgress;
+import com.ppm.gitppm.model.CommitInfo;
+import com.ppm.gitppm.model.FileChange;
+import com.ppm.gitppm.model.GitCredentials;
+import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.transport.PushResult;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous facade over GitService. Every call is scheduled on the
+ * service's GitTaskExecutor and completes on a worker thread; use
+ * GitTaskExecutor.FX_THREAD to continue on the JavaFX thread.
+ */
+public class AsyncGitService {
+    private final GitService gitService;
+    private final GitTaskExecutor executor;
+
+    public AsyncGitService(GitService gitService) {
+        this.gitService = gitService;
+        this.executor = gitService.getTaskExecutor();
+    }
+
+    public GitService getGitService() {
+        return gitService;
+    }
+
+    /**
+     * Clone in the background. Progress snapshots are delivered on the
+     * cloning thread. Cancelling the returned future stops the transfer
+     * and removes the partial clone.
+     */
+    public CompletableFuture<Void> cloneRepository(String remoteUrl, String localPath, GitCredentials credentials,
+                                                   CloneOptions options, Consumer<CloneProgress> progress) {
+        CloneProgressMonitor monitor = new CloneProgressMonitor(new File(localPath), progress);
+        CompletableFuture<Void> clone = executor.submitTransfer(() -> {
+            gitService.cloneRepository(remoteUrl, localPath, credentials, options, monitor);
+            return null;
+        });
+        clone.whenComplete((result, error) -> {
+            if (clone.isCancelled()) {
+                monitor.cancel();
+            }
+        });
+        return clone;
+    }
+
+    public CompletableFuture<List<FileChange>> getStatus() {
+        return executor.submitStatus(gitService::getStatus);
+    }
+
+    public CompletableFuture<List<FileChange>> getStatus(Collection<String> changedPaths) {
+        List<String> paths = new ArrayList<>(changedPaths);
+        return executor.submitStatus(() -> gitService.getStatus(paths));
+    }
+
+    public CompletableFuture<List<CommitInfo>> getRecentCommits(int count) {
+        return executor.submitRead(() -> gitService.getRecentCommits(count));
+    }
+
+    public CompletableFuture<List<CommitInfo>> getCommitPage(String afterCommitId, int pageSize) {
+        return executor.submitRead(() -> gitService.getCommitPage(afterCommitId, pageSize));
+    }
+
+    public CompletableFuture<List<CommitInfo>> getCommitsSince(String knownHeadId, int maxCount) {
+        return executor.submitRead(() -> gitService.getCommitsSince(knownHeadId, maxCount));
+    }
+
+    public CompletableFuture<List<CommitInfo>> searchCommits(String query, int limit) {
+        return executor.submitRead(() -> gitService.searchCommits(query, limit));
+    }
+
+    /**
+     * Refresh the commit graph in the background. Runs as a writer, so the
+     * refs it covers cannot move while the graph is built and readers never
+     * see the in-memory config change halfway.
+     */
+    public CompletableFuture<CommitGraphMaintenance.Result> updateCommitGraph() {
+        return executor.submitWrite(gitService::updateCommitGraph);
+    }
+
+    public CompletableFuture<AheadBehind> getAheadBehind() {
+        return executor.submitRead(gitService::getAheadBehind);
+    }
+
+    public CompletableFuture<String> getMergeBase(String revision, String otherRevision) {
+        return executor.submitRead(() -> gitService.getMergeBase(revision, otherRevision));
+    }
+
+    public CompletableFuture<String> getCurrentBranch() {
+        return executor.submitRead(gitService::getCurrentBranch);
+    }
+
+    public CompletableFuture<List<String>> getBranches() {
+        return executor.submitRead(gitService::getBranches);
+    }
+
+    public CompletableFuture<Void> stageFiles(List<String> filePaths) {
+        List<String> paths = new ArrayList<>(filePaths);
+        return executor.submitWrite(() -> {
+            gitService.stageFiles(paths);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> stageAll() {
+        return executor.submitWrite(() -> {
+            gitService.stageAll();
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> unstageFiles(List<String> filePaths) {
+        List<String> paths = new ArrayList<>(filePaths);
+        return executor.submitWrite(() -> {
+            gitService.unstageFiles(paths);
+            return null;
+        });
+    }
+
+    public CompletableFuture<String> commit(String message, String authorName, String authorEmail) {
+        return executor.submitWrite(() -> gitService.commit(message, authorName, authorEmail));
+    }
+
+    public CompletableFuture<Void> createBranch(String branchName) {
+        return executor.submitWrite(() -> {
+            gitService.createBranch(branchName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> checkoutBranch(String branchName) {
+        return executor.submitWrite(() -> {
+            gitService.checkoutBranch(branchName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Iterable<PushResult>> push() {
+        return executor.submitTransfer(gitService::push);
+    }
+
+    public CompletableFuture<PullResult> pull() {
+        return executor.submitWrite(gitService::pull);
+    }
+
+    public CompletableFuture<Void> fetch() {
+        return executor.submitTransfer(() -> {
+            gitService.fetch();
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> fetchAll() {
+        return executor.submitTransfer(() -> {
+            gitService.fetchAll();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,166 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.AheadBehind;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically fetches all remotes and recomputes ahead/behind counts of
+ * the current branch. The next run is scheduled only after the previous
+ * one finished, so slow fetches never overlap. After a failure the
+ * interval doubles with every further failure, up to an hour.
+ */
+public class BackgroundSyncScheduler {
+    public static final long DEFAULT_INTERVAL_SECONDS = 300;
+    private static final long INITIAL_DELAY_SECONDS = 10;
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    private final AsyncGitService asyncGit;
+    private final SyncListener listener;
+    private final long intervalSeconds;
+    private final ScheduledExecutorService scheduler;
+
+    // Guarded by "this"
+    private boolean running = false;
+    private int consecutiveFailures = 0;
+    private ScheduledFuture<?> nextRun;
+    private CompletableFuture<AheadBehind> inFlight;
+
+    /**
+     * Receives sync results on a background thread
+     */
+    public interface SyncListener {
+        /**
+         * Called after a successful fetch with the new counts, or null when
+         * the current branch has no upstream
+         */
+        void onSynced(AheadBehind aheadBehind);
+
+        /**
+         * Called when fetching failed, with the delay until the next attempt
+         */
+        void onSyncFailed(Throwable error, long retryInSeconds);
+    }
+
+    public BackgroundSyncScheduler(AsyncGitService asyncGit, SyncListener listener) {
+        this(asyncGit, listener, Long.getLong("gitppm.sync.intervalSeconds", DEFAULT_INTERVAL_SECONDS));
+    }
+
+    public BackgroundSyncScheduler(AsyncGitService asyncGit, SyncListener listener, long intervalSeconds) {
+        this.asyncGit = asyncGit;
+        this.listener = listener;
+        this.intervalSeconds = intervalSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("GitSyncScheduler");
+            return thread;
+        });
+    }
+
+    /**
+     * Start syncing. Does nothing when the interval is 0 or negative,
+     * which disables background fetching.
+     */
+    public synchronized void start() {
+        if (running || intervalSeconds <= 0) {
+            return;
+        }
+        running = true;
+        schedule(INITIAL_DELAY_SECONDS);
+    }
+
+    /**
+     * Sync immediately instead of waiting for the next interval
+     */
+    public synchronized void syncNow() {
+        if (running) {
+            schedule(0);
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Current delay between runs, including any backoff
+     */
+    public synchronized long getCurrentDelaySeconds() {
+        if (consecutiveFailures == 0) {
+            return intervalSeconds;
+        }
+        long backoff = intervalSeconds << Math.min(consecutiveFailures, 20);
+        return Math.min(backoff, Math.max(MAX_BACKOFF_SECONDS, intervalSeconds));
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (nextRun != null) {
+            nextRun.cancel(false);
+            nextRun = null;
+        }
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+    }
+
+    public void shutdown() {
+        stop();
+        scheduler.shutdownNow();
+    }
+
+    private void schedule(long delaySeconds) {
+        if (nextRun != null) {
+            nextRun.cancel(false);
+        }
+        nextRun = scheduler.schedule(this::runSync, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    private synchronized void runSync() {
+        nextRun = null;
+        if (!running || inFlight != null) {
+            return;
+        }
+
+        CompletableFuture<AheadBehind> sync = asyncGit.fetchAll().thenCompose(fetched -> asyncGit.getAheadBehind());
+        inFlight = sync;
+        sync.whenComplete((result, error) -> finishSync(sync, result, error));
+    }
+
+    private void finishSync(CompletableFuture<AheadBehind> sync, AheadBehind result, Throwable error) {
+        long retryIn;
+        synchronized (this) {
+            if (inFlight == sync) {
+                inFlight = null;
+            }
+            if (!running) {
+                return;
+            }
+            if (error == null) {
+                consecutiveFailures = 0;
+            } else {
+                consecutiveFailures++;
+            }
+            retryIn = getCurrentDelaySeconds();
+            schedule(retryIn);
+        }
+
+        if (error == null) {
+            listener.onSynced(result);
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        if (!(cause instanceof CancellationException)) {
+            listener.onSyncFailed(cause, retryIn);
+        }
+    }
+}
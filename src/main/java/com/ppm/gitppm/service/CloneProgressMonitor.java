@@ -0,0 +1,115 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.CloneProgress;
+import org.eclipse.jgit.lib.ProgressMonitor;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Turns JGit's progress callbacks into a throttled stream of CloneProgress
+ * snapshots, and lets the caller cancel the clone. JGit polls isCancelled()
+ * while receiving objects, resolving deltas and checking out files.
+ * <p>
+ * Received bytes are measured on disk: JGit streams the incoming pack to
+ * objects/incoming_*.pack and only moves it into objects/pack once it is
+ * complete, so both places are counted.
+ */
+public class CloneProgressMonitor implements ProgressMonitor {
+    private static final long REPORT_INTERVAL_NANOS = 100_000_000L;
+
+    private static final String INCOMING_PREFIX = "incoming_";
+    private static final String PACK_SUFFIX = ".pack";
+
+    private final File objectsDirectory;
+    private final File packDirectory;
+    private final Consumer<CloneProgress> listener;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private String task = "Starting";
+    private int completed;
+    private int total;
+    private long lastReport;
+
+    /**
+     * @param localPath clone destination, used to measure received pack bytes
+     * @param listener  receives progress snapshots on the cloning thread
+     */
+    public CloneProgressMonitor(File localPath, Consumer<CloneProgress> listener) {
+        this.objectsDirectory = new File(localPath, ".git/objects");
+        this.packDirectory = new File(objectsDirectory, "pack");
+        this.listener = listener;
+    }
+
+    /**
+     * Ask the clone to stop at the next progress check
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled.get() || Thread.currentThread().isInterrupted();
+    }
+
+    @Override
+    public void start(int totalTasks) {
+    }
+
+    @Override
+    public void beginTask(String title, int totalWork) {
+        task = title;
+        completed = 0;
+        total = totalWork == UNKNOWN ? 0 : totalWork;
+        report(true);
+    }
+
+    @Override
+    public void update(int completedWork) {
+        completed += completedWork;
+        report(false);
+    }
+
+    @Override
+    public void endTask() {
+        if (total > 0) {
+            completed = total;
+        }
+        report(true);
+    }
+
+    @Override
+    public void showDuration(boolean enabled) {
+    }
+
+    private void report(boolean force) {
+        long now = System.nanoTime();
+        if (!force && now - lastReport < REPORT_INTERVAL_NANOS) {
+            return;
+        }
+        lastReport = now;
+        listener.accept(new CloneProgress(task, completed, total, packBytes()));
+    }
+
+    /**
+     * Bytes of the pack still being received plus the finished packs
+     */
+    private long packBytes() {
+        long bytes = 0;
+        File[] incoming = objectsDirectory.listFiles(
+                (directory, name) -> name.startsWith(INCOMING_PREFIX) && name.endsWith(PACK_SUFFIX));
+        if (incoming != null) {
+            for (File file : incoming) {
+                bytes += file.length();
+            }
+        }
+        File[] packs = packDirectory.listFiles();
+        if (packs != null) {
+            for (File file : packs) {
+                bytes += file.length();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,258 @@
+package com.ppm.gitppm.service;
+
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraphWriter;
+import org.eclipse.jgit.internal.storage.commitgraph.GraphCommits;
+import org.eclipse.jgit.internal.storage.file.LockFile;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps .git/objects/info/commit-graph up to date for a repository.
+ * Once the file exists and core.commitGraph is enabled, every RevWalk
+ * opened on the repository (log, paging, ahead/behind, merge-base) reads
+ * parents and commit times from the graph instead of inflating commits.
+ * <p>
+ * core.commitGraph is only enabled in the in-memory config of the open
+ * repository; .git/config is never written. A repository whose config
+ * explicitly sets core.commitGraph=false is left alone. The graph file
+ * itself is the same one CLI git writes and reads.
+ * <p>
+ * JGit has no public API for writing the graph, so this class uses
+ * org.eclipse.jgit.internal.storage.commitgraph and LockFile and
+ * ObjectDirectory from internal.storage.file, as of JGit
+ * 6.7.0.202309050840-r (pinned in pom.xml). Those packages may change in
+ * any release; GitService treats a LinkageError from this class as the
+ * feature being unavailable, so recheck it when upgrading JGit.
+ */
+public class CommitGraphMaintenance {
+    /**
+     * Set to true to time a full history walk before and after writing
+     */
+    private static final boolean MEASURE_WALKS = Boolean.getBoolean("gitppm.commitGraph.measure");
+
+    private final Repository repository;
+
+    /**
+     * Outcome of a graph update
+     */
+    public static class Result {
+        private final int commitCount;
+        private final long writeMillis;
+        private final long walkMillisBefore;
+        private final long walkMillisAfter;
+
+        Result(int commitCount, long writeMillis, long walkMillisBefore, long walkMillisAfter) {
+            this.commitCount = commitCount;
+            this.writeMillis = writeMillis;
+            this.walkMillisBefore = walkMillisBefore;
+            this.walkMillisAfter = walkMillisAfter;
+        }
+
+        public int getCommitCount() {
+            return commitCount;
+        }
+
+        public long getWriteMillis() {
+            return writeMillis;
+        }
+
+        /**
+         * Time of a full walk over all refs before the update, or -1 when
+         * walks were not measured
+         */
+        public long getWalkMillisBefore() {
+            return walkMillisBefore;
+        }
+
+        /**
+         * Time of the same walk after the update, or -1 when not measured
+         */
+        public long getWalkMillisAfter() {
+            return walkMillisAfter;
+        }
+
+        @Override
+        public String toString() {
+            String summary = String.format("Commit graph written: %d commits in %d ms", commitCount, writeMillis);
+            if (walkMillisBefore >= 0) {
+                summary += String.format(" (history walk %d ms -> %d ms)", walkMillisBefore, walkMillisAfter);
+            }
+            return summary;
+        }
+    }
+
+    public CommitGraphMaintenance(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Check whether the graph is enabled and contains every ref tip
+     */
+    public boolean isUpToDate() throws IOException {
+        if (!isEnabled()) {
+            return false;
+        }
+        Set<ObjectId> tips = collectTips();
+        try (ObjectReader reader = repository.newObjectReader()) {
+            CommitGraph graph = reader.getCommitGraph().orElse(null);
+            if (graph == null) {
+                return false;
+            }
+            for (ObjectId tip : tips) {
+                if (graph.findGraphPosition(tip) < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the graph if it is missing or does not cover all refs.
+     * Returns null when the existing graph is already up to date, for
+     * shallow clones, whose cut-off parents cannot be recorded in a graph,
+     * and when the repository config disables commit graphs.
+     */
+    public Result updateIfStale() throws IOException {
+        if (isDisabledByConfig() || !repository.getObjectDatabase().getShallowCommits().isEmpty()) {
+            return null;
+        }
+        // An existing graph may only need to be switched on again, e.g.
+        // after the config was reloaded from disk
+        enable();
+        return isUpToDate() ? null : write();
+    }
+
+    /**
+     * Rewrite the commit graph for all commits reachable from any ref and
+     * enable reading it
+     */
+    public Result write() throws IOException {
+        Set<ObjectId> tips = collectTips();
+        long walkBefore = MEASURE_WALKS ? timeFullWalk(tips) : -1;
+
+        long start = System.nanoTime();
+        GraphCommits commits;
+        try (RevWalk walk = new RevWalk(repository)) {
+            commits = GraphCommits.fromWalk(NullProgressMonitor.INSTANCE, tips, walk);
+        }
+
+        File graphFile = new File(objectsDirectory(), "info/commit-graph");
+        File infoDirectory = graphFile.getParentFile();
+        if (!infoDirectory.isDirectory() && !infoDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + infoDirectory);
+        }
+        LockFile lock = new LockFile(graphFile);
+        if (!lock.lock()) {
+            throw new IOException("Commit graph is locked by another process: " + graphFile);
+        }
+        try {
+            try (OutputStream out = lock.getOutputStream()) {
+                new CommitGraphWriter(commits).write(NullProgressMonitor.INSTANCE, out);
+            }
+            if (!lock.commit()) {
+                throw new IOException("Cannot replace " + graphFile);
+            }
+        } finally {
+            lock.unlock();
+        }
+        enable();
+        long writeMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long walkAfter = MEASURE_WALKS ? timeFullWalk(tips) : -1;
+        int commitCount = 0;
+        for (RevCommit ignored : commits) {
+            commitCount++;
+        }
+        return new Result(commitCount, writeMillis, walkBefore, walkAfter);
+    }
+
+    private File objectsDirectory() {
+        if (repository.getObjectDatabase() instanceof ObjectDirectory) {
+            return ((ObjectDirectory) repository.getObjectDatabase()).getDirectory();
+        }
+        return new File(repository.getDirectory(), "objects");
+    }
+
+    private boolean isEnabled() {
+        return repository.getConfig().getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+                ConfigConstants.CONFIG_COMMIT_GRAPH, false);
+    }
+
+    private boolean isDisabledByConfig() {
+        StoredConfig config = repository.getConfig();
+        return config.getString(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH) != null
+                && !isEnabled();
+    }
+
+    /**
+     * Turn on reading the graph for this process only. JGit reloads the
+     * config when .git/config changes on disk, which drops the setting
+     * until the next update.
+     */
+    private void enable() {
+        if (!isEnabled()) {
+            repository.getConfig().setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+                    ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+        }
+    }
+
+    /**
+     * Commit ids of all refs, peeling annotated tags and skipping refs that
+     * point at trees or blobs
+     */
+    private Set<ObjectId> collectTips() throws IOException {
+        Set<ObjectId> tips = new HashSet<>();
+        try (RevWalk walk = new RevWalk(repository)) {
+            for (Ref ref : repository.getRefDatabase().getRefs()) {
+                ObjectId id = ref.getObjectId();
+                if (id == null) {
+                    continue;
+                }
+                try {
+                    RevObject peeled = walk.peel(walk.parseAny(id));
+                    if (peeled instanceof RevCommit) {
+                        tips.add(peeled.copy());
+                    }
+                } catch (IOException e) {
+                    System.err.println("Skipping ref " + ref.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+        return tips;
+    }
+
+    /**
+     * Walk all history without keeping commit bodies, as a parents-only
+     * traversal like ahead/behind and merge-base do
+     */
+    private long timeFullWalk(Set<ObjectId> tips) throws IOException {
+        long start = System.nanoTime();
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            for (ObjectId tip : tips) {
+                walk.markStart(walk.parseCommit(tip));
+            }
+            while (walk.next() != null) {
+                // Only the traversal is timed
+            }
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
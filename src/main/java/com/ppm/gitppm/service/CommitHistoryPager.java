@@ -0,0 +1,245 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.CommitInfo;
+import com.ppm.gitppm.service.CommitMetadataCache.CommitRecord;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Pages through the history of HEAD, newest commit first.
+ * The walk runs over the persistent CommitMetadataCache; only commits
+ * missing from the cache are parsed, with one reusable RevWalk, and are
+ * then added to the cache. Consecutive pages continue the same walk.
+ */
+public class CommitHistoryPager implements AutoCloseable {
+    private final Repository repository;
+    private final RevWalk walk;
+    private final CommitMetadataCache cache;
+    private final HistoryWalk pageWalk = new HistoryWalk();
+    private ObjectId lastReturned;
+
+    public CommitHistoryPager(Repository repository) {
+        this.repository = repository;
+        this.walk = new RevWalk(repository);
+        this.cache = new CommitMetadataCache(repository.getDirectory());
+    }
+
+    /**
+     * Get the next page of commits after the given commit id, or the first
+     * page of HEAD when the cursor is null
+     */
+    public synchronized List<CommitInfo> nextPage(String afterCommitId, int pageSize) throws IOException {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        if (head == null) {
+            return Collections.emptyList();
+        }
+
+        try {
+            ObjectId cursor = afterCommitId != null ? ObjectId.fromString(afterCommitId) : null;
+            boolean continues = cursor != null && cursor.equals(lastReturned);
+            if (!continues) {
+                pageWalk.start(head);
+                lastReturned = null;
+                if (cursor != null && !skipTo(cursor)) {
+                    return Collections.emptyList();
+                }
+            }
+
+            List<CommitInfo> page = new ArrayList<>(pageSize);
+            CommitRecord commit;
+            while (page.size() < pageSize && (commit = pageWalk.next()) != null) {
+                page.add(commit.toCommitInfo());
+                lastReturned = commit;
+            }
+            return page;
+        } finally {
+            finishWalk();
+        }
+    }
+
+    /**
+     * Get the commits reachable from HEAD but not from a previously known
+     * head, newest first. Returns null when HEAD no longer descends from
+     * the known head (reset, rebase, checkout) or more than maxCount
+     * commits are new, in which case the caller should reload from scratch.
+     * The new commits are added to the metadata cache.
+     */
+    public synchronized List<CommitInfo> commitsSince(String knownHeadId, int maxCount) throws IOException {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        ObjectId known = ObjectId.fromString(knownHeadId);
+        if (head == null) {
+            return null;
+        }
+        if (head.equals(known)) {
+            return Collections.emptyList();
+        }
+
+        try (RevWalk sinceWalk = new RevWalk(repository)) {
+            sinceWalk.markStart(sinceWalk.parseCommit(head));
+            sinceWalk.markUninteresting(sinceWalk.parseCommit(known));
+
+            List<CommitInfo> commits = new ArrayList<>();
+            boolean reachesKnown = false;
+            for (RevCommit commit : sinceWalk) {
+                if (commits.size() == maxCount) {
+                    return null;
+                }
+                commits.add(cache.add(commit).toCommitInfo());
+                for (RevCommit parent : commit.getParents()) {
+                    reachesKnown |= parent.equals(known);
+                }
+            }
+            return reachesKnown ? commits : null;
+        } finally {
+            cache.flush();
+        }
+    }
+
+    /**
+     * Find commits of HEAD whose subject or author contains the query,
+     * or whose id starts with it, newest first
+     */
+    public synchronized List<CommitInfo> search(String query, int limit) throws IOException {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        if (head == null || query.isBlank()) {
+            return Collections.emptyList();
+        }
+
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        List<CommitInfo> matches = new ArrayList<>();
+        HistoryWalk searchWalk = new HistoryWalk();
+        try {
+            searchWalk.start(head);
+            CommitRecord commit;
+            while (matches.size() < limit && (commit = searchWalk.next()) != null) {
+                if (commit.name().startsWith(needle)
+                        || commit.getSubject().toLowerCase(Locale.ROOT).contains(needle)
+                        || commit.getAuthor().toLowerCase(Locale.ROOT).contains(needle)) {
+                    matches.add(commit.toCommitInfo());
+                }
+            }
+            return matches;
+        } finally {
+            finishWalk();
+        }
+    }
+
+    /**
+     * Advance the walk until just past the cursor commit
+     */
+    private boolean skipTo(ObjectId cursor) throws IOException {
+        CommitRecord commit;
+        while ((commit = pageWalk.next()) != null) {
+            if (commit.equals(cursor)) {
+                lastReturned = commit;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Persist newly parsed commits and drop the parser's object cache,
+     * which the metadata cache now makes redundant
+     */
+    private void finishWalk() {
+        cache.flush();
+        walk.dispose();
+    }
+
+    /**
+     * Get cached metadata for a commit, parsing and caching it on a miss.
+     * Returns null for commits missing from the repository (shallow clones).
+     */
+    private CommitRecord lookup(ObjectId id) throws IOException {
+        CommitRecord record = cache.get(id);
+        if (record == null) {
+            try {
+                record = cache.add(walk.parseCommit(id));
+            } catch (MissingObjectException e) {
+                return null;
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Commit-time ordered traversal over cached records, matching the
+     * default RevWalk order. Ties keep discovery order.
+     */
+    private class HistoryWalk {
+        private final PriorityQueue<QueuedCommit> queue = new PriorityQueue<>(
+                Comparator.comparingInt((QueuedCommit q) -> q.record.getCommitTime()).reversed()
+                        .thenComparingLong(q -> q.sequence));
+        private final Set<ObjectId> seen = new HashSet<>();
+        private long sequence;
+
+        void start(ObjectId head) throws IOException {
+            queue.clear();
+            seen.clear();
+            sequence = 0;
+            enqueue(head);
+        }
+
+        CommitRecord next() throws IOException {
+            QueuedCommit next = queue.poll();
+            if (next == null) {
+                return null;
+            }
+            for (ObjectId parent : next.record.getParents()) {
+                enqueue(parent);
+            }
+            return next.record;
+        }
+
+        private void enqueue(ObjectId id) throws IOException {
+            if (seen.add(id)) {
+                CommitRecord record = lookup(id);
+                if (record != null) {
+                    queue.add(new QueuedCommit(record, sequence++));
+                }
+            }
+        }
+    }
+
+    private static class QueuedCommit {
+        private final CommitRecord record;
+        private final long sequence;
+
+        QueuedCommit(CommitRecord record, long sequence) {
+            this.record = record;
+            this.sequence = sequence;
+        }
+    }
+
+    static CommitInfo toCommitInfo(RevCommit commit) {
+        PersonIdent author = commit.getAuthorIdent();
+        return new CommitInfo(
+                commit.getId().getName(),
+                author.getName(),
+                commit.getShortMessage(),
+                author.getWhen().toInstant()
+        );
+    }
+
+    @Override
+    public synchronized void close() {
+        cache.flush();
+        walk.close();
+    }
+}
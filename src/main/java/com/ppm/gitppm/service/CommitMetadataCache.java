@@ -0,0 +1,374 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.CommitInfo;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Persistent cache of commit metadata, stored as an append-only file
+ * under .git/gitppm/. Each record holds the commit id, parent ids, commit
+ * time, author and subject, so history can be walked and searched without
+ * inflating commit objects that were seen before.
+ * <p>
+ * Commits listed in .git/shallow are never cached: their parents are
+ * missing from the repository, and a later unshallowing fetch would make
+ * such a record wrong. Several GitPPM processes may share the file;
+ * appends and the repair of a torn tail happen under a file lock.
+ */
+public class CommitMetadataCache {
+    private static final int MAGIC = 0x47505043; // "GPPC"
+    // Version 1 files may hold shallow commits without their parents
+    private static final int VERSION = 2;
+    private static final int HEADER_LENGTH = 8;
+    // A FileLock only excludes other processes, so flushes of this process are serialized here
+    private static final Object FILE_LOCK = new Object();
+
+    private final File file;
+    private final File shallowFile;
+    private Set<ObjectId> shallowCommits = new HashSet<>();
+    private long shallowModified = 0;
+    private long shallowLength = 0;
+    private final ObjectIdOwnerMap<CommitRecord> records = new ObjectIdOwnerMap<>();
+    private final List<CommitRecord> pending = new ArrayList<>();
+    private boolean loaded = false;
+    private long validLength = 0;
+
+    /**
+     * Metadata of a single commit
+     */
+    public static class CommitRecord extends ObjectIdOwnerMap.Entry {
+        private static final long serialVersionUID = 1L;
+
+        private final ObjectId[] parents;
+        private final int commitTime;
+        private final long authorTime;
+        private final String author;
+        private final String subject;
+
+        CommitRecord(AnyObjectId id, ObjectId[] parents, int commitTime, long authorTime,
+                     String author, String subject) {
+            super(id);
+            this.parents = parents;
+            this.commitTime = commitTime;
+            this.authorTime = authorTime;
+            this.author = author;
+            this.subject = subject;
+        }
+
+        static CommitRecord of(RevCommit commit) {
+            ObjectId[] parents = new ObjectId[commit.getParentCount()];
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = commit.getParent(i).copy();
+            }
+            PersonIdent author = commit.getAuthorIdent();
+            return new CommitRecord(commit, parents, commit.getCommitTime(),
+                    author.getWhen().getTime(), author.getName(), commit.getShortMessage());
+        }
+
+        public ObjectId[] getParents() {
+            return parents;
+        }
+
+        /**
+         * Committer time in seconds, used to order history walks
+         */
+        public int getCommitTime() {
+            return commitTime;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public CommitInfo toCommitInfo() {
+            return new CommitInfo(name(), author, subject, Instant.ofEpochMilli(authorTime));
+        }
+    }
+
+    public CommitMetadataCache(File gitDir) {
+        this.file = new File(new File(gitDir, "gitppm"), "commits.bin");
+        this.shallowFile = new File(gitDir, "shallow");
+    }
+
+    /**
+     * Look up a commit, or null if it was never cached
+     */
+    public synchronized CommitRecord get(AnyObjectId id) {
+        ensureLoaded();
+        return records.get(id);
+    }
+
+    /**
+     * Add the metadata of a parsed commit. The record is written to disk
+     * on the next flush(). Shallow commits are returned without being cached.
+     */
+    public synchronized CommitRecord add(RevCommit commit) {
+        ensureLoaded();
+        CommitRecord existing = records.get(commit);
+        if (existing != null) {
+            return existing;
+        }
+        CommitRecord record = CommitRecord.of(commit);
+        if (isShallow(commit)) {
+            return record;
+        }
+        records.add(record);
+        pending.add(record);
+        return record;
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        return records.size();
+    }
+
+    /**
+     * Append all records added since the last flush to the cache file.
+     * Records other processes appended meanwhile are read first; a
+     * partially written record left by a crash, or a corrupt one and
+     * everything after it, is dropped.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            File directory = file.getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            synchronized (FILE_LOCK) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                     FileChannel channel = raf.getChannel()) {
+                    FileLock lock = channel.lock();
+                    try {
+                        append(channel);
+                    } finally {
+                        lock.release();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write commit cache " + file + ": " + e.getMessage());
+        }
+        pending.clear();
+    }
+
+    private void append(FileChannel channel) throws IOException {
+        if (!hasValidHeader(channel)) {
+            channel.truncate(0);
+            writeHeader(channel);
+        } else if (channel.size() != validLength) {
+            readAppended(channel);
+            // Anything left is a torn or corrupt record; every live writer holds the lock
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        for (CommitRecord record : pending) {
+            writeRecord(out, record);
+        }
+        out.flush();
+        validLength += out.size();
+    }
+
+    /**
+     * Check whether a commit is a shallow boundary. The list is reread
+     * whenever .git/shallow changes, e.g. after a deepening fetch.
+     */
+    private boolean isShallow(AnyObjectId id) {
+        long modified = shallowFile.lastModified();
+        long length = shallowFile.length();
+        if (modified != shallowModified || length != shallowLength) {
+            shallowModified = modified;
+            shallowLength = length;
+            shallowCommits = readShallowCommits();
+        }
+        return !shallowCommits.isEmpty() && shallowCommits.contains(id);
+    }
+
+    private Set<ObjectId> readShallowCommits() {
+        Set<ObjectId> commits = new HashSet<>();
+        if (!shallowFile.isFile()) {
+            return commits;
+        }
+        try {
+            for (String line : Files.readAllLines(shallowFile.toPath(), StandardCharsets.US_ASCII)) {
+                if (ObjectId.isId(line.trim())) {
+                    commits.add(ObjectId.fromString(line.trim()));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read " + shallowFile + ": " + e.getMessage());
+        }
+        return commits;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.isFile()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Ignoring commit cache with unknown or old format: " + file);
+                return;
+            }
+            // The next flush truncates whatever follows the last good record
+            validLength = readRecords(in, HEADER_LENGTH);
+        } catch (IOException e) {
+            System.err.println("Failed to read commit cache " + file + ": " + e.getMessage());
+            records.clear();
+            validLength = 0;
+        }
+    }
+
+    /**
+     * Whether the file starts with a header of this version. A file this
+     * cache has not loaded yet is adopted, its records are read next.
+     */
+    private boolean hasValidHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_LENGTH) {
+            return false;
+        }
+        if (validLength == 0) {
+            channel.position(0);
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            validLength = HEADER_LENGTH;
+        }
+        return true;
+    }
+
+    private void writeHeader(FileChannel channel) throws IOException {
+        channel.position(0);
+        DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.flush();
+        validLength = HEADER_LENGTH;
+    }
+
+    /**
+     * Load the complete records written after validLength by other processes
+     */
+    private void readAppended(FileChannel channel) throws IOException {
+        channel.position(validLength);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        validLength = readRecords(in, validLength);
+    }
+
+    /**
+     * Read records until the end of the stream and return the offset after
+     * the last good one. A torn or corrupt record ends the valid part.
+     */
+    private long readRecords(DataInputStream in, long offset) {
+        byte[] idBuffer = new byte[Constants.OBJECT_ID_LENGTH];
+        while (true) {
+            CommitRecord record;
+            try {
+                record = readRecord(in, idBuffer);
+            } catch (EOFException e) {
+                return offset;
+            } catch (IOException e) {
+                System.err.println("Dropping corrupt commit cache records after offset " + offset + " in " + file
+                        + ": " + e.getMessage());
+                return offset;
+            }
+            records.addIfAbsent(record);
+            offset += recordLength(record);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, CommitRecord record) throws IOException {
+        byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+        record.copyRawTo(id, 0);
+        out.write(id);
+        out.writeByte(record.parents.length);
+        for (ObjectId parent : record.parents) {
+            parent.copyRawTo(id, 0);
+            out.write(id);
+        }
+        out.writeInt(record.commitTime);
+        out.writeLong(record.authorTime);
+        out.writeUTF(truncate(record.author));
+        out.writeUTF(truncate(record.subject));
+    }
+
+    private static CommitRecord readRecord(DataInputStream in, byte[] idBuffer) throws IOException {
+        in.readFully(idBuffer);
+        ObjectId id = ObjectId.fromRaw(idBuffer);
+        ObjectId[] parents = new ObjectId[in.readUnsignedByte()];
+        for (int i = 0; i < parents.length; i++) {
+            in.readFully(idBuffer);
+            parents[i] = ObjectId.fromRaw(idBuffer);
+        }
+        int commitTime = in.readInt();
+        long authorTime = in.readLong();
+        String author = in.readUTF();
+        String subject = in.readUTF();
+        return new CommitRecord(id, parents, commitTime, authorTime, author, subject);
+    }
+
+    private static long recordLength(CommitRecord record) {
+        return Constants.OBJECT_ID_LENGTH + 1L + (long) record.parents.length * Constants.OBJECT_ID_LENGTH + 4 + 8
+                + utfLength(record.author) + utfLength(record.subject);
+    }
+
+    private static int utfLength(String value) {
+        int length = 2;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length += 1;
+            } else if (c > 0x07FF) {
+                length += 3;
+            } else {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * writeUTF is limited to 65535 encoded bytes; subjects longer than that
+     * are cut, which is plenty for a one-line summary
+     */
+    private static String truncate(String value) {
+        return value.length() > 16000 ? value.substring(0, 16000) : value;
+    }
+}
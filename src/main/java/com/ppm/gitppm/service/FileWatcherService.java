@@ -1,145 +1,534 @@
 package com.ppm.gitppm.service;
 
-import javafx.application.Platform;
-
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 public class FileWatcherService {
-    private WatchService watchService;
-    private ExecutorService executorService;
-    private boolean running = false;
+    /**
+     * Change type reported when the watch service dropped events, or when
+     * the index, HEAD or a branch was changed, e.g. by command-line git.
+     * The file path is empty and the whole repository must be rescanned.
+     */
+    public static final String OVERFLOW = "OVERFLOW";
+
+    public static final long DEFAULT_QUIET_WINDOW_MILLIS = 150;
+    public static final long DEFAULT_MAX_LATENCY_MILLIS = 1000;
+
+    private static final String CREATED = "CREATED";
+    private static final String MODIFIED = "MODIFIED";
+    private static final String DELETED = "DELETED";
+
+    // Files directly in .git whose change can alter the status of any path
+    private static final String INDEX_FILE = "index";
+    private static final Set<String> GIT_METADATA_FILES = Set.of(INDEX_FILE, "HEAD", "packed-refs");
+
+    private final UiDispatcher uiDispatcher;
+    // When set, batches are delivered here instead of the JavaFX thread
+    private final Executor deliveryExecutor;
+    private final TraceRecorder trace = TraceRecorder.getDefault();
+    private final WatchServiceHub hub;
+    // One instance, so the hub can tell this watcher's registrations apart
+    private final WatchServiceHub.WatchHandler keyHandler = this::handleKey;
+    private final boolean ownsHub;
+    private final ScheduledExecutorService batchScheduler;
+    private final ForkJoinPool registrationPool;
+    private volatile boolean running = false;
+    // Identifies the current startWatching() call, so stale registration tasks stop
+    private volatile Object session = new Object();
     private Path repositoryPath;
+    private Path gitDirectory;
+    private Path headsDirectory;
     private FileChangeListener listener;
-    private Map<WatchKey, Path> watchKeys = new HashMap<>();
+    private Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
+    private Map<Path, WatchKey> keysByDirectory = new ConcurrentHashMap<>();
+    private volatile GitIgnoreMatcher ignoreMatcher;
+    private final AtomicInteger registeredDirectories = new AtomicInteger();
+    private final AtomicInteger pendingDirectories = new AtomicInteger();
+    private volatile CompletableFuture<Void> readyFuture = CompletableFuture.completedFuture(null);
+
+    // Pending batch, guarded by "this"
+    private final Map<String, String> pendingChanges = new LinkedHashMap<>();
+    private boolean pendingOverflow = false;
+    private long batchStartedAt = 0;
+    private ScheduledFuture<?> flushTask;
+    private long quietWindowMillis = DEFAULT_QUIET_WINDOW_MILLIS;
+    private long maxLatencyMillis = DEFAULT_MAX_LATENCY_MILLIS;
 
+    /**
+     * Receives coalesced file changes on the JavaFX thread.
+     * Each batch first reports every net change through onFileChanged and
+     * then the whole set of changed paths through onFilesChanged.
+     */
     public interface FileChangeListener {
-        void onFileChanged(String filePath, String changeType);
+        /**
+         * Called for each path in a batch with its net change type
+         */
+        default void onFileChanged(String filePath, String changeType) {
+        }
+
+        /**
+         * Called once per batch with the changed paths relative to the
+         * repository root. A batch containing the empty path means events
+         * were lost or the index, HEAD or a branch changed, and the whole
+         * repository must be rescanned.
+         */
+        default void onFilesChanged(Set<String> filePaths) {
+        }
     }
 
     public FileWatcherService() {
-        executorService = Executors.newSingleThreadExecutor(r -> {
-            Thread thread = new Thread(r);
-            thread.setDaemon(true);
-            thread.setName("FileWatcherThread");
-            return thread;
-        });
+        this(new WatchServiceHub(), true, UiDispatcher.getDefault(), null);
+    }
+
+    /**
+     * Create a watcher that shares watch services and threads with the
+     * other watchers of the hub. shutdown() leaves the hub open.
+     */
+    public FileWatcherService(WatchServiceHub hub) {
+        this(hub, false, UiDispatcher.getDefault(), null);
+    }
+
+    /**
+     * Create a watcher that delivers every batch on the given executor
+     * instead of the JavaFX thread, for use without a UI
+     */
+    public FileWatcherService(WatchServiceHub hub, Executor deliveryExecutor) {
+        this(hub, false, null, deliveryExecutor);
+    }
+
+    private FileWatcherService(WatchServiceHub hub, boolean ownsHub, UiDispatcher uiDispatcher,
+                               Executor deliveryExecutor) {
+        this.hub = hub;
+        this.ownsHub = ownsHub;
+        this.uiDispatcher = uiDispatcher;
+        this.deliveryExecutor = deliveryExecutor;
+        this.batchScheduler = hub.getBatchScheduler();
+        this.registrationPool = hub.getRegistrationPool();
+    }
+
+    /**
+     * Set how long the file system has to stay quiet before a batch is
+     * delivered, and the maximum time a change may wait during a burst
+     */
+    public synchronized void setBatchWindow(long quietWindowMillis, long maxLatencyMillis) {
+        if (quietWindowMillis < 0 || maxLatencyMillis < quietWindowMillis) {
+            throw new IllegalArgumentException("Invalid batch window: quiet=" + quietWindowMillis
+                    + "ms, max latency=" + maxLatencyMillis + "ms");
+        }
+        this.quietWindowMillis = quietWindowMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
     }
 
     /**
-     * Start watching a repository directory for changes
+     * Start watching a repository directory for changes.
+     * Directories are registered in the background; the returned future
+     * completes once the initial registration walk has finished.
      */
-    public void startWatching(String repositoryPath, FileChangeListener listener) throws IOException {
+    public CompletableFuture<Void> startWatching(String repositoryPath, FileChangeListener listener)
+            throws IOException {
         if (running) {
             stopWatching();
         }
 
-        this.repositoryPath = Paths.get(repositoryPath);
+        this.repositoryPath = Paths.get(repositoryPath).toAbsolutePath().normalize();
+        this.gitDirectory = this.repositoryPath.resolve(".git");
+        this.headsDirectory = gitDirectory.resolve("refs").resolve("heads");
         this.listener = listener;
-        this.watchService = FileSystems.getDefault().newWatchService();
+        this.ignoreMatcher = new GitIgnoreMatcher(this.repositoryPath);
+        this.registeredDirectories.set(0);
+        this.pendingDirectories.set(1);
 
-        // Register the repository directory and subdirectories
-        registerDirectory(this.repositoryPath);
-        
+        Object currentSession = new Object();
+        session = currentSession;
         running = true;
 
-        executorService.submit(() -> {
+        // Register the repository directory and subdirectories off the caller's
+        // thread; events are delivered by the hub as soon as a directory is registered
+        CompletableFuture<Void> ready = CompletableFuture.runAsync(() -> {
+            registerGitDirectories(gitDirectory, currentSession);
+            registerGitDirectories(headsDirectory, currentSession);
+            registrationPool.invoke(new RegisterDirectoryTask(this.repositoryPath, currentSession));
+        }, registrationPool);
+        this.readyFuture = ready;
+        return ready;
+    }
+
+    /**
+     * Get the future that completes once the initial registration is done
+     */
+    public CompletableFuture<Void> getReadyFuture() {
+        return readyFuture;
+    }
+
+    /**
+     * Number of directories registered with the watch service so far
+     */
+    public int getRegisteredDirectoryCount() {
+        return registeredDirectories.get();
+    }
+
+    /**
+     * Estimated number of directories to register: everything registered
+     * plus the directories found but not yet visited. Grows during the walk.
+     */
+    public int getEstimatedDirectoryCount() {
+        return registeredDirectories.get() + Math.max(0, pendingDirectories.get());
+    }
+
+    /**
+     * Register a directory and all its subdirectories in the background,
+     * so the shared polling thread is not held up by a large new subtree
+     */
+    private void registerDirectory(Path directory) {
+        pendingDirectories.incrementAndGet();
+        registrationPool.execute(new RegisterDirectoryTask(directory, session));
+    }
+
+    /**
+     * Registers one directory, then forks a task per subdirectory.
+     * Directories ignored by Git (build output, node_modules, .git) are skipped.
+     */
+    private class RegisterDirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final Object targetSession;
+
+        RegisterDirectoryTask(Path directory, Object targetSession) {
+            this.directory = directory;
+            this.targetSession = targetSession;
+        }
+
+        @Override
+        protected void compute() {
+            if (!running || targetSession != session || ignoreMatcher.isIgnored(directory, true)) {
+                pendingDirectories.decrementAndGet();
+                return;
+            }
+
+            List<RegisterDirectoryTask> subtasks = new ArrayList<>();
             try {
-                watchForChanges();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                if (!keysByDirectory.containsKey(directory)) {
+                    WatchKey key = hub.register(directory, keyHandler);
+                    watchKeys.put(key, directory);
+                    keysByDirectory.put(directory, key);
+                    registeredDirectories.incrementAndGet();
+                }
+
+                // Register subdirectories
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                    for (Path entry : stream) {
+                        if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                            subtasks.add(new RegisterDirectoryTask(entry, targetSession));
+                        }
+                    }
+                }
+            } catch (ClosedWatchServiceException e) {
+                // Watching was stopped while registering
+            } catch (IOException e) {
+                System.err.println("Failed to register directory: " + directory);
+            } finally {
+                // This directory is done, its subdirectories are now pending
+                pendingDirectories.addAndGet(subtasks.size() - 1);
             }
-        });
+            invokeAll(subtasks);
+        }
     }
 
     /**
-     * Register a directory and all its subdirectories with the watch service
+     * Watch a directory in .git, and below refs/heads its subdirectories
+     * too. The rest of .git is never watched: objects, logs and lock files
+     * change all the time without affecting the status.
      */
-    private void registerDirectory(Path directory) throws IOException {
-        // Don't watch .git directory
-        if (directory.endsWith(".git")) {
+    private void registerGitDirectories(Path directory, Object targetSession) {
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            // No repository yet, or a worktree whose .git is a file
+            return;
+        }
+        if (!directory.startsWith(headsDirectory)) {
+            registerGitDirectory(directory, targetSession);
             return;
         }
+        try (Stream<Path> directories = Files.walk(directory)) {
+            directories.filter(path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+                    .forEach(path -> registerGitDirectory(path, targetSession));
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Failed to register directory: " + directory);
+        }
+    }
 
-        WatchKey key = directory.register(
-                watchService,
-                StandardWatchEventKinds.ENTRY_CREATE,
-                StandardWatchEventKinds.ENTRY_DELETE,
-                StandardWatchEventKinds.ENTRY_MODIFY
-        );
-        watchKeys.put(key, directory);
+    private void registerGitDirectory(Path directory, Object targetSession) {
+        if (!running || targetSession != session || keysByDirectory.containsKey(directory)) {
+            return;
+        }
+        try {
+            WatchKey key = hub.register(directory, keyHandler);
+            watchKeys.put(key, directory);
+            keysByDirectory.put(directory, key);
+            registeredDirectories.incrementAndGet();
+        } catch (ClosedWatchServiceException e) {
+            // Watching was stopped while registering
+        } catch (IOException e) {
+            System.err.println("Failed to register directory: " + directory);
+        }
+    }
 
-        // Register subdirectories
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
-            for (Path entry : stream) {
-                if (Files.isDirectory(entry) && !entry.getFileName().toString().equals(".git")) {
-                    registerDirectory(entry);
-                }
+    /**
+     * Re-apply ignore rules below a directory after a .gitignore changed:
+     * newly ignored directories are unregistered, newly visible ones registered
+     */
+    private void reevaluateRegistrations(Path directory) {
+        ignoreMatcher.invalidate();
+
+        for (Map.Entry<Path, WatchKey> entry : new ArrayList<>(keysByDirectory.entrySet())) {
+            Path registered = entry.getKey();
+            if (registered.startsWith(directory) && !registered.startsWith(gitDirectory)
+                    && ignoreMatcher.isIgnored(registered, true)) {
+                unregisterDirectory(registered, entry.getValue());
             }
         }
+
+        registerDirectory(directory);
+    }
+
+    private void unregisterDirectory(Path directory, WatchKey key) {
+        hub.unregister(key, keyHandler);
+        watchKeys.remove(key);
+        keysByDirectory.remove(directory);
     }
 
     /**
-     * Watch for file system changes
+     * Process the events of one signalled directory. Called by the hub's
+     * polling thread, which resets the key afterwards.
      */
-    private void watchForChanges() throws InterruptedException {
-        while (running) {
-            WatchKey key = watchService.take();
-            Path directory = watchKeys.get(key);
+    private void handleKey(WatchKey key, List<WatchEvent<?>> events) {
+        Path directory = watchKeys.get(key);
+        if (!running || directory == null) {
+            return;
+        }
+
+        for (WatchEvent<?> event : events) {
+            WatchEvent.Kind<?> kind = event.kind();
 
-            if (directory == null) {
+            if (kind == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, listeners have to rescan everything
+                enqueueOverflow();
                 continue;
             }
 
-            for (WatchEvent<?> event : key.pollEvents()) {
-                WatchEvent.Kind<?> kind = event.kind();
+            @SuppressWarnings("unchecked")
+            WatchEvent<Path> ev = (WatchEvent<Path>) event;
+            Path fileName = ev.context();
+            Path fullPath = directory.resolve(fileName);
+            boolean isDirectory = Files.isDirectory(fullPath, LinkOption.NOFOLLOW_LINKS);
 
-                if (kind == StandardWatchEventKinds.OVERFLOW) {
-                    continue;
-                }
+            if (fullPath.startsWith(gitDirectory)) {
+                handleGitEvent(directory, fullPath, kind, isDirectory);
+                continue;
+            }
 
-                @SuppressWarnings("unchecked")
-                WatchEvent<Path> ev = (WatchEvent<Path>) event;
-                Path fileName = ev.context();
-                Path fullPath = directory.resolve(fileName);
+            // Drop changes in ignored paths
+            if (ignoreMatcher.isIgnored(fullPath, isDirectory)) {
+                continue;
+            }
 
-                // Ignore .git directory changes
-                if (fullPath.toString().contains(".git")) {
-                    continue;
-                }
+            // Get relative path from repository root, using Git's '/' separator
+            String relativePath = toRelativePath(fullPath);
+            enqueueChange(relativePath, getChangeType(kind));
 
-                // Get relative path from repository root
-                String relativePath = repositoryPath.relativize(fullPath).toString();
-                String changeType = getChangeType(kind);
+            // Changed ignore rules can hide or reveal whole trees, so
+            // re-check registrations and the status of that directory
+            if (GitIgnoreMatcher.isIgnoreFile(fullPath)) {
+                reevaluateRegistrations(directory);
+                enqueueChange(toRelativePath(directory), MODIFIED);
+                continue;
+            }
 
-                // Notify listener on JavaFX thread
-                if (listener != null) {
-                    Platform.runLater(() -> listener.onFileChanged(relativePath, changeType));
-                }
+            // If a new directory was created, register it
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE && isDirectory) {
+                registerDirectory(fullPath);
+            }
+        }
 
-                // If a new directory was created, register it
-                if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(fullPath)) {
-                    try {
-                        registerDirectory(fullPath);
-                    } catch (IOException e) {
-                        System.err.println("Failed to register new directory: " + fullPath);
-                    }
-                }
+        if (!key.isValid()) {
+            // The directory is gone
+            hub.unregister(key, keyHandler);
+            watchKeys.remove(key);
+            keysByDirectory.remove(directory, key);
+        }
+    }
+
+    /**
+     * A new index, HEAD or branch tip, e.g. after git add, commit or
+     * checkout on the command line, can change the status of any path,
+     * so it is reported like lost events and triggers a full rescan
+     */
+    private void handleGitEvent(Path directory, Path fullPath, WatchEvent.Kind<?> kind, boolean isDirectory) {
+        String name = fullPath.getFileName().toString();
+        if (directory.equals(gitDirectory)) {
+            if (GIT_METADATA_FILES.contains(name)) {
+                enqueueOverflow();
+            }
+            if (name.equals(INDEX_FILE)) {
+                // A file may have been force-added below an ignored directory
+                Object targetSession = session;
+                registrationPool.execute(() -> registerTrackedIgnoredDirectories(targetSession));
+            }
+        } else if (directory.startsWith(headsDirectory) && !name.endsWith(".lock")) {
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE && isDirectory) {
+                registerGitDirectories(fullPath, session);
             }
+            enqueueOverflow();
+        }
+    }
 
-            boolean valid = key.reset();
-            if (!valid) {
-                watchKeys.remove(key);
-                if (watchKeys.isEmpty()) {
+    /**
+     * Start watching ignored directories that now hold tracked files. Only
+     * the topmost are registered, the walk below them does the rest.
+     */
+    private void registerTrackedIgnoredDirectories(Object targetSession) {
+        if (!running || targetSession != session) {
+            return;
+        }
+        Set<Path> directories = ignoreMatcher.getTrackedIgnoredDirectories();
+        for (Path directory : directories) {
+            if (!directories.contains(directory.getParent()) && !keysByDirectory.containsKey(directory)) {
+                registerDirectory(directory);
+            }
+        }
+    }
+
+    private String toRelativePath(Path path) {
+        return repositoryPath.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Add a raw event to the pending batch, collapsing it with earlier
+     * events for the same path
+     */
+    private synchronized void enqueueChange(String relativePath, String changeType) {
+        String previous = pendingChanges.get(relativePath);
+        String net = previous == null ? changeType : collapse(previous, changeType);
+        if (net == null) {
+            pendingChanges.remove(relativePath);
+        } else {
+            pendingChanges.put(relativePath, net);
+        }
+        scheduleFlush();
+    }
+
+    private synchronized void enqueueOverflow() {
+        pendingOverflow = true;
+        pendingChanges.clear();
+        scheduleFlush();
+    }
+
+    /**
+     * Combine two consecutive change types for one path into their net
+     * effect, or null when they cancel out (created, then deleted again)
+     */
+    static String collapse(String previous, String next) {
+        if (CREATED.equals(previous)) {
+            return DELETED.equals(next) ? null : CREATED;
+        }
+        if (DELETED.equals(previous)) {
+            return CREATED.equals(next) ? MODIFIED : DELETED;
+        }
+        return DELETED.equals(next) ? DELETED : MODIFIED;
+    }
+
+    /**
+     * (Re)arm the flush timer: wait for the quiet window, but never past
+     * the max latency measured from the first event of the batch
+     */
+    private void scheduleFlush() {
+        long now = System.currentTimeMillis();
+        if (batchStartedAt == 0) {
+            batchStartedAt = now;
+        }
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        long delay = Math.min(quietWindowMillis, Math.max(0, batchStartedAt + maxLatencyMillis - now));
+        flushTask = batchScheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hand the pending batch to the UI dispatcher. Batches flushed within
+     * the same frame reach the listener together.
+     */
+    private void flush() {
+        Map<String, String> changes;
+        synchronized (this) {
+            if (pendingOverflow) {
+                changes = Collections.singletonMap("", OVERFLOW);
+            } else {
+                changes = new LinkedHashMap<>(pendingChanges);
+            }
+            pendingChanges.clear();
+            pendingOverflow = false;
+            batchStartedAt = 0;
+            flushTask = null;
+        }
+
+        FileChangeListener target = listener;
+        if (changes.isEmpty() || target == null || !running) {
+            return;
+        }
+        try (TraceRecorder.Span span = trace.begin("watcher", "flush")) {
+            span.arg("files", changes.size());
+            if (deliveryExecutor != null) {
+                TraceRecorder.Link flushed = trace.link();
+                deliveryExecutor.execute(() -> deliver(target, List.of(changes), flushed));
+            } else {
+                uiDispatcher.postBatch(this, changes, batches -> deliver(target, batches, null));
+            }
+        }
+    }
+
+    /**
+     * Merge the batches of one frame and notify the listener. Later change
+     * types win; any overflow turns the whole delivery into a rescan.
+     * Batches delivered through the UI dispatcher are linked to their
+     * flush by the dispatcher itself.
+     */
+    private void deliver(FileChangeListener target, List<Map<String, String>> batches, TraceRecorder.Link flushed) {
+        if (!running) {
+            return;
+        }
+        Map<String, String> merged = batches.size() == 1 ? batches.get(0) : new LinkedHashMap<>();
+        if (batches.size() > 1) {
+            for (Map<String, String> batch : batches) {
+                if (batch.containsKey("")) {
+                    merged = Collections.singletonMap("", OVERFLOW);
                     break;
                 }
+                merged.putAll(batch);
             }
         }
+        try (TraceRecorder.Span span = trace.begin("watcher", "batch", flushed)) {
+            span.arg("files", merged.size()).arg("batches", batches.size());
+            merged.forEach(target::onFileChanged);
+            target.onFilesChanged(Collections.unmodifiableSet(merged.keySet()));
+        }
     }
 
     /**
@@ -147,11 +536,13 @@ public class FileWatcherService {
      */
     private String getChangeType(WatchEvent.Kind<?> kind) {
         if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
-            return "CREATED";
+            return CREATED;
         } else if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
-            return "MODIFIED";
+            return MODIFIED;
         } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
-            return "DELETED";
+            return DELETED;
+        } else if (kind == StandardWatchEventKinds.OVERFLOW) {
+            return OVERFLOW;
         }
         return "UNKNOWN";
     }
@@ -161,14 +552,21 @@ public class FileWatcherService {
      */
     public void stopWatching() {
         running = false;
-        if (watchService != null) {
-            try {
-                watchService.close();
-            } catch (IOException e) {
-                System.err.println("Error closing watch service: " + e.getMessage());
-            }
+        session = new Object();
+        for (WatchKey key : watchKeys.keySet()) {
+            hub.unregister(key, keyHandler);
         }
         watchKeys.clear();
+        keysByDirectory.clear();
+        synchronized (this) {
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+            pendingChanges.clear();
+            pendingOverflow = false;
+            batchStartedAt = 0;
+        }
     }
 
     /**
@@ -183,6 +581,8 @@ public class FileWatcherService {
      */
     public void shutdown() {
         stopWatching();
-        executorService.shutdownNow();
+        if (ownsHub) {
+            hub.close();
+        }
     }
 }
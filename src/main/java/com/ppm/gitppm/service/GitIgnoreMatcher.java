@@ -0,0 +1,292 @@
+package com.ppm.gitppm.service;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.ignore.IgnoreNode;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.SystemReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates .gitignore, .git/info/exclude and core.excludesFile rules for
+ * paths in a working tree, so the file watcher can skip ignored trees.
+ * Parsed rule files and directory results are cached until invalidate().
+ * <p>
+ * As in Git, rules do not apply to tracked files: a file in the index is
+ * never ignored, and neither is a directory holding one, e.g. a build
+ * directory with a force-added file. Those paths are collected from
+ * .git/index when an ignored path is first checked after the index
+ * changed.
+ */
+public class GitIgnoreMatcher {
+    private static final String GITIGNORE = ".gitignore";
+
+    private final Path workTree;
+    private final ConcurrentHashMap<Path, Optional<IgnoreNode>> gitignoreNodes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Boolean> ignoredDirectories = new ConcurrentHashMap<>();
+    private volatile Optional<IgnoreNode> infoExclude;
+    private volatile Optional<IgnoreNode> globalExclude;
+    private volatile TrackedPaths trackedPaths = TrackedPaths.NONE;
+
+    /**
+     * Tracked paths that the rules would ignore, and the directories above
+     * them, as of one version of the index
+     */
+    private static final class TrackedPaths {
+        private static final TrackedPaths NONE = new TrackedPaths(null, -1, Set.of(), Set.of());
+
+        private final FileTime modified;
+        private final long size;
+        private final Set<Path> files;
+        private final Set<Path> directories;
+
+        TrackedPaths(FileTime modified, long size, Set<Path> files, Set<Path> directories) {
+            this.modified = modified;
+            this.size = size;
+            this.files = files;
+            this.directories = directories;
+        }
+
+        boolean isCurrent(FileTime modified, long size) {
+            return Objects.equals(this.modified, modified) && this.size == size;
+        }
+    }
+
+    public GitIgnoreMatcher(Path workTree) {
+        this.workTree = workTree.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Check if the file name is a .gitignore file
+     */
+    public static boolean isIgnoreFile(Path path) {
+        Path fileName = path.getFileName();
+        return fileName != null && fileName.toString().equals(GITIGNORE);
+    }
+
+    /**
+     * Check if a path inside the working tree is ignored by Git.
+     * A path is also ignored when any of its parent directories is,
+     * unless it is tracked or holds tracked files.
+     */
+    public boolean isIgnored(Path path, boolean isDirectory) {
+        Path relative = workTree.relativize(path.toAbsolutePath().normalize());
+        if (relative.toString().isEmpty()) {
+            return false;
+        }
+        if (relative.getName(0).toString().equals(".git")) {
+            return true;
+        }
+        if (!matchesRules(relative, isDirectory)) {
+            return false;
+        }
+        TrackedPaths tracked = getTrackedPaths();
+        return !(isDirectory ? tracked.directories : tracked.files).contains(relative);
+    }
+
+    /**
+     * Directories that the rules ignore but that hold tracked files, which
+     * the file watcher still has to watch
+     */
+    public Set<Path> getTrackedIgnoredDirectories() {
+        Set<Path> directories = new HashSet<>();
+        for (Path directory : getTrackedPaths().directories) {
+            if (matchesRules(directory, true)) {
+                directories.add(workTree.resolve(directory));
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * Apply the rules to a path and its parents, whether tracked or not
+     */
+    private boolean matchesRules(Path relative, boolean isDirectory) {
+        int count = relative.getNameCount();
+        for (int i = 1; i < count; i++) {
+            Path ancestor = relative.subpath(0, i);
+            Boolean ignored = ignoredDirectories.get(ancestor);
+            if (ignored == null) {
+                ignored = matches(ancestor, true);
+                ignoredDirectories.put(ancestor, ignored);
+            }
+            if (ignored) {
+                return true;
+            }
+        }
+
+        if (isDirectory) {
+            return ignoredDirectories.computeIfAbsent(relative, p -> matches(p, true));
+        }
+        return matches(relative, false);
+    }
+
+    /**
+     * Forget all parsed rules, e.g. after a .gitignore file changed
+     */
+    public void invalidate() {
+        gitignoreNodes.clear();
+        ignoredDirectories.clear();
+        infoExclude = null;
+        globalExclude = null;
+        // Waits for a read with the old rules to finish before dropping it
+        synchronized (this) {
+            trackedPaths = TrackedPaths.NONE;
+        }
+    }
+
+    /**
+     * Tracked paths for the current index, re-read when .git/index changed
+     * since the last call
+     */
+    private TrackedPaths getTrackedPaths() {
+        Path indexFile = workTree.resolve(".git").resolve("index");
+        FileTime modified = null;
+        long size = -1;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(indexFile, BasicFileAttributes.class);
+            modified = attributes.lastModifiedTime();
+            size = attributes.size();
+        } catch (NoSuchFileException e) {
+            // No index yet, nothing is tracked
+        } catch (IOException e) {
+            System.err.println("Failed to read " + indexFile + ": " + e.getMessage());
+        }
+        TrackedPaths tracked = trackedPaths;
+        if (tracked.isCurrent(modified, size)) {
+            return tracked;
+        }
+        synchronized (this) {
+            tracked = trackedPaths;
+            if (!tracked.isCurrent(modified, size)) {
+                tracked = modified == null ? TrackedPaths.NONE : readTrackedPaths(indexFile, modified, size);
+                trackedPaths = tracked;
+            }
+        }
+        return tracked;
+    }
+
+    /**
+     * Collect the index entries the rules would ignore. Other tracked
+     * paths need no exception, so the sets stay small.
+     */
+    private TrackedPaths readTrackedPaths(Path indexFile, FileTime modified, long size) {
+        Set<Path> files = new HashSet<>();
+        Set<Path> directories = new HashSet<>();
+        try {
+            DirCache index = DirCache.read(indexFile.toFile(), FS.DETECTED);
+            for (int i = 0; i < index.getEntryCount(); i++) {
+                Path relative = workTree.getFileSystem().getPath(index.getEntry(i).getPathString());
+                if (matchesRules(relative, false)) {
+                    files.add(relative);
+                    for (int depth = 1; depth < relative.getNameCount(); depth++) {
+                        directories.add(relative.subpath(0, depth));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read tracked files from " + indexFile + ": " + e.getMessage());
+        }
+        return new TrackedPaths(modified, size, files, directories);
+    }
+
+    /**
+     * Match a single path against the rule files, ignoring its parents.
+     * The closest .gitignore with a matching rule wins, then info/exclude,
+     * then the user's global excludes file.
+     */
+    private boolean matches(Path relative, boolean isDirectory) {
+        Path directory = relative.getParent();
+        while (true) {
+            Path absoluteDirectory = directory == null ? workTree : workTree.resolve(directory);
+            Optional<IgnoreNode> node = gitignoreNodes.computeIfAbsent(absoluteDirectory,
+                    d -> load(d.resolve(GITIGNORE)));
+            if (node.isPresent()) {
+                Path entry = directory == null ? relative : directory.relativize(relative);
+                Boolean result = node.get().checkIgnored(toGitPath(entry), isDirectory);
+                if (result != null) {
+                    return result;
+                }
+            }
+            if (directory == null) {
+                break;
+            }
+            directory = directory.getParent();
+        }
+
+        String gitPath = toGitPath(relative);
+        for (Optional<IgnoreNode> node : List.of(getInfoExclude(), getGlobalExclude())) {
+            if (node.isPresent()) {
+                Boolean result = node.get().checkIgnored(gitPath, isDirectory);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Optional<IgnoreNode> getInfoExclude() {
+        Optional<IgnoreNode> node = infoExclude;
+        if (node == null) {
+            node = load(workTree.resolve(".git").resolve("info").resolve("exclude"));
+            infoExclude = node;
+        }
+        return node;
+    }
+
+    private Optional<IgnoreNode> getGlobalExclude() {
+        Optional<IgnoreNode> node = globalExclude;
+        if (node == null) {
+            node = Optional.empty();
+            try {
+                Config userConfig = SystemReader.getInstance().getUserConfig();
+                String excludesFile = userConfig.getString(ConfigConstants.CONFIG_CORE_SECTION, null,
+                        ConfigConstants.CONFIG_KEY_EXCLUDESFILE);
+                if (excludesFile != null) {
+                    File file = excludesFile.startsWith("~/")
+                            ? new File(FS.DETECTED.userHome(), excludesFile.substring(2))
+                            : new File(excludesFile);
+                    node = load(file.toPath());
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to read global excludes file: " + e.getMessage());
+            }
+            globalExclude = node;
+        }
+        return node;
+    }
+
+    private static Optional<IgnoreNode> load(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        IgnoreNode node = new IgnoreNode();
+        try (InputStream in = Files.newInputStream(file)) {
+            node.parse(file.toString(), in);
+        } catch (IOException e) {
+            System.err.println("Failed to read ignore rules from " + file + ": " + e.getMessage());
+            return Optional.empty();
+        }
+        return node.getRules().isEmpty() ? Optional.empty() : Optional.of(node);
+    }
+
+    private static String toGitPath(Path path) {
+        return path.toString().replace(File.separatorChar, '/');
+    }
+}
@@ -1,34 +1,72 @@
 package com.ppm.gitppm.service;
 
+import com.ppm.gitppm.model.AheadBehind;
+import com.ppm.gitppm.model.CloneOptions;
 import com.ppm.gitppm.model.CommitInfo;
 import com.ppm.gitppm.model.FileChange;
 import com.ppm.gitppm.model.GitCredentials;
+import org.eclipse.jgit.api.AddCommand;
+import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RemoteConfig;
+import org.eclipse.jgit.transport.URIish;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.util.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class GitService {
     private Git git;
     private Repository repository;
     private GitCredentials credentials;
     private CredentialsProvider credentialsProvider;
+    private final StatusCache statusCache = new StatusCache();
+    private final GitTaskExecutor taskExecutor;
+    private final OperationMetrics metrics = OperationMetrics.getDefault();
+    private Consumer<String> operationLog = message -> { };
+    private CommitHistoryPager historyPager;
+    private CommitGraphMaintenance commitGraph;
+    // Set once CommitGraphMaintenance fails to link against the JGit on the
+    // module path, see updateCommitGraph()
+    private static volatile boolean commitGraphUnsupported;
+    private AheadBehindCalculator aheadBehind;
 
     public GitService() {
+        this(new GitTaskExecutor());
+    }
+
+    /**
+     * Create a service whose asynchronous operations run on the given
+     * executor, e.g. one backed by a workspace-wide pool
+     */
+    public GitService(GitTaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
     }
 
     /**
@@ -38,13 +76,13 @@ public class GitService {
         this.credentials = credentials;
         File repoDir = new File(repositoryPath);
         
-        FileRepositoryBuilder builder = new FileRepositoryBuilder();
-        repository = builder.setGitDir(new File(repoDir, ".git"))
-                .readEnvironment()
-                .findGitDir()
-                .build();
+        releaseRepository();
+        repository = metrics.call("open",
+                () -> RepositoryRegistry.getDefault().acquire(new File(repoDir, ".git")));
         
         git = new Git(repository);
+        statusCache.invalidate();
+        resetRepositoryCaches();
         
         // Setup credentials provider
         if (credentials != null) {
@@ -60,83 +98,185 @@ public class GitService {
      */
     public void cloneRepository(String remoteUrl, String localPath, GitCredentials credentials) 
             throws GitAPIException {
+        cloneRepository(remoteUrl, localPath, credentials, new CloneOptions(), NullProgressMonitor.INSTANCE);
+    }
+
+    /**
+     * Clone a repository with shallow, single-branch or no-checkout options,
+     * reporting progress to the given monitor. If the clone fails or is
+     * cancelled through the monitor, the partially written destination is
+     * removed again. An existing destination must be an empty directory;
+     * only what the clone created in it is removed.
+     */
+    public void cloneRepository(String remoteUrl, String localPath, GitCredentials credentials,
+                                CloneOptions options, ProgressMonitor monitor) throws GitAPIException {
         this.credentials = credentials;
-        
-        CredentialsProvider provider = new UsernamePasswordCredentialsProvider(
-                credentials.getUsername(),
-                credentials.getEffectivePassword()
-        );
 
-        git = Git.cloneRepository()
+        CredentialsProvider provider = credentials != null && credentials.getUsername() != null
+                ? new UsernamePasswordCredentialsProvider(
+                        credentials.getUsername(),
+                        credentials.getEffectivePassword())
+                : null;
+
+        File directory = new File(localPath);
+        boolean existedBefore = directory.exists();
+        String[] existingChildren = existedBefore ? directory.list() : new String[0];
+        if (existingChildren == null || existingChildren.length > 0) {
+            // Refuse before anything is written, so cleanup can never touch user files
+            throw new JGitInternalException("Destination path " + directory
+                    + " already exists and is not an empty directory");
+        }
+        CloneCommand clone = Git.cloneRepository()
                 .setURI(remoteUrl)
-                .setDirectory(new File(localPath))
+                .setDirectory(directory)
                 .setCredentialsProvider(provider)
-                .call();
-        
-        repository = git.getRepository();
+                .setProgressMonitor(monitor)
+                .setNoCheckout(options.isNoCheckout());
+        if (options.isShallow()) {
+            clone.setDepth(options.getDepth());
+        }
+
+        String branch = options.getBranch();
+        if (options.isSingleBranch() && branch == null) {
+            branch = findDefaultBranch(remoteUrl, provider);
+        }
+        if (branch != null) {
+            String branchRef = branch.startsWith(Constants.R_HEADS) ? branch : Constants.R_HEADS + branch;
+            clone.setBranch(branchRef);
+            if (options.isSingleBranch()) {
+                clone.setCloneAllBranches(false)
+                        .setBranchesToClone(List.of(branchRef));
+            }
+        }
+
+        Git cloned;
+        try {
+            cloned = metrics.call("clone", clone::call);
+        } catch (GitAPIException | RuntimeException e) {
+            removePartialClone(directory, existedBefore, Set.of(existingChildren));
+            throw e;
+        }
+        metrics.addBytes("clone", packBytes(cloned.getRepository()));
+
+        // Reopen through the registry so the clone is shared and cached like any other repository
+        cloned.close();
+        releaseRepository();
+        try {
+            repository = RepositoryRegistry.getDefault().acquire(new File(directory, ".git"));
+        } catch (IOException e) {
+            throw new JGitInternalException("Cloned repository could not be opened", e);
+        }
+        git = new Git(repository);
         credentialsProvider = provider;
+        statusCache.invalidate();
+        resetRepositoryCaches();
     }
 
     /**
-     * Get the status of the repository (changed files)
+     * Resolve the branch the remote HEAD points to, or null if unknown
      */
-    public List<FileChange> getStatus() throws GitAPIException {
-        if (git == null) {
-            throw new IllegalStateException("Repository not initialized");
-        }
-
-        Status status = git.status().call();
-        List<FileChange> changes = new ArrayList<>();
+    private String findDefaultBranch(String remoteUrl, CredentialsProvider provider) throws GitAPIException {
+        Ref head = Git.lsRemoteRepository()
+                .setRemote(remoteUrl)
+                .setCredentialsProvider(provider)
+                .callAsMap()
+                .get(Constants.HEAD);
+        return head != null && head.isSymbolic() ? head.getTarget().getName() : null;
+    }
 
-        // Added files
-        for (String file : status.getAdded()) {
-            changes.add(new FileChange(file, FileChange.ChangeType.ADDED, true));
+    /**
+     * CloneCommand cleans up after most failures itself; this also covers
+     * cancellation during checkout and anything it left behind. Entries
+     * that were in the destination before the clone are kept.
+     */
+    private void removePartialClone(File directory, boolean existedBefore, Set<String> existingChildren) {
+        try {
+            if (!existedBefore) {
+                FileUtils.delete(directory, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+            } else {
+                File[] children = directory.listFiles();
+                if (children != null) {
+                    for (File child : children) {
+                        if (existingChildren.contains(child.getName())) {
+                            continue;
+                        }
+                        FileUtils.delete(child, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to remove partial clone " + directory + ": " + e.getMessage());
         }
+    }
 
-        // Modified files
-        for (String file : status.getModified()) {
-            changes.add(new FileChange(file, FileChange.ChangeType.MODIFIED, false));
+    /**
+     * Get the status of the repository (changed files).
+     * Always runs a full scan and refreshes the status cache.
+     * The list is a StatusSnapshot, which creates FileChange objects only
+     * when they are read. Scans must not overlap, or an older result may
+     * replace a newer one; see GitTaskExecutor.submitStatus.
+     */
+    public List<FileChange> getStatus() throws GitAPIException {
+        if (git == null) {
+            throw new IllegalStateException("Repository not initialized");
         }
 
-        // Changed files (staged modifications)
-        for (String file : status.getChanged()) {
-            changes.add(new FileChange(file, FileChange.ChangeType.MODIFIED, true));
-        }
+        Status status = metrics.call("status", git.status()::call);
+        statusCache.replaceAll(status);
+        return statusCache.snapshot();
+    }
 
-        // Removed files
-        for (String file : status.getRemoved()) {
-            changes.add(new FileChange(file, FileChange.ChangeType.DELETED, true));
+    /**
+     * Get the status of the repository, re-evaluating only the given paths.
+     * Falls back to a full scan when no full status has been cached yet.
+     */
+    public List<FileChange> getStatus(Collection<String> changedPaths) throws GitAPIException {
+        if (git == null) {
+            throw new IllegalStateException("Repository not initialized");
         }
 
-        // Missing files
-        for (String file : status.getMissing()) {
-            changes.add(new FileChange(file, FileChange.ChangeType.MISSING, false));
+        if (!statusCache.isPopulated() || changedPaths.contains("")) {
+            return getStatus();
         }
-
-        // Untracked files
-        for (String file : status.getUntracked()) {
-            changes.add(new FileChange(file, FileChange.ChangeType.UNTRACKED, false));
+        if (changedPaths.isEmpty()) {
+            return statusCache.snapshot();
         }
 
-        // Conflicting files
-        for (String file : status.getConflicting()) {
-            changes.add(new FileChange(file, FileChange.ChangeType.CONFLICTING, false));
+        StatusCommand command = git.status();
+        for (String path : changedPaths) {
+            command.addPath(path);
         }
+        Status status = metrics.call("status (paths)", command::call);
+        statusCache.merge(changedPaths, status);
+        return statusCache.snapshot();
+    }
 
-        return changes;
+    /**
+     * Drop the cached status so the next status call does a full scan
+     */
+    public void invalidateStatus() {
+        statusCache.invalidate();
     }
 
     /**
-     * Stage files for commit
+     * Stage files for commit.
+     * All paths go into one AddCommand, so the index is locked and written once.
      */
     public void stageFiles(List<String> filePaths) throws GitAPIException {
         if (git == null) {
             throw new IllegalStateException("Repository not initialized");
         }
+        if (filePaths.isEmpty()) {
+            return;
+        }
 
+        long start = System.nanoTime();
+        AddCommand add = git.add();
         for (String filePath : filePaths) {
-            git.add().addFilepattern(filePath).call();
+            add.addFilepattern(filePath);
         }
+        metrics.call("stage", add::call);
+        logOperation("Staged", filePaths.size(), start);
     }
 
     /**
@@ -147,20 +287,41 @@ public class GitService {
             throw new IllegalStateException("Repository not initialized");
         }
 
-        git.add().addFilepattern(".").call();
+        metrics.call("stage all", git.add().addFilepattern(".")::call);
     }
 
     /**
-     * Unstage files
+     * Unstage files.
+     * All paths go into one ResetCommand, so the index is locked and written once.
      */
     public void unstageFiles(List<String> filePaths) throws GitAPIException {
         if (git == null) {
             throw new IllegalStateException("Repository not initialized");
         }
+        if (filePaths.isEmpty()) {
+            return;
+        }
 
+        long start = System.nanoTime();
+        ResetCommand reset = git.reset();
         for (String filePath : filePaths) {
-            git.reset().addPath(filePath).call();
+            reset.addPath(filePath);
         }
+        metrics.call("unstage", reset::call);
+        logOperation("Unstaged", filePaths.size(), start);
+    }
+
+    /**
+     * Set the receiver for operation log messages, e.g. the console
+     */
+    public void setOperationLog(Consumer<String> operationLog) {
+        this.operationLog = operationLog != null ? operationLog : message -> { };
+    }
+
+    private void logOperation(String operation, int fileCount, long startNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        operationLog.accept(String.format("%s %d file%s in one index update (%d ms)",
+                operation, fileCount, fileCount != 1 ? "s" : "", millis));
     }
 
     /**
@@ -171,10 +332,9 @@ public class GitService {
             throw new IllegalStateException("Repository not initialized");
         }
 
-        RevCommit commit = git.commit()
+        RevCommit commit = metrics.call("commit", git.commit()
                 .setMessage(message)
-                .setAuthor(authorName, authorEmail)
-                .call();
+                .setAuthor(authorName, authorEmail)::call);
 
         return commit.getId().getName();
     }
@@ -187,9 +347,8 @@ public class GitService {
             throw new IllegalStateException("Repository not initialized");
         }
 
-        return git.push()
-                .setCredentialsProvider(credentialsProvider)
-                .call();
+        return metrics.call("push", git.push()
+                .setCredentialsProvider(credentialsProvider)::call);
     }
 
     /**
@@ -200,9 +359,12 @@ public class GitService {
             throw new IllegalStateException("Repository not initialized");
         }
 
-        return git.pull()
-                .setCredentialsProvider(credentialsProvider)
-                .call();
+        try {
+            return transfer("pull", git.pull()
+                    .setCredentialsProvider(credentialsProvider)::call);
+        } finally {
+            statusCache.invalidate();
+        }
     }
 
     /**
@@ -213,9 +375,69 @@ public class GitService {
             throw new IllegalStateException("Repository not initialized");
         }
 
-        git.fetch()
-                .setCredentialsProvider(credentialsProvider)
-                .call();
+        transfer("fetch", git.fetch()
+                .setCredentialsProvider(credentialsProvider)::call);
+    }
+
+    /**
+     * Fetch every configured remote
+     */
+    public void fetchAll() throws GitAPIException {
+        if (git == null) {
+            throw new IllegalStateException("Repository not initialized");
+        }
+
+        transfer("fetch all", () -> {
+            for (String remote : repository.getRemoteNames()) {
+                git.fetch()
+                        .setRemote(remote)
+                        .setCredentialsProvider(credentialsProvider)
+                        .call();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Time a fetching operation and record the pack bytes it received.
+     * JGit writes every fetched pack into objects/pack, so its growth is
+     * what came over the wire.
+     */
+    private <T> T transfer(String name, OperationMetrics.TimedCall<T, GitAPIException> call)
+            throws GitAPIException {
+        long before = packBytes(repository);
+        try {
+            return metrics.call(name, call);
+        } finally {
+            metrics.addBytes(name, packBytes(repository) - before);
+        }
+    }
+
+    private static long packBytes(Repository repository) {
+        File[] files = new File(repository.getDirectory(), "objects/pack").listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (File file : files) {
+            bytes += file.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * URLs of every configured remote
+     */
+    public List<URIish> getRemoteUris() throws URISyntaxException {
+        if (repository == null) {
+            throw new IllegalStateException("Repository not initialized");
+        }
+
+        List<URIish> uris = new ArrayList<>();
+        for (RemoteConfig remote : RemoteConfig.getAllRemoteConfigs(repository.getConfig())) {
+            uris.addAll(remote.getURIs());
+        }
+        return uris;
     }
 
     /**
@@ -226,20 +448,129 @@ public class GitService {
             throw new IllegalStateException("Repository not initialized");
         }
 
-        List<CommitInfo> commits = new ArrayList<>();
-        Iterable<RevCommit> logs = git.log().setMaxCount(count).call();
+        return metrics.call("log", () -> {
+            List<CommitInfo> commits = new ArrayList<>();
+            Iterable<RevCommit> logs = git.log().setMaxCount(count).call();
+
+            for (RevCommit commit : logs) {
+                commits.add(CommitHistoryPager.toCommitInfo(commit));
+            }
+
+            return commits;
+        });
+    }
+
+    /**
+     * Get a page of the history of HEAD, newest first.
+     * Pass null as cursor for the first page, or the id of the last commit
+     * of the previous page to continue from there.
+     */
+    public List<CommitInfo> getCommitPage(String afterCommitId, int pageSize) throws IOException {
+        if (historyPager == null) {
+            throw new IllegalStateException("Repository not initialized");
+        }
+
+        return metrics.call("history page", () -> historyPager.nextPage(afterCommitId, pageSize));
+    }
+
+    /**
+     * Get the commits added on top of a previously loaded head, newest first.
+     * Returns null when the history was rewritten and must be reloaded.
+     */
+    public List<CommitInfo> getCommitsSince(String knownHeadId, int maxCount) throws IOException {
+        if (historyPager == null) {
+            throw new IllegalStateException("Repository not initialized");
+        }
+
+        return metrics.call("history since", () -> historyPager.commitsSince(knownHeadId, maxCount));
+    }
+
+    /**
+     * Search the history of HEAD by subject, author or commit id prefix.
+     * Commits already in the metadata cache are not parsed again.
+     */
+    public List<CommitInfo> searchCommits(String query, int limit) throws IOException {
+        if (historyPager == null) {
+            throw new IllegalStateException("Repository not initialized");
+        }
+
+        return metrics.call("search", () -> historyPager.search(query, limit));
+    }
+
+    private void resetRepositoryCaches() {
+        if (historyPager != null) {
+            historyPager.close();
+        }
+        historyPager = new CommitHistoryPager(repository);
+        // Created on first use, so a JGit whose internal API changed cannot
+        // fail opening the repository
+        commitGraph = null;
+        aheadBehind = new AheadBehindCalculator(repository);
+    }
+
+    /**
+     * Write .git/objects/info/commit-graph when it is missing or does not
+     * cover all refs. Returns null when the graph was already up to date,
+     * and from then on when the JGit in use lacks the internal API
+     * CommitGraphMaintenance was built against.
+     */
+    public CommitGraphMaintenance.Result updateCommitGraph() throws IOException {
+        if (repository == null) {
+            throw new IllegalStateException("Repository not initialized");
+        }
+        if (commitGraphUnsupported) {
+            return null;
+        }
+
+        try {
+            if (commitGraph == null) {
+                commitGraph = new CommitGraphMaintenance(repository);
+            }
+            return metrics.call("commit graph", commitGraph::updateIfStale);
+        } catch (LinkageError e) {
+            commitGraphUnsupported = true;
+            System.err.println("Commit graph updates disabled, JGit internal API changed: " + e);
+            return null;
+        }
+    }
 
-        for (RevCommit commit : logs) {
-            PersonIdent author = commit.getAuthorIdent();
-            commits.add(new CommitInfo(
-                    commit.getId().getName(),
-                    author.getName(),
-                    commit.getShortMessage(),
-                    author.getWhen().toInstant()
-            ));
+    /**
+     * Get how many commits the current branch is ahead of and behind its
+     * upstream, or null when it has no upstream. Repeated calls with
+     * unchanged branch and upstream tips return the cached counts.
+     */
+    public AheadBehind getAheadBehind() throws IOException {
+        if (aheadBehind == null) {
+            throw new IllegalStateException("Repository not initialized");
         }
 
-        return commits;
+        return metrics.call("ahead/behind", aheadBehind::compute);
+    }
+
+    /**
+     * Get the best common ancestor of two revisions, or null if they share
+     * no history
+     */
+    public String getMergeBase(String revision, String otherRevision) throws IOException {
+        if (repository == null) {
+            throw new IllegalStateException("Repository not initialized");
+        }
+
+        return metrics.call("merge base", () -> {
+            ObjectId first = repository.resolve(revision);
+            ObjectId second = repository.resolve(otherRevision);
+            if (first == null || second == null) {
+                return null;
+            }
+            try (RevWalk walk = new RevWalk(repository)) {
+                walk.setRetainBody(false);
+                walk.setRevFilter(RevFilter.MERGE_BASE);
+                walk.markStart(walk.parseCommit(first));
+                walk.markStart(walk.parseCommit(second));
+                RevCommit base = walk.next();
+                return base != null ? base.getName() : null;
+            }
+        });
     }
 
     /**
@@ -262,7 +593,7 @@ public class GitService {
         }
 
         List<String> branches = new ArrayList<>();
-        List<Ref> refs = git.branchList().call();
+        List<Ref> refs = metrics.call("branches", git.branchList()::call);
 
         for (Ref ref : refs) {
             String name = ref.getName();
@@ -282,9 +613,8 @@ public class GitService {
             throw new IllegalStateException("Repository not initialized");
         }
 
-        git.branchCreate()
-                .setName(branchName)
-                .call();
+        metrics.call("create branch", git.branchCreate()
+                .setName(branchName)::call);
     }
 
     /**
@@ -295,9 +625,12 @@ public class GitService {
             throw new IllegalStateException("Repository not initialized");
         }
 
-        git.checkout()
-                .setName(branchName)
-                .call();
+        try {
+            metrics.call("checkout", git.checkout()
+                    .setName(branchName)::call);
+        } finally {
+            statusCache.invalidate();
+        }
     }
 
     /**
@@ -310,6 +643,15 @@ public class GitService {
         return repository.getDirectory().getParentFile();
     }
 
+    /**
+     * Get the scheduler that serializes writes to this repository.
+     * Asynchronous callers should go through it instead of calling
+     * mutating methods directly from several threads.
+     */
+    public GitTaskExecutor getTaskExecutor() {
+        return taskExecutor;
+    }
+
     /**
      * Check if repository is initialized
      */
@@ -321,11 +663,24 @@ public class GitService {
      * Close the repository
      */
     public void close() {
+        taskExecutor.shutdown();
+        if (historyPager != null) {
+            historyPager.close();
+        }
+        releaseRepository();
+    }
+
+    /**
+     * Hand the repository back to the registry, which keeps it open for reuse
+     */
+    private void releaseRepository() {
         if (git != null) {
             git.close();
+            git = null;
         }
         if (repository != null) {
-            repository.close();
+            RepositoryRegistry.getDefault().release(repository);
+            repository = null;
         }
     }
 }
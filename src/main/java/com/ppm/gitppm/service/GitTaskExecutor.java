@@ -0,0 +1,263 @@
+package com.ppm.gitppm.service;
+
+import javafx.application.Platform;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Schedules Git operations off the JavaFX thread.
+ * Read-only operations share a small fixed pool and hold a shared lock,
+ * so they run concurrently but never observe a half-finished write.
+ * Operations that mutate the index, HEAD or working tree go through a
+ * single writer thread and hold the exclusive lock, so they execute one
+ * at a time in submission order and never contend for index.lock.
+ * Status scans also hold the shared lock, but run one at a time in
+ * submission order, so a slow full scan can never overwrite the cached
+ * result of a later path-limited one.
+ * Network transfers that only touch refs run on the reader pool without
+ * the lock, so a slow fetch does not block staging or committing.
+ * Several repositories can share one thread pool (see shared()); each
+ * keeps its own lock and its own ordered write queue on top of it.
+ */
+public class GitTaskExecutor {
+    /**
+     * Executor that runs callbacks on the JavaFX Application Thread
+     */
+    public static final Executor FX_THREAD = Platform::runLater;
+
+    private final Executor readPool;
+    private final Executor writeQueue;
+    private final Executor statusQueue;
+    private final List<ExecutorService> ownedPools;
+    // Fair, so a steady stream of status refreshes cannot starve writers
+    private final ReentrantReadWriteLock repositoryLock = new ReentrantReadWriteLock(true);
+    private final TraceRecorder trace = TraceRecorder.getDefault();
+
+    /**
+     * A unit of Git work that may throw any exception
+     */
+    @FunctionalInterface
+    public interface GitTask<T> {
+        T call() throws Exception;
+    }
+
+    public GitTaskExecutor() {
+        this(Math.min(4, Math.max(2, Runtime.getRuntime().availableProcessors() / 2)));
+    }
+
+    public GitTaskExecutor(int readThreads) {
+        ExecutorService readers = Executors.newFixedThreadPool(readThreads, threadFactory("GitReader"));
+        ExecutorService writer = Executors.newSingleThreadExecutor(threadFactory("GitWriter"));
+        readPool = readers;
+        writeQueue = writer;
+        statusQueue = new SerialExecutor(readers);
+        ownedPools = List.of(readers, writer);
+    }
+
+    private GitTaskExecutor(Executor sharedPool) {
+        readPool = sharedPool;
+        writeQueue = new SerialExecutor(sharedPool);
+        statusQueue = new SerialExecutor(sharedPool);
+        ownedPools = List.of();
+    }
+
+    /**
+     * Create an executor for one repository that runs its tasks on a pool
+     * shared with other repositories. Writes to this repository still run
+     * one at a time in submission order. shutdown() leaves the pool running.
+     */
+    public static GitTaskExecutor shared(Executor sharedPool) {
+        return new GitTaskExecutor(sharedPool);
+    }
+
+    /**
+     * Run a read-only operation (status, log, branch list) against a
+     * consistent repository state
+     */
+    public <T> CompletableFuture<T> submitRead(GitTask<T> task) {
+        return submit(readPool, "read task", locked(repositoryLock.readLock(), task));
+    }
+
+    /**
+     * Run a status scan that updates the cached status. Scans run as
+     * readers, but one at a time in submission order, so their results
+     * are applied in the order the working tree changed.
+     */
+    public <T> CompletableFuture<T> submitStatus(GitTask<T> task) {
+        return submit(statusQueue, "status task", locked(repositoryLock.readLock(), task));
+    }
+
+    /**
+     * Queue an operation that changes the index, HEAD or working tree
+     * (add, reset, commit, checkout, pull)
+     */
+    public <T> CompletableFuture<T> submitWrite(GitTask<T> task) {
+        return submit(writeQueue, "write task", locked(repositoryLock.writeLock(), task));
+    }
+
+    /**
+     * Run a network transfer that only updates refs (fetch, push).
+     * Order it after a write by chaining, e.g. commit().thenCompose(push).
+     */
+    public <T> CompletableFuture<T> submitTransfer(GitTask<T> task) {
+        return submit(readPool, "transfer task", task);
+    }
+
+    private static <T> GitTask<T> locked(Lock lock, GitTask<T> task) {
+        return () -> {
+            lock.lockInterruptibly();
+            try {
+                return task.call();
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    /**
+     * Run a task and expose it as a future. Cancelling the returned future
+     * skips a queued task or interrupts a running one. The traced span
+     * also covers the callbacks run on completion; time spent waiting for
+     * the repository lock shows as the gap before the Git operation.
+     */
+    private <T> CompletableFuture<T> submit(Executor executor, String name, GitTask<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        TraceRecorder.Link submitter = trace.link();
+        long submittedAt = System.nanoTime();
+        try {
+            executor.execute(new RejectableTask() {
+                @Override
+                public void run() {
+                    if (result.isDone()) {
+                        return;
+                    }
+                    runner.set(Thread.currentThread());
+                    try (TraceRecorder.Span span = trace.begin("executor", name, submitter)) {
+                        span.arg("queueMicros", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - submittedAt));
+                        result.complete(task.call());
+                    } catch (Throwable t) {
+                        result.completeExceptionally(t);
+                    } finally {
+                        synchronized (runner) {
+                            runner.set(null);
+                            // Do not leak a late cancellation into the next task
+                            Thread.interrupted();
+                        }
+                    }
+                }
+
+                @Override
+                public void reject(RejectedExecutionException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                synchronized (runner) {
+                    Thread thread = runner.get();
+                    if (thread != null) {
+                        thread.interrupt();
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Stop accepting work and interrupt running tasks. Executors created
+     * with shared() leave the shared pool to its owner.
+     */
+    public void shutdown() {
+        for (ExecutorService pool : ownedPools) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * A task that can be failed without running it, when the pool it is
+     * queued for no longer accepts work
+     */
+    private interface RejectableTask extends Runnable {
+        void reject(RejectedExecutionException e);
+    }
+
+    /**
+     * Runs tasks one at a time, in submission order, on a shared pool.
+     * Once the pool rejects a task, the queued tasks are failed and every
+     * later one is rejected right away.
+     */
+    private static class SerialExecutor implements Executor {
+        private final Executor delegate;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private Runnable active;
+        private boolean rejected;
+
+        SerialExecutor(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            if (rejected) {
+                throw new RejectedExecutionException("Pool no longer accepts tasks");
+            }
+            tasks.add(task);
+            if (active == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            Runnable task = tasks.poll();
+            active = task;
+            if (task == null) {
+                return;
+            }
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        scheduleNext();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                active = null;
+                rejected = true;
+                for (Runnable next = task; next != null; next = tasks.poll()) {
+                    if (next instanceof RejectableTask) {
+                        ((RejectableTask) next).reject(e);
+                    }
+                }
+            }
+        }
+    }
+
+    static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName(name + "-" + counter.incrementAndGet());
+            return thread;
+        };
+    }
+}
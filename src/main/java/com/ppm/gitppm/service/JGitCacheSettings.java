@@ -0,0 +1,167 @@
+package com.ppm.gitppm.service;
+
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+
+/**
+ * JGit's process-wide pack cache settings, read from system properties.
+ * -Dgitppm.performance.profile=large starts from settings for very large
+ * repositories instead of JGit's defaults: pack windows are memory mapped
+ * and the caches are sized from the heap. Individual properties override
+ * the profile:
+ * -Dgitppm.cache.packedGitLimitMb=10      memory for cached pack windows
+ * -Dgitppm.cache.windowSizeKb=8           size of one pack window
+ * -Dgitppm.cache.mmap=false               map pack windows instead of reading them
+ * -Dgitppm.cache.openFiles=128            pack files kept open
+ * -Dgitppm.cache.deltaBaseCacheLimitMb=10 memory for inflated delta bases
+ * -Dgitppm.cache.streamFileThresholdMb=50 larger objects are streamed, not loaded
+ * Must be installed before the first repository is opened.
+ */
+public class JGitCacheSettings {
+    public static final String DEFAULT_PROFILE = "default";
+    public static final String LARGE_PROFILE = "large";
+
+    private static final int KB = WindowCacheConfig.KB;
+    private static final int MB = WindowCacheConfig.MB;
+
+    private String profile = DEFAULT_PROFILE;
+    private long packedGitLimit;
+    private int windowSize;
+    private boolean mmap;
+    private int openFiles;
+    private int deltaBaseCacheLimit;
+    private int streamFileThreshold;
+
+    /**
+     * JGit's built-in defaults
+     */
+    public JGitCacheSettings() {
+        WindowCacheConfig defaults = new WindowCacheConfig();
+        packedGitLimit = defaults.getPackedGitLimit();
+        windowSize = defaults.getPackedGitWindowSize();
+        mmap = defaults.isPackedGitMMAP();
+        openFiles = defaults.getPackedGitOpenFiles();
+        deltaBaseCacheLimit = defaults.getDeltaBaseCacheLimit();
+        streamFileThreshold = defaults.getStreamFileThreshold();
+    }
+
+    /**
+     * Settings of a named profile, "default" or "large"
+     */
+    public static JGitCacheSettings forProfile(String profile) {
+        JGitCacheSettings settings = new JGitCacheSettings();
+        if (DEFAULT_PROFILE.equals(profile)) {
+            return settings;
+        }
+        if (!LARGE_PROFILE.equals(profile)) {
+            throw new IllegalArgumentException("Unknown performance profile: " + profile);
+        }
+
+        // Mapped windows live outside the heap, so they can be large and
+        // many; the heap only pays for delta bases and streamed objects
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        settings.profile = LARGE_PROFILE;
+        settings.mmap = true;
+        settings.windowSize = MB;
+        settings.packedGitLimit = 2048L * MB;
+        settings.openFiles = 512;
+        settings.deltaBaseCacheLimit = (int) Math.min(64L * MB, maxHeap / 16);
+        settings.streamFileThreshold = (int) Math.min(256L * MB, maxHeap / 8);
+        return settings;
+    }
+
+    /**
+     * The profile from -Dgitppm.performance.profile, overridden by any
+     * gitppm.cache.* system properties
+     */
+    public static JGitCacheSettings fromSystemProperties() {
+        String profile = System.getProperty("gitppm.performance.profile", DEFAULT_PROFILE);
+        JGitCacheSettings settings;
+        try {
+            settings = forProfile(profile);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ", using " + DEFAULT_PROFILE);
+            settings = new JGitCacheSettings();
+        }
+        settings.packedGitLimit = size("gitppm.cache.packedGitLimitMb", settings.packedGitLimit, MB, Long.MAX_VALUE);
+        settings.windowSize = (int) size("gitppm.cache.windowSizeKb", settings.windowSize, KB, Integer.MAX_VALUE);
+        settings.mmap = Boolean.parseBoolean(System.getProperty("gitppm.cache.mmap", String.valueOf(settings.mmap)));
+        settings.openFiles = (int) size("gitppm.cache.openFiles", settings.openFiles, 1, Integer.MAX_VALUE);
+        settings.deltaBaseCacheLimit = (int) size("gitppm.cache.deltaBaseCacheLimitMb",
+                settings.deltaBaseCacheLimit, MB, Integer.MAX_VALUE);
+        settings.streamFileThreshold = (int) size("gitppm.cache.streamFileThresholdMb",
+                settings.streamFileThreshold, MB, Integer.MAX_VALUE);
+        return settings;
+    }
+
+    /**
+     * A positive size property given in units, converted to bytes and
+     * clamped to max. Missing, malformed or non-positive values keep the
+     * current setting.
+     */
+    private static long size(String property, long current, long unit, long max) {
+        Long value = Long.getLong(property);
+        if (value == null) {
+            return current;
+        }
+        if (value <= 0) {
+            System.err.println("Ignoring " + property + "=" + value + ", it must be positive");
+            return current;
+        }
+        return value > max / unit ? max : value * unit;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public long getPackedGitLimit() {
+        return packedGitLimit;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public boolean isMmap() {
+        return mmap;
+    }
+
+    public int getOpenFiles() {
+        return openFiles;
+    }
+
+    public int getDeltaBaseCacheLimit() {
+        return deltaBaseCacheLimit;
+    }
+
+    public int getStreamFileThreshold() {
+        return streamFileThreshold;
+    }
+
+    /**
+     * Replace JGit's window cache with one using these settings.
+     * Invalid combinations are reported and leave the old cache in place.
+     */
+    public void install() {
+        WindowCacheConfig config = new WindowCacheConfig();
+        config.setPackedGitLimit(packedGitLimit);
+        config.setPackedGitWindowSize(windowSize);
+        config.setPackedGitMMAP(mmap);
+        config.setPackedGitOpenFiles(openFiles);
+        config.setDeltaBaseCacheLimit(deltaBaseCacheLimit);
+        config.setStreamFileThreshold(streamFileThreshold);
+        try {
+            config.install();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid JGit cache settings (" + this + "): " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s profile: pack cache %d MB in %d KB windows%s, %d open files, "
+                        + "delta base cache %d MB, stream threshold %d MB", profile, packedGitLimit / MB,
+                windowSize / KB, mmap ? " (mmap)" : "", openFiles, deltaBaseCacheLimit / MB,
+                streamFileThreshold / MB);
+    }
+}
@@ -0,0 +1,27 @@
+package com.ppm.gitppm.service;
+
+/**
+ * String escaping for the hand-written JSON of the metrics export and
+ * the trace files
+ */
+final class Json {
+    private Json() {
+    }
+
+    /**
+     * Escape a value for use inside a JSON string literal
+     */
+    static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,100 @@
+package com.ppm.gitppm.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the style of
+ * HdrHistogram: values below 32 µs get one bucket each, and every further
+ * power of two is split into 32 buckets. Percentiles are thus accurate to
+ * about 3% from a microsecond up to the clamp at roughly 38 hours, in a
+ * fixed array of about a thousand counters.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record one duration, in nanoseconds
+     */
+    void recordNanos(long nanos) {
+        long micros = Math.min(MAX_VALUE, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        counts.incrementAndGet(indexOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalMicros.sum() / n;
+    }
+
+    long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Smallest recorded value that the given fraction of all values is at
+     * or below, rounded up to the end of its bucket. 0 when empty.
+     */
+    long getValueAtQuantile(double quantile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    /**
+     * Pass the upper bound and count of every non-empty bucket, in order
+     */
+    void forEachBucket(BiConsumer<Long, Long> consumer) {
+        for (int i = 0; i < counts.length(); i++) {
+            long bucketCount = counts.get(i);
+            if (bucketCount > 0) {
+                consumer.accept(highestValueOf(i), bucketCount);
+            }
+        }
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,200 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.OperationStats;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts, error counts and latency histograms per Git operation, shared
+ * by every GitService of the application. Snapshots feed the Performance
+ * tab; toJson() gives the same figures plus the raw histogram buckets,
+ * for attaching to bug reports.
+ */
+public class OperationMetrics {
+    private static final OperationMetrics DEFAULT = new OperationMetrics();
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final TraceRecorder trace = TraceRecorder.getDefault();
+    private volatile Instant since = Instant.now();
+
+    /**
+     * A timed call that returns a value
+     */
+    @FunctionalInterface
+    public interface TimedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * A timed call without a result
+     */
+    @FunctionalInterface
+    public interface TimedAction<E extends Exception> {
+        void run() throws E;
+    }
+
+    private static class Operation {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+    }
+
+    public static OperationMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Run and time a call. A call that throws is counted as an error.
+     * When tracing is enabled the call is also recorded as a span, marked
+     * with an error arg when it threw.
+     */
+    public <T, E extends Exception> T call(String name, TimedCall<T, E> call) throws E {
+        long start = System.nanoTime();
+        boolean failed = true;
+        TraceRecorder.Span span = trace.begin("git", name);
+        try {
+            T result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            if (failed) {
+                span.arg("error", true);
+            }
+            span.close();
+            record(name, System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Run and time an action. An action that throws is counted as an error.
+     */
+    public <E extends Exception> void run(String name, TimedAction<E> action) throws E {
+        call(name, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Record a duration measured elsewhere
+     */
+    public void record(String name, long nanos, boolean failed) {
+        Operation operation = operation(name);
+        operation.latencies.recordNanos(nanos);
+        if (failed) {
+            operation.errors.increment();
+        }
+    }
+
+    /**
+     * Add bytes transferred by an operation
+     */
+    public void addBytes(String name, long bytes) {
+        if (bytes > 0) {
+            operation(name).bytes.add(bytes);
+        }
+    }
+
+    /**
+     * Current figures of every operation recorded so far, by name
+     */
+    public List<OperationStats> getSnapshot() {
+        List<OperationStats> snapshot = new ArrayList<>();
+        for (Map.Entry<String, Operation> entry : new TreeMap<>(operations).entrySet()) {
+            snapshot.add(toStats(entry.getKey(), entry.getValue()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Start of the recording, i.e. creation or the last reset
+     */
+    public Instant getSince() {
+        return since;
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    public void reset() {
+        operations.clear();
+        since = Instant.now();
+    }
+
+    /**
+     * All figures as a JSON document, including the non-empty histogram
+     * buckets as [upper bound in µs, count] pairs
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"since\": \"").append(since).append("\",\n");
+        json.append("  \"generated\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"java\": \"").append(Json.escape(System.getProperty("java.version"))).append("\",\n");
+        json.append("  \"os\": \"").append(Json.escape(System.getProperty("os.name") + " "
+                + System.getProperty("os.version"))).append("\",\n");
+        json.append("  \"operations\": [");
+        String separator = "\n";
+        for (Map.Entry<String, Operation> entry : new TreeMap<>(operations).entrySet()) {
+            OperationStats stats = toStats(entry.getKey(), entry.getValue());
+            json.append(separator);
+            separator = ",\n";
+            json.append("    {\"name\": \"").append(Json.escape(stats.getName())).append('"')
+                    .append(", \"count\": ").append(stats.getCount())
+                    .append(", \"errors\": ").append(stats.getErrors())
+                    .append(", \"bytes\": ").append(stats.getBytes())
+                    .append(", \"meanMicros\": ").append(stats.getMeanMicros())
+                    .append(", \"p50Micros\": ").append(stats.getP50Micros())
+                    .append(", \"p90Micros\": ").append(stats.getP90Micros())
+                    .append(", \"p99Micros\": ").append(stats.getP99Micros())
+                    .append(", \"maxMicros\": ").append(stats.getMaxMicros())
+                    .append(", \"histogram\": [");
+            StringBuilder buckets = new StringBuilder();
+            entry.getValue().latencies.forEachBucket((upperMicros, count) -> {
+                if (buckets.length() > 0) {
+                    buckets.append(", ");
+                }
+                buckets.append('[').append(upperMicros).append(", ").append(count).append(']');
+            });
+            json.append(buckets).append("]}");
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * Write toJson() to a file, replacing it
+     */
+    public void writeJson(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    private Operation operation(String name) {
+        return operations.computeIfAbsent(name, key -> new Operation());
+    }
+
+    private static OperationStats toStats(String name, Operation operation) {
+        LatencyHistogram latencies = operation.latencies;
+        return new OperationStats(name, latencies.getCount(), operation.errors.sum(), operation.bytes.sum(),
+                latencies.getMeanMicros(), latencies.getValueAtQuantile(0.50),
+                latencies.getValueAtQuantile(0.90), latencies.getValueAtQuantile(0.99),
+                latencies.getMaxMicros());
+    }
+}
@@ -0,0 +1,212 @@
+package com.ppm.gitppm.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only table of repository paths, stored as a trie of interned
+ * path segments. A path is an int id naming its trie node; node 0 is the
+ * root (the empty path). Each distinct segment is kept once as UTF-8 in
+ * a shared byte arena, so thousands of files in the same directories
+ * cost a few bytes each instead of a String per path.
+ * <p>
+ * intern() must be called by one thread at a time. path() may be called
+ * from any thread for ids handed over through a thread-safe publication,
+ * e.g. a StatusSnapshot passed to the JavaFX thread.
+ */
+final class PathTable {
+    private static final int ROOT = 0;
+    private static final byte SEPARATOR = '/';
+
+    // Segment i is segmentBytes[segmentOffsets[i], segmentOffsets[i + 1])
+    private volatile byte[] segmentBytes = new byte[4096];
+    private volatile int[] segmentOffsets = new int[257];
+    private int segmentCount = 0;
+    private int[] segmentSlots = new int[512];
+
+    // Node i is segment nodeSegments[i] below node nodeParents[i]
+    private volatile int[] nodeParents = new int[256];
+    private volatile int[] nodeSegments = new int[256];
+    private int nodeCount = 1;
+    private int[] nodeSlots = new int[512];
+
+    /**
+     * Id of a path, adding it and its parent directories if new
+     */
+    int intern(String path) {
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        int node = ROOT;
+        int start = 0;
+        while (start < bytes.length) {
+            int end = indexOfSeparator(bytes, start);
+            int segment = internSegment(bytes, start, end);
+            node = internNode(node, segment);
+            start = end + 1;
+        }
+        return node;
+    }
+
+    /**
+     * Number of paths in the table, including the root and directories
+     */
+    int size() {
+        return nodeCount;
+    }
+
+    /**
+     * The path of an id, with '/' separators
+     */
+    String path(int node) {
+        if (node == ROOT) {
+            return "";
+        }
+        int[] parents = nodeParents;
+        int[] segments = nodeSegments;
+        int[] offsets = segmentOffsets;
+        byte[] arena = segmentBytes;
+
+        int length = -1;
+        int depth = 0;
+        for (int current = node; current != ROOT; current = parents[current]) {
+            int segment = segments[current];
+            length += offsets[segment + 1] - offsets[segment] + 1;
+            depth++;
+        }
+        byte[] bytes = new byte[length];
+        int end = length;
+        for (int current = node; current != ROOT; current = parents[current]) {
+            int segment = segments[current];
+            int segmentLength = offsets[segment + 1] - offsets[segment];
+            end -= segmentLength;
+            System.arraycopy(arena, offsets[segment], bytes, end, segmentLength);
+            if (--depth > 0) {
+                bytes[--end] = SEPARATOR;
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOfSeparator(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            // '/' never occurs inside a multi-byte UTF-8 sequence
+            if (bytes[i] == SEPARATOR) {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    private int internSegment(byte[] bytes, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int mask = segmentSlots.length - 1;
+        int slot = mix(hash) & mask;
+        while (segmentSlots[slot] != 0) {
+            int candidate = segmentSlots[slot] - 1;
+            if (segmentEquals(candidate, bytes, start, end)) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = segmentCount;
+        int length = end - start;
+        int used = segmentOffsets[id];
+        byte[] arena = segmentBytes;
+        if (used + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, used + length));
+        }
+        System.arraycopy(bytes, start, arena, used, length);
+        segmentBytes = arena;
+        int[] offsets = segmentOffsets;
+        if (id + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[id + 1] = used + length;
+        segmentOffsets = offsets;
+        segmentCount++;
+
+        segmentSlots[slot] = id + 1;
+        if (segmentCount * 2 > segmentSlots.length) {
+            segmentSlots = rehash(segmentSlots, this::segmentHash);
+        }
+        return id;
+    }
+
+    private boolean segmentEquals(int segment, byte[] bytes, int start, int end) {
+        int from = segmentOffsets[segment];
+        int to = segmentOffsets[segment + 1];
+        return Arrays.equals(segmentBytes, from, to, bytes, start, end);
+    }
+
+    private int segmentHash(int segment) {
+        byte[] arena = segmentBytes;
+        int hash = 1;
+        for (int i = segmentOffsets[segment]; i < segmentOffsets[segment + 1]; i++) {
+            hash = 31 * hash + arena[i];
+        }
+        return mix(hash);
+    }
+
+    private int internNode(int parent, int segment) {
+        int mask = nodeSlots.length - 1;
+        int slot = nodeHash(parent, segment) & mask;
+        while (nodeSlots[slot] != 0) {
+            int candidate = nodeSlots[slot] - 1;
+            if (nodeParents[candidate] == parent && nodeSegments[candidate] == segment) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = nodeCount;
+        int[] parents = nodeParents;
+        int[] segments = nodeSegments;
+        if (id >= parents.length) {
+            parents = Arrays.copyOf(parents, parents.length * 2);
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        parents[id] = parent;
+        segments[id] = segment;
+        nodeParents = parents;
+        nodeSegments = segments;
+        nodeCount++;
+
+        nodeSlots[slot] = id + 1;
+        if (nodeCount * 2 > nodeSlots.length) {
+            nodeSlots = rehash(nodeSlots, node -> nodeHash(nodeParents[node], nodeSegments[node]));
+        }
+        return id;
+    }
+
+    private static int nodeHash(int parent, int segment) {
+        return mix(parent * 0x9E3779B1 + segment);
+    }
+
+    private interface IdHash {
+        int hash(int id);
+    }
+
+    private static int[] rehash(int[] slots, IdHash hash) {
+        int[] grown = new int[slots.length * 2];
+        int mask = grown.length - 1;
+        for (int entry : slots) {
+            if (entry != 0) {
+                int slot = hash.hash(entry - 1) & mask;
+                while (grown[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                grown[slot] = entry;
+            }
+        }
+        return grown;
+    }
+
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 13);
+    }
+}
@@ -0,0 +1,198 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.CacheStatistics;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.storage.file.WindowCacheStats;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps recently used repositories open, so reopening a repository
+ * (switching back to it, or opening it in the workspace and the main
+ * window) reuses its ref database and pack list instead of rescanning.
+ * Repositories are leased with acquire() and handed back with release().
+ * Released repositories stay open until they are the least recently used
+ * beyond the maximum count, or idle longer than the timeout:
+ * -Dgitppm.registry.maxOpen=8
+ * -Dgitppm.registry.idleSeconds=600
+ * Leased repositories are never closed, so the count may exceed the
+ * maximum while many are in use.
+ */
+public class RepositoryRegistry {
+    public static final int DEFAULT_MAX_OPEN = 8;
+    public static final long DEFAULT_IDLE_SECONDS = 600;
+
+    private static final RepositoryRegistry DEFAULT = new RepositoryRegistry(
+            Integer.getInteger("gitppm.registry.maxOpen", DEFAULT_MAX_OPEN),
+            Long.getLong("gitppm.registry.idleSeconds", DEFAULT_IDLE_SECONDS));
+
+    private final int maxOpen;
+    private final long idleNanos;
+    // Access ordered: iteration starts at the least recently used entry. Guarded by "this".
+    private final Map<File, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+    private long evictions;
+    private ScheduledExecutorService sweeper;
+
+    private static class Entry {
+        private final Repository repository;
+        private int leases;
+        private long lastUsed;
+
+        Entry(Repository repository) {
+            this.repository = repository;
+        }
+    }
+
+    public RepositoryRegistry(int maxOpen, long idleSeconds) {
+        this.maxOpen = Math.max(0, maxOpen);
+        this.idleNanos = TimeUnit.SECONDS.toNanos(Math.max(1, idleSeconds));
+    }
+
+    /**
+     * Registry shared by all GitService instances
+     */
+    public static RepositoryRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Lease the repository with the given .git directory, opening it if
+     * it is not open yet. Every acquire must be matched by a release.
+     */
+    public Repository acquire(File gitDir) throws IOException {
+        File key = gitDir.getCanonicalFile();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                entry.leases++;
+                return entry.repository;
+            }
+        }
+
+        // Open outside the lock, opening reads config and refs from disk
+        Repository opened = new FileRepositoryBuilder()
+                .setGitDir(key)
+                .readEnvironment()
+                .setMustExist(true)
+                .build();
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                // Lost a race with another caller opening the same repository
+                hits++;
+                entry.leases++;
+                opened.close();
+                return entry.repository;
+            }
+            misses++;
+            entry = new Entry(opened);
+            entry.leases = 1;
+            entries.put(key, entry);
+            startSweeper();
+            return opened;
+        }
+    }
+
+    /**
+     * Hand back a leased repository. It stays open for later acquires.
+     */
+    public void release(Repository repository) {
+        List<Repository> evicted;
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (entry.repository == repository) {
+                    entry.leases = Math.max(0, entry.leases - 1);
+                    entry.lastUsed = System.nanoTime();
+                    break;
+                }
+            }
+            evicted = evict(false);
+        }
+        closeAll(evicted);
+    }
+
+    /**
+     * Close every repository no longer leased
+     */
+    public void evictIdle() {
+        List<Repository> evicted;
+        synchronized (this) {
+            evicted = evict(true);
+        }
+        closeAll(evicted);
+    }
+
+    public synchronized CacheStatistics getStatistics() {
+        WindowCacheStats window = WindowCacheStats.getStats();
+        return new CacheStatistics(entries.size(), hits, misses, evictions,
+                window.getHitCount(), window.getMissCount(), window.getEvictionCount(),
+                window.getOpenByteCount(), window.getOpenFileCount());
+    }
+
+    /**
+     * Remove unleased entries that are over the count limit, least
+     * recently used first, or idle too long (or all of them)
+     */
+    private List<Repository> evict(boolean all) {
+        List<Repository> evicted = new ArrayList<>();
+        long now = System.nanoTime();
+        int excess = entries.size() - maxOpen;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry.leases > 0) {
+                continue;
+            }
+            if (all || excess > 0 || now - entry.lastUsed > idleNanos) {
+                it.remove();
+                evicted.add(entry.repository);
+                evictions++;
+                excess--;
+            }
+        }
+        if (entries.isEmpty() && sweeper != null) {
+            sweeper.shutdown();
+            sweeper = null;
+        }
+        return evicted;
+    }
+
+    private void startSweeper() {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("RepositoryRegistrySweeper");
+            return thread;
+        });
+        long period = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(idleNanos) / 2);
+        sweeper.scheduleWithFixedDelay(() -> {
+            List<Repository> evicted;
+            synchronized (this) {
+                evicted = evict(false);
+            }
+            closeAll(evicted);
+        }, period, period, TimeUnit.SECONDS);
+    }
+
+    private static void closeAll(List<Repository> repositories) {
+        for (Repository repository : repositories) {
+            repository.close();
+        }
+    }
+}
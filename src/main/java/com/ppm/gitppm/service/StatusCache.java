@@ -0,0 +1,187 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.FileChange;
+import org.eclipse.jgit.api.Status;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the last known repository status in memory so that file watcher
+ * events only need to re-evaluate the paths they touched.
+ * <p>
+ * The status is held as a StatusSnapshot: path ids into a PathTable plus
+ * one byte per entry, sorted by path. Every update builds new arrays, so
+ * snapshots handed out earlier stay valid and cost nothing to take.
+ */
+public class StatusCache {
+    // A table this many times larger than the status is rebuilt on the next full scan
+    private static final int COMPACT_FACTOR = 4;
+
+    private PathTable paths = new PathTable();
+    private StatusSnapshot current = new StatusSnapshot(paths, new int[0], new byte[0]);
+    private boolean populated = false;
+
+    /**
+     * One status entry while converting a JGit status
+     */
+    private static final class Entry {
+        private final String path;
+        private final byte flags;
+
+        Entry(String path, byte flags) {
+            this.path = path;
+            this.flags = flags;
+        }
+    }
+
+    /**
+     * Replace the whole cache with the result of a full status scan
+     */
+    public synchronized void replaceAll(Status status) {
+        List<Entry> entries = toEntries(status);
+        if (paths.size() > COMPACT_FACTOR * (entries.size() + 1024)) {
+            // Paths of files that are long gone would otherwise stay interned forever
+            paths = new PathTable();
+        }
+        int[] nodes = new int[entries.size()];
+        byte[] flags = new byte[entries.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            Entry entry = entries.get(i);
+            nodes[i] = paths.intern(entry.path);
+            flags[i] = entry.flags;
+        }
+        current = new StatusSnapshot(paths, nodes, flags);
+        populated = true;
+    }
+
+    /**
+     * Merge the result of a path-limited status scan into the cache.
+     * Every cached entry at or below one of the given paths is dropped
+     * and replaced by the freshly computed changes.
+     */
+    public synchronized void merge(Collection<String> changedPaths, Status status) {
+        StatusSnapshot old = current;
+        BitSet removed = new BitSet(old.size());
+        for (String path : changedPaths) {
+            if (path.isEmpty()) {
+                removed.set(0, old.size());
+                break;
+            }
+            removed.set(lowerBound(old, path), upperBound(old, path));
+            // '/' + 1 == '0', so this range covers exactly the entries below "path/"
+            removed.set(lowerBound(old, path + "/"), lowerBound(old, path + "0"));
+        }
+
+        List<Entry> added = toEntries(status);
+        int size = old.size() - removed.cardinality() + added.size();
+        int[] nodes = new int[size];
+        byte[] flags = new byte[size];
+        int target = 0;
+        int next = 0;
+        for (Entry entry : added) {
+            int position = upperBound(old, entry.path);
+            for (; next < position; next++) {
+                if (!removed.get(next)) {
+                    nodes[target] = old.getNode(next);
+                    flags[target++] = old.getFlags(next);
+                }
+            }
+            nodes[target] = paths.intern(entry.path);
+            flags[target++] = entry.flags;
+        }
+        for (; next < old.size(); next++) {
+            if (!removed.get(next)) {
+                nodes[target] = old.getNode(next);
+                flags[target++] = old.getFlags(next);
+            }
+        }
+        current = new StatusSnapshot(paths, nodes, flags);
+    }
+
+    /**
+     * Forget the cached status so the next lookup does a full rescan
+     */
+    public synchronized void invalidate() {
+        current = new StatusSnapshot(paths, new int[0], new byte[0]);
+        populated = false;
+    }
+
+    /**
+     * Check if the cache holds the result of a full scan
+     */
+    public synchronized boolean isPopulated() {
+        return populated;
+    }
+
+    /**
+     * Get the cached changes, sorted by path
+     */
+    public synchronized StatusSnapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * Entries of a JGit status, sorted by path. A path listed in several
+     * sets keeps the order of the sets below.
+     */
+    private static List<Entry> toEntries(Status status) {
+        List<Entry> entries = new ArrayList<>();
+        add(entries, status.getAdded(), FileChange.ChangeType.ADDED, true);
+        add(entries, status.getModified(), FileChange.ChangeType.MODIFIED, false);
+        add(entries, status.getChanged(), FileChange.ChangeType.MODIFIED, true);
+        add(entries, status.getRemoved(), FileChange.ChangeType.DELETED, true);
+        add(entries, status.getMissing(), FileChange.ChangeType.MISSING, false);
+        add(entries, status.getUntracked(), FileChange.ChangeType.UNTRACKED, false);
+        add(entries, status.getConflicting(), FileChange.ChangeType.CONFLICTING, false);
+        // Stable, so equal paths stay in set order
+        entries.sort(Comparator.comparing(entry -> entry.path));
+        return entries;
+    }
+
+    private static void add(List<Entry> entries, Set<String> files, FileChange.ChangeType changeType,
+                            boolean staged) {
+        byte flags = StatusSnapshot.pack(changeType, staged);
+        for (String file : files) {
+            entries.add(new Entry(file, flags));
+        }
+    }
+
+    /**
+     * First index whose path is not less than the given one
+     */
+    private static int lowerBound(StatusSnapshot snapshot, String path) {
+        int low = 0;
+        int high = snapshot.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (snapshot.getPath(middle).compareTo(path) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First index whose path is greater than the given one
+     */
+    private static int upperBound(StatusSnapshot snapshot, String path) {
+        int low = 0;
+        int high = snapshot.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (snapshot.getPath(middle).compareTo(path) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
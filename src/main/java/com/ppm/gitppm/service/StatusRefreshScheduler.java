@@ -0,0 +1,118 @@
+package com.ppm.gitppm.service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * Decides which workspace repository refreshes its status next.
+ * Requests for the same repository are merged while they wait: changed
+ * paths accumulate, and a full rescan absorbs everything else. At most
+ * maxConcurrent refreshes run at once and never two for one repository,
+ * so a burst of events across many repositories cannot occupy the whole
+ * shared pool. The foreground repository goes first, then the one
+ * selected in the workspace list, then the rest in request order.
+ */
+class StatusRefreshScheduler {
+    private final int maxConcurrent;
+    private final BiFunction<WorkspaceRepository, Set<String>, CompletableFuture<?>> refresher;
+
+    // Guarded by "this". A null path set means a full rescan.
+    private final Map<WorkspaceRepository, Set<String>> pending = new LinkedHashMap<>();
+    private final Set<WorkspaceRepository> running = new HashSet<>();
+    private WorkspaceRepository focused;
+    private boolean shutdown = false;
+
+    /**
+     * @param refresher starts the refresh of a repository for the given
+     *                  paths (null for all) and returns its completion
+     */
+    StatusRefreshScheduler(int maxConcurrent,
+                           BiFunction<WorkspaceRepository, Set<String>, CompletableFuture<?>> refresher) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.refresher = refresher;
+    }
+
+    /**
+     * Request a refresh of the given paths, or of the whole repository
+     * when paths is null or contains the empty path
+     */
+    synchronized void request(WorkspaceRepository repository, Collection<String> paths) {
+        if (shutdown) {
+            return;
+        }
+        boolean full = paths == null || paths.contains("");
+        if (pending.containsKey(repository)) {
+            Set<String> waiting = pending.get(repository);
+            if (waiting != null) {
+                if (full) {
+                    pending.put(repository, null);
+                } else {
+                    waiting.addAll(paths);
+                }
+            }
+        } else {
+            pending.put(repository, full ? null : new HashSet<>(paths));
+        }
+        startNext();
+    }
+
+    synchronized void setFocused(WorkspaceRepository repository) {
+        focused = repository;
+    }
+
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    synchronized void shutdown() {
+        shutdown = true;
+        pending.clear();
+    }
+
+    private void startNext() {
+        while (running.size() < maxConcurrent) {
+            WorkspaceRepository next = pickNext();
+            if (next == null) {
+                return;
+            }
+            Set<String> paths = pending.remove(next);
+            running.add(next);
+
+            CompletableFuture<?> refresh;
+            try {
+                refresh = refresher.apply(next, paths);
+            } catch (RuntimeException e) {
+                refresh = CompletableFuture.failedFuture(e);
+            }
+            refresh.whenComplete((result, error) -> finished(next));
+        }
+    }
+
+    private synchronized void finished(WorkspaceRepository repository) {
+        running.remove(repository);
+        if (!shutdown) {
+            startNext();
+        }
+    }
+
+    private WorkspaceRepository pickNext() {
+        WorkspaceRepository first = null;
+        for (WorkspaceRepository candidate : pending.keySet()) {
+            if (running.contains(candidate)) {
+                continue;
+            }
+            if (candidate.isForeground()) {
+                return candidate;
+            }
+            if (first == null || candidate == focused) {
+                first = candidate;
+            }
+        }
+        return first;
+    }
+}
@@ -0,0 +1,101 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.FileChange;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable repository status, sorted by path. Each entry is a path id
+ * and one byte holding the change type and the staged flag, about five
+ * bytes per entry on top of the shared PathTable. get() creates a
+ * FileChange on demand, so a list view only materializes the rows it
+ * shows; the indexed accessors avoid even that.
+ */
+public final class StatusSnapshot extends AbstractList<FileChange> implements RandomAccess {
+    private static final FileChange.ChangeType[] CHANGE_TYPES = FileChange.ChangeType.values();
+    private static final int STAGED = 0x10;
+    private static final int TYPE_MASK = 0x0F;
+
+    private final PathTable paths;
+    private final int[] nodes;
+    private final byte[] flags;
+
+    /**
+     * @param nodes path ids, owned by the snapshot from now on
+     * @param flags packed entries, see pack(), owned by the snapshot
+     */
+    StatusSnapshot(PathTable paths, int[] nodes, byte[] flags) {
+        this.paths = paths;
+        this.nodes = nodes;
+        this.flags = flags;
+    }
+
+    static byte pack(FileChange.ChangeType changeType, boolean staged) {
+        return (byte) (changeType.ordinal() | (staged ? STAGED : 0));
+    }
+
+    @Override
+    public FileChange get(int index) {
+        return new FileChange(getPath(index), getChangeType(index), isStaged(index));
+    }
+
+    @Override
+    public int size() {
+        return nodes.length;
+    }
+
+    public String getPath(int index) {
+        return paths.path(nodes[index]);
+    }
+
+    public FileChange.ChangeType getChangeType(int index) {
+        return CHANGE_TYPES[flags[index] & TYPE_MASK];
+    }
+
+    public boolean isStaged(int index) {
+        return (flags[index] & STAGED) != 0;
+    }
+
+    /**
+     * Paths of all staged entries
+     */
+    public List<String> getStagedPaths() {
+        List<String> staged = new ArrayList<>();
+        for (int i = 0; i < nodes.length; i++) {
+            if ((flags[i] & STAGED) != 0) {
+                staged.add(paths.path(nodes[i]));
+            }
+        }
+        return staged;
+    }
+
+    /**
+     * Whether an entry of this snapshot and one of another snapshot have
+     * the same path, change type and staged flag. Cheap for snapshots of
+     * the same StatusCache, which share their path table.
+     */
+    public boolean isSameEntry(int index, StatusSnapshot other, int otherIndex) {
+        if (flags[index] != other.flags[otherIndex]) {
+            return false;
+        }
+        if (paths == other.paths) {
+            return nodes[index] == other.nodes[otherIndex];
+        }
+        return getPath(index).equals(other.getPath(otherIndex));
+    }
+
+    int getNode(int index) {
+        return nodes[index];
+    }
+
+    byte getFlags(int index) {
+        return flags[index];
+    }
+
+    PathTable getPathTable() {
+        return paths;
+    }
+}
@@ -0,0 +1,460 @@
+package com.ppm.gitppm.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records spans of Git operations, executor tasks, file watcher batches
+ * and UI updates into rotating trace files, when enabled with
+ * -Dgitppm.trace or the GITPPM_TRACE environment variable ("true" for
+ * ~/.gitppm/traces, or a directory).
+ * <p>
+ * Files hold one Chrome Trace Event per line (JSON-lines), so a file cut
+ * short by a crash or rotation still parses line by line. chrome://tracing
+ * and ui.perfetto.dev expect a JSON array instead; main() joins one or
+ * more files into one, see {@link #convert(List, Path)}. Spans on one
+ * thread nest by time; work handed to another thread carries a Link to
+ * the span that submitted it, drawn as a flow arrow (watcher batch to
+ * status task to list update). Every span also lists its own and its
+ * parent's id in its args.
+ * <p>
+ * Events are queued and written by a background thread; when the queue
+ * is full, events are dropped rather than slowing the caller down.
+ * Disabled, begin() returns a shared no-op span and link() returns null.
+ */
+public class TraceRecorder {
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final long MAX_FILE_BYTES = Long.getLong("gitppm.trace.maxFileMb", 64) << 20;
+    private static final int MAX_FILES = Integer.getInteger("gitppm.trace.maxFiles", 5);
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // Created after the constants above, which the constructor uses
+    private static final TraceRecorder DEFAULT = new TraceRecorder(traceDirectory());
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final long originNanos = System.nanoTime();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final ThreadLocal<Span> currentSpan = new ThreadLocal<>();
+    private final BlockingQueue<Event> queue;
+
+    // Guarded by write(), which the writer thread and the exit hook call
+    private final String filePrefix = "gitppm-trace-" + LocalDateTime.now().format(FILE_TIME_FORMAT);
+    private final Deque<Path> files = new ArrayDeque<>();
+    private final Set<Long> namedThreads = new HashSet<>();
+    private Writer writer;
+    private long fileBytes;
+    private int fileSequence;
+
+    /**
+     * Point in a span where work was handed to another thread
+     */
+    public static final class Link {
+        private final long spanId;
+        private final long timestamp;
+        private final Thread thread;
+
+        private Link(long spanId, long timestamp, Thread thread) {
+            this.spanId = spanId;
+            this.timestamp = timestamp;
+            this.thread = thread;
+        }
+    }
+
+    /**
+     * A timed region on one thread, recorded when closed. Spans must be
+     * closed on the thread that began them, innermost first.
+     */
+    public static final class Span implements AutoCloseable {
+        private static final Span NOOP = new Span(null, null, null, 0, 0, null);
+
+        private final TraceRecorder recorder;
+        private final String category;
+        private final String name;
+        private final long id;
+        private final long parentId;
+        private final Span outer;
+        private final long start;
+        private Map<String, Object> args;
+
+        private Span(TraceRecorder recorder, String category, String name, long id, long parentId, Span outer) {
+            this.recorder = recorder;
+            this.category = category;
+            this.name = name;
+            this.id = id;
+            this.parentId = parentId;
+            this.outer = outer;
+            this.start = recorder != null ? recorder.now() : 0;
+        }
+
+        /**
+         * Attach a value shown with the span, e.g. a file count
+         */
+        public Span arg(String key, Object value) {
+            if (recorder != null) {
+                if (args == null) {
+                    args = new LinkedHashMap<>();
+                }
+                args.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (recorder == null) {
+                return;
+            }
+            recorder.currentSpan.set(outer);
+            Map<String, Object> allArgs = new LinkedHashMap<>();
+            allArgs.put("id", id);
+            if (parentId != 0) {
+                allArgs.put("parent", parentId);
+            }
+            if (args != null) {
+                allArgs.putAll(args);
+            }
+            recorder.enqueue(new Event('X', category, name, start, recorder.now() - start,
+                    Thread.currentThread(), 0, allArgs));
+        }
+    }
+
+    private static final class Event {
+        private final char phase;
+        private final String category;
+        private final String name;
+        private final long timestamp;
+        private final long duration;
+        private final long threadId;
+        private final String threadName;
+        private final long flowId;
+        private final Map<String, Object> args;
+
+        Event(char phase, String category, String name, long timestamp, long duration, Thread thread,
+              long flowId, Map<String, Object> args) {
+            this.phase = phase;
+            this.category = category;
+            this.name = name;
+            this.timestamp = timestamp;
+            this.duration = duration;
+            this.threadId = thread.getId();
+            this.threadName = thread.getName();
+            this.flowId = flowId;
+            this.args = args;
+        }
+    }
+
+    TraceRecorder(Path directory) {
+        this(directory, MAX_FILE_BYTES, MAX_FILES);
+        if (directory == null) {
+            return;
+        }
+        Thread writerThread = new Thread(this::writeLoop, "TraceWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "TraceFlush"));
+    }
+
+    /**
+     * Recorder without a writer thread, whose events are written only by
+     * flush(), for tests
+     */
+    TraceRecorder(Path directory, long maxFileBytes, int maxFiles) {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        queue = directory != null ? new ArrayBlockingQueue<>(QUEUE_CAPACITY) : null;
+    }
+
+    public static TraceRecorder getDefault() {
+        return DEFAULT;
+    }
+
+    public boolean isEnabled() {
+        return queue != null;
+    }
+
+    /**
+     * Directory the trace files are written to, or null when disabled
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Events lost because the writer could not keep up
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Begin a span nested in the current span of this thread, if any
+     */
+    public Span begin(String category, String name) {
+        return begin(category, name, null);
+    }
+
+    /**
+     * Begin a span for work handed over from another thread. Without a
+     * link it nests in the current span of this thread, if any.
+     */
+    public Span begin(String category, String name, Link link) {
+        if (!isEnabled()) {
+            return Span.NOOP;
+        }
+        Span outer = currentSpan.get();
+        long parentId = link != null ? link.spanId : outer != null ? outer.id : 0;
+        Span span = new Span(this, category, name, nextId.incrementAndGet(), parentId, outer);
+        currentSpan.set(span);
+        if (link != null) {
+            enqueue(new Event('s', category, name, link.timestamp, 0, link.thread, span.id, null));
+            enqueue(new Event('f', category, name, span.start, 0, Thread.currentThread(), span.id, null));
+        }
+        return span;
+    }
+
+    /**
+     * Capture the current span of this thread, to parent work that will
+     * run elsewhere. Null when disabled or outside any span.
+     */
+    public Link link() {
+        if (!isEnabled()) {
+            return null;
+        }
+        Span current = currentSpan.get();
+        return current != null ? new Link(current.id, now(), Thread.currentThread()) : null;
+    }
+
+    /**
+     * Wrap a task so it runs in a span linked to the current span of the
+     * submitting thread
+     */
+    public Runnable wrap(String category, String name, Runnable task) {
+        if (!isEnabled()) {
+            return task;
+        }
+        Link link = link();
+        return () -> {
+            Span span = begin(category, name, link);
+            try {
+                task.run();
+            } finally {
+                span.close();
+            }
+        };
+    }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - originNanos);
+    }
+
+    private void enqueue(Event event) {
+        if (!queue.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void writeLoop() {
+        List<Event> batch = new ArrayList<>();
+        try {
+            while (true) {
+                Event first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write whatever is still queued, e.g. at exit
+     */
+    public void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        List<Event> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        write(batch);
+    }
+
+    private synchronized void write(List<Event> events) {
+        try {
+            for (Event event : events) {
+                if (writer == null || fileBytes >= maxFileBytes) {
+                    rotate();
+                }
+                if (namedThreads.add(event.threadId)) {
+                    writeLine("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + event.threadId
+                            + ",\"args\":{\"name\":\"" + Json.escape(event.threadName) + "\"}}");
+                }
+                writeLine(toJson(event));
+            }
+            if (writer != null) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write trace: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start a new file, deleting the oldest once more than the allowed
+     * number exist
+     */
+    private void rotate() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+        Files.createDirectories(directory);
+        // Numbered by a sequence rather than by the number of files kept, so
+        // names stay unique and in order after the oldest are deleted
+        Path file;
+        do {
+            file = directory.resolve(filePrefix + "-" + ++fileSequence + ".jsonl");
+        } while (Files.exists(file));
+        files.addLast(file);
+        while (files.size() > maxFiles) {
+            Files.deleteIfExists(files.removeFirst());
+        }
+        writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+        fileBytes = 0;
+        namedThreads.clear();
+        writeLine("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"args\":{\"name\":\"Git PPM\"}}");
+    }
+
+    private void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+        fileBytes += utf8Length(line) + 1;
+    }
+
+    private static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static String toJson(Event event) {
+        StringBuilder json = new StringBuilder(160);
+        json.append("{\"name\":\"").append(Json.escape(event.name))
+                .append("\",\"cat\":\"").append(Json.escape(event.category))
+                .append("\",\"ph\":\"").append(event.phase)
+                .append("\",\"ts\":").append(event.timestamp)
+                .append(",\"pid\":1,\"tid\":").append(event.threadId);
+        if (event.phase == 'X') {
+            json.append(",\"dur\":").append(event.duration);
+        } else {
+            json.append(",\"id\":").append(event.flowId);
+            if (event.phase == 'f') {
+                json.append(",\"bp\":\"e\"");
+            }
+        }
+        if (event.args != null) {
+            json.append(",\"args\":{");
+            String separator = "";
+            for (Map.Entry<String, Object> arg : event.args.entrySet()) {
+                json.append(separator).append('"').append(Json.escape(arg.getKey())).append("\":");
+                Object value = arg.getValue();
+                if (value instanceof Number || value instanceof Boolean) {
+                    json.append(value);
+                } else {
+                    json.append('"').append(Json.escape(String.valueOf(value))).append('"');
+                }
+                separator = ",";
+            }
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Join JSON-lines trace files, in order, into one JSON array file that
+     * chrome://tracing and ui.perfetto.dev open
+     */
+    public static void convert(List<Path> traceFiles, Path output) throws IOException {
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+            out.write('[');
+            String separator = "\n";
+            for (Path traceFile : traceFiles) {
+                try (BufferedReader in = Files.newBufferedReader(traceFile, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (!line.isBlank()) {
+                            out.write(separator);
+                            out.write(line);
+                            separator = ",\n";
+                        }
+                    }
+                }
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    /**
+     * Usage: TraceRecorder output.json trace.jsonl...
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TraceRecorder <output.json> <trace.jsonl>...");
+            System.exit(2);
+        }
+        List<Path> traceFiles = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            traceFiles.add(Paths.get(args[i]));
+        }
+        convert(traceFiles, Paths.get(args[0]));
+    }
+
+    private static Path traceDirectory() {
+        String setting = System.getProperty("gitppm.trace", System.getenv("GITPPM_TRACE"));
+        if (setting == null || setting.equalsIgnoreCase("false")) {
+            return null;
+        }
+        if (setting.isEmpty() || setting.equalsIgnoreCase("true")) {
+            return Paths.get(System.getProperty("user.home"), ".gitppm", "traces");
+        }
+        return Paths.get(setting);
+    }
+}
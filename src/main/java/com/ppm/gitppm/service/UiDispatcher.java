@@ -0,0 +1,199 @@
+package com.ppm.gitppm.service;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Funnels UI updates from any thread into one drain per JavaFX pulse.
+ * Instead of one Platform.runLater per event, updates are queued here and
+ * an AnimationTimer runs them on the next frame:
+ * - post(): runs every task, in submission order
+ * - postLatest(): per key only the newest task runs (labels, counts)
+ * - postBatch(): per key all items are handed over as one list (log lines)
+ * Within a drain, batches run first, then ordered tasks, then latest-wins
+ * tasks. The timer only runs while work is pending. When tracing, each
+ * task is a span linked to the span that posted it.
+ */
+public class UiDispatcher implements Executor {
+    private static final UiDispatcher DEFAULT = new UiDispatcher();
+
+    // All pending work, guarded by "this"
+    private List<Runnable> ordered = new ArrayList<>();
+    private Map<Object, Runnable> latest = new LinkedHashMap<>();
+    private Map<Object, PendingBatch<?>> batches = new LinkedHashMap<>();
+
+    private final AtomicBoolean timerRunning = new AtomicBoolean(false);
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong drains = new AtomicLong();
+    private final TraceRecorder trace = TraceRecorder.getDefault();
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    private static class PendingBatch<T> {
+        private final List<T> items = new ArrayList<>();
+        private Consumer<List<T>> consumer;
+        private TraceRecorder.Link link;
+
+        void deliver(TraceRecorder trace) {
+            try (TraceRecorder.Span span = trace.begin("ui", "batch", link)) {
+                span.arg("items", items.size());
+                consumer.accept(items);
+            }
+        }
+    }
+
+    /**
+     * Dispatcher shared by the controllers and services of the application
+     */
+    public static UiDispatcher getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Run a task on the next frame, after all tasks posted before it
+     */
+    public void post(Runnable task) {
+        submitted.incrementAndGet();
+        Runnable traced = trace.wrap("ui", "post", task);
+        synchronized (this) {
+            ordered.add(traced);
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Same as post(), so the dispatcher can be passed to
+     * CompletableFuture.whenCompleteAsync
+     */
+    @Override
+    public void execute(Runnable task) {
+        post(task);
+    }
+
+    /**
+     * Run a task on the next frame, replacing any task still pending
+     * under the same key
+     */
+    public void postLatest(Object key, Runnable task) {
+        submitted.incrementAndGet();
+        Runnable traced = trace.wrap("ui", "latest", task);
+        synchronized (this) {
+            latest.put(key, traced);
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Add an item to the batch for the given key. On the next frame the
+     * consumer receives every item added since the previous frame, in order.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void postBatch(Object key, T item, Consumer<List<T>> consumer) {
+        submitted.incrementAndGet();
+        TraceRecorder.Link link = trace.link();
+        synchronized (this) {
+            PendingBatch<T> batch = (PendingBatch<T>) batches.computeIfAbsent(key, k -> new PendingBatch<T>());
+            batch.items.add(item);
+            batch.consumer = consumer;
+            if (link != null) {
+                batch.link = link;
+            }
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Number of updates submitted through post, postLatest and postBatch
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * Number of tasks and batch deliveries actually run on the FX thread.
+     * The difference to the submitted count is the work saved by coalescing.
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * Number of frames in which pending work was drained
+     */
+    public long getDrainCount() {
+        return drains.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("UI updates: %d submitted, %d executed in %d frames",
+                submitted.get(), executed.get(), drains.get());
+    }
+
+    private void scheduleDrain() {
+        if (timerRunning.compareAndSet(false, true)) {
+            if (Platform.isFxApplicationThread()) {
+                timer.start();
+            } else {
+                Platform.runLater(timer::start);
+            }
+        }
+    }
+
+    private void drain() {
+        List<Runnable> tasks;
+        Map<Object, Runnable> latestTasks;
+        Map<Object, PendingBatch<?>> pendingBatches;
+        synchronized (this) {
+            if (ordered.isEmpty() && latest.isEmpty() && batches.isEmpty()) {
+                // Idle: stop requesting pulses until new work arrives
+                timer.stop();
+                timerRunning.set(false);
+                return;
+            }
+            tasks = ordered;
+            latestTasks = latest;
+            pendingBatches = batches;
+            ordered = new ArrayList<>();
+            latest = new LinkedHashMap<>();
+            batches = new LinkedHashMap<>();
+        }
+
+        drains.incrementAndGet();
+        try (TraceRecorder.Span span = trace.begin("ui", "frame")) {
+            span.arg("tasks", pendingBatches.size() + tasks.size() + latestTasks.size());
+            for (PendingBatch<?> batch : pendingBatches.values()) {
+                run(() -> batch.deliver(trace));
+            }
+            for (Runnable task : tasks) {
+                run(task);
+            }
+            for (Runnable task : latestTasks.values()) {
+                run(task);
+            }
+        }
+    }
+
+    private void run(Runnable task) {
+        executed.incrementAndGet();
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            System.err.println("UI update failed: " + e);
+        }
+    }
+}
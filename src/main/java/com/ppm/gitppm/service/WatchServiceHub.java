@@ -0,0 +1,190 @@
+package com.ppm.gitppm.service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Owns the threads and watch services that FileWatcherService instances
+ * share: one WatchService and polling thread per file system, one pool
+ * for directory registration walks and one scheduler for batch flushes.
+ * A workspace with many repositories thus needs a handful of threads
+ * instead of several per repository.
+ * <p>
+ * A directory registered by several watchers (nested repositories, or the
+ * same repository opened twice) has a single WatchKey. The hub keeps
+ * every handler of a key, hands each of them the same events, and only
+ * cancels the key when the last handler is unregistered.
+ */
+public class WatchServiceHub implements AutoCloseable {
+    private final Map<FileSystem, WatchService> watchServices = new ConcurrentHashMap<>();
+    private final Map<WatchKey, List<WatchHandler>> handlers = new ConcurrentHashMap<>();
+    private final ForkJoinPool registrationPool;
+    private final ScheduledExecutorService batchScheduler;
+    private volatile boolean closed = false;
+
+    /**
+     * Receives the events of a watched directory
+     */
+    @FunctionalInterface
+    public interface WatchHandler {
+        /**
+         * Called on the polling thread with the events of a signalled key.
+         * The hub resets the key once all its handlers were called; a key
+         * that is no longer valid afterwards should be unregistered.
+         */
+        void onEvents(WatchKey key, List<WatchEvent<?>> events);
+    }
+
+    public WatchServiceHub() {
+        registrationPool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setDaemon(true);
+                    thread.setName("FileWatcherRegistration-" + thread.getPoolIndex());
+                    return thread;
+                }, null, false);
+        batchScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("FileWatcherBatchThread");
+            return thread;
+        });
+    }
+
+    /**
+     * Watch a directory for creates, deletes and modifications. Registering
+     * a directory that is already watched adds the handler to its key.
+     */
+    public WatchKey register(Path directory, WatchHandler handler) throws IOException {
+        if (closed) {
+            throw new ClosedWatchServiceException();
+        }
+        WatchService service = watchServiceFor(directory.getFileSystem());
+        // Held until the handler is known, see poll(), and so that a key
+        // being returned here is not cancelled by unregister() meanwhile
+        synchronized (handlers) {
+            WatchKey key = directory.register(
+                    service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            );
+            handlers.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(handler);
+            return key;
+        }
+    }
+
+    /**
+     * Remove a handler of a key. The directory stays watched until its
+     * last handler is removed.
+     */
+    public void unregister(WatchKey key, WatchHandler handler) {
+        synchronized (handlers) {
+            List<WatchHandler> keyHandlers = handlers.get(key);
+            if (keyHandlers != null) {
+                keyHandlers.remove(handler);
+                if (!keyHandlers.isEmpty()) {
+                    return;
+                }
+                handlers.remove(key);
+            }
+            key.cancel();
+        }
+    }
+
+    /**
+     * Number of directories watched across all file systems
+     */
+    public int getWatchedDirectoryCount() {
+        return handlers.size();
+    }
+
+    ForkJoinPool getRegistrationPool() {
+        return registrationPool;
+    }
+
+    ScheduledExecutorService getBatchScheduler() {
+        return batchScheduler;
+    }
+
+    private WatchService watchServiceFor(FileSystem fileSystem) throws IOException {
+        WatchService existing = watchServices.get(fileSystem);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (watchServices) {
+            existing = watchServices.get(fileSystem);
+            if (existing != null) {
+                return existing;
+            }
+            WatchService service = fileSystem.newWatchService();
+            watchServices.put(fileSystem, service);
+            Thread poller = new Thread(() -> poll(service), "FileWatcherThread-" + watchServices.size());
+            poller.setDaemon(true);
+            poller.start();
+            return service;
+        }
+    }
+
+    private void poll(WatchService service) {
+        try {
+            while (!closed) {
+                WatchKey key = service.take();
+                List<WatchHandler> keyHandlers = handlers.get(key);
+                if (keyHandlers == null) {
+                    // The key may have fired between register() and put()
+                    synchronized (handlers) {
+                        keyHandlers = handlers.get(key);
+                    }
+                }
+                if (keyHandlers == null) {
+                    key.cancel();
+                    continue;
+                }
+                List<WatchEvent<?>> events = key.pollEvents();
+                for (WatchHandler handler : keyHandlers) {
+                    try {
+                        handler.onEvents(key, events);
+                    } catch (RuntimeException e) {
+                        System.err.println("File watcher handler failed: " + e.getMessage());
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Hub was closed
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (WatchService service : watchServices.values()) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                System.err.println("Error closing watch service: " + e.getMessage());
+            }
+        }
+        watchServices.clear();
+        handlers.clear();
+        registrationPool.shutdownNow();
+        batchScheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,273 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.AheadBehind;
+import com.ppm.gitppm.model.FileChange;
+import com.ppm.gitppm.model.GitCredentials;
+import com.ppm.gitppm.model.RepositorySummary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A set of repositories worked on side by side. All repositories added
+ * to the workspace share one bounded thread pool, one WatchService per
+ * file system and one status scheduler, so the thread count stays fixed
+ * however many repositories are open. Repositories are opened lazily,
+ * when their summary is first needed, and afterwards only the paths
+ * reported by the file watcher are re-evaluated.
+ * The pool size is set with -Dgitppm.workspace.threads.
+ */
+public class Workspace implements AutoCloseable {
+    public static final int DEFAULT_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    private final GitCredentials credentials;
+    private final ExecutorService pool;
+    private final WatchServiceHub watchHub;
+    private final StatusRefreshScheduler statusScheduler;
+    // Guarded by "this"
+    private final Map<Path, WorkspaceRepository> repositories = new LinkedHashMap<>();
+    private WorkspaceRepository foreground;
+    private volatile SummaryListener summaryListener = repository -> { };
+    private volatile boolean closed = false;
+
+    /**
+     * Notified on a background thread whenever a summary row changes
+     */
+    @FunctionalInterface
+    public interface SummaryListener {
+        void onSummaryChanged(WorkspaceRepository repository);
+    }
+
+    public Workspace(GitCredentials credentials) {
+        this(credentials, Integer.getInteger("gitppm.workspace.threads", DEFAULT_THREADS));
+    }
+
+    public Workspace(GitCredentials credentials, int threads) {
+        this.credentials = credentials;
+        this.pool = Executors.newFixedThreadPool(threads, GitTaskExecutor.threadFactory("WorkspaceWorker"));
+        this.watchHub = new WatchServiceHub();
+        // Leave half the pool to user actions while many repositories rescan
+        this.statusScheduler = new StatusRefreshScheduler(threads / 2, this::refresh);
+    }
+
+    public void setSummaryListener(SummaryListener summaryListener) {
+        this.summaryListener = summaryListener;
+    }
+
+    /**
+     * Watch services shared by all file watchers of the workspace
+     */
+    public WatchServiceHub getWatchHub() {
+        return watchHub;
+    }
+
+    /**
+     * Pool shared by all repositories of the workspace
+     */
+    public Executor getExecutor() {
+        return pool;
+    }
+
+    /**
+     * Add the repository of the main window. It keeps its own executor and
+     * file watcher; the workspace only schedules its summary refreshes,
+     * ahead of every other repository.
+     */
+    public synchronized WorkspaceRepository adopt(GitService gitService) {
+        WorkspaceRepository repository = new WorkspaceRepository(gitService);
+        WorkspaceRepository previous = repositories.put(repository.getPath(), repository);
+        if (previous != null) {
+            previous.close();
+        }
+        foreground = repository;
+        return repository;
+    }
+
+    /**
+     * Add a repository without opening it. Returns the existing entry if
+     * the path is already part of the workspace.
+     */
+    public synchronized WorkspaceRepository addRepository(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        return repositories.computeIfAbsent(normalized, WorkspaceRepository::new);
+    }
+
+    /**
+     * The directory itself if it is a repository, otherwise the
+     * repositories directly inside it
+     */
+    public static List<Path> findRepositories(Path directory) throws IOException {
+        if (Files.isDirectory(directory.resolve(".git"))) {
+            return List.of(directory);
+        }
+        try (Stream<Path> children = Files.list(directory)) {
+            return children.filter(child -> Files.isDirectory(child.resolve(".git")))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public synchronized List<WorkspaceRepository> getRepositories() {
+        return new ArrayList<>(repositories.values());
+    }
+
+    /**
+     * Repositories that have been opened so far, foreground included
+     */
+    public synchronized List<WorkspaceRepository> getOpenRepositories() {
+        return repositories.values().stream()
+                .filter(WorkspaceRepository::isOpen)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized WorkspaceRepository getForeground() {
+        return foreground;
+    }
+
+    /**
+     * Open the repository in the background if that has not happened yet,
+     * start watching it and compute its first summary. Cheap to call
+     * repeatedly, e.g. whenever its row becomes visible. The returned
+     * future completes once the repository is open.
+     */
+    public CompletableFuture<Void> ensureLoaded(WorkspaceRepository repository) {
+        CompletableFuture<Void> load = new CompletableFuture<>();
+        CompletableFuture<Void> existing = repository.claimLoad(load);
+        if (existing != null) {
+            return existing;
+        }
+        if (closed) {
+            load.cancel(false);
+            return load;
+        }
+        CompletableFuture.runAsync(() -> open(repository), pool).whenComplete((result, error) -> {
+            if (error != null) {
+                updateSummary(repository, summary -> RepositorySummary.failed(messageOf(error)));
+                load.completeExceptionally(unwrap(error));
+            } else {
+                load.complete(null);
+            }
+        });
+        return load;
+    }
+
+    /**
+     * Prefer the given repository when choosing what to refresh next,
+     * e.g. the one selected in the list
+     */
+    public void setFocused(WorkspaceRepository repository) {
+        statusScheduler.setFocused(repository);
+    }
+
+    /**
+     * Re-evaluate the given paths of an open repository, or everything
+     * when paths is null
+     */
+    public void requestRefresh(WorkspaceRepository repository, Collection<String> paths) {
+        if (repository.isOpen()) {
+            statusScheduler.request(repository, paths);
+        }
+    }
+
+    /**
+     * Rescan every open repository
+     */
+    public void refreshAll() {
+        for (WorkspaceRepository repository : getOpenRepositories()) {
+            statusScheduler.request(repository, null);
+        }
+    }
+
+    /**
+     * Change the summary of a repository and notify the listener, e.g.
+     * with results the main window computed for its own repository
+     */
+    public void updateSummary(WorkspaceRepository repository, UnaryOperator<RepositorySummary> update) {
+        repository.updateSummary(update);
+        summaryListener.onSummaryChanged(repository);
+    }
+
+    private void open(WorkspaceRepository repository) {
+        GitService gitService = new GitService(GitTaskExecutor.shared(pool));
+        FileWatcherService watcher = new FileWatcherService(watchHub);
+        try {
+            gitService.openRepository(repository.getPath().toString(), credentials);
+            repository.opened(gitService, watcher);
+            watcher.startWatching(repository.getPath().toString(), new FileWatcherService.FileChangeListener() {
+                @Override
+                public void onFilesChanged(Set<String> filePaths) {
+                    requestRefresh(repository, filePaths);
+                }
+            });
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        if (closed) {
+            repository.close();
+            return;
+        }
+        requestRefresh(repository, null);
+    }
+
+    /**
+     * Recompute the summary of a repository. Status is incremental when
+     * paths are given; ahead/behind is cached until a ref moves.
+     */
+    private CompletableFuture<RepositorySummary> refresh(WorkspaceRepository repository, Set<String> paths) {
+        GitService gitService = repository.getAsyncGitService().getGitService();
+        CompletableFuture<RepositorySummary> refresh = gitService.getTaskExecutor().submitStatus(() -> {
+            List<FileChange> changes = paths == null ? gitService.getStatus() : gitService.getStatus(paths);
+            String branch = gitService.getCurrentBranch();
+            AheadBehind aheadBehind = gitService.getAheadBehind();
+            return new RepositorySummary(branch, changes.size(), aheadBehind, null);
+        });
+        refresh.whenComplete((summary, error) -> {
+            if (error == null) {
+                updateSummary(repository, previous -> summary);
+            } else if (!(unwrap(error) instanceof CancellationException) && !closed) {
+                updateSummary(repository, previous -> RepositorySummary.failed(messageOf(error)));
+            }
+        });
+        return refresh;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static String messageOf(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    /**
+     * Close every repository the workspace opened and stop its threads.
+     * The foreground repository is left to the main window.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        statusScheduler.shutdown();
+        for (WorkspaceRepository repository : getRepositories()) {
+            repository.close();
+        }
+        watchHub.close();
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,112 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.RepositorySummary;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * One repository of a workspace. The repository is opened lazily, the
+ * first time its summary is needed, and keeps a summary row that is
+ * refreshed incrementally from file watcher events.
+ */
+public class WorkspaceRepository {
+    private final Path path;
+    private final boolean foreground;
+    private final AtomicReference<CompletableFuture<Void>> load = new AtomicReference<>();
+    private volatile GitService gitService;
+    private volatile AsyncGitService asyncGit;
+    private volatile FileWatcherService watcher;
+    private volatile RepositorySummary summary = RepositorySummary.unknown();
+
+    WorkspaceRepository(Path path) {
+        this.path = path;
+        this.foreground = false;
+    }
+
+    /**
+     * Wrap the repository opened in the main window
+     */
+    WorkspaceRepository(GitService gitService) {
+        this.path = gitService.getRepositoryDirectory().toPath().toAbsolutePath().normalize();
+        this.foreground = true;
+        this.gitService = gitService;
+        this.asyncGit = new AsyncGitService(gitService);
+        this.load.set(CompletableFuture.completedFuture(null));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return path.getFileName() != null ? path.getFileName().toString() : path.toString();
+    }
+
+    /**
+     * Whether this is the repository shown in the main window
+     */
+    public boolean isForeground() {
+        return foreground;
+    }
+
+    public RepositorySummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Whether the repository has been opened
+     */
+    public boolean isOpen() {
+        return asyncGit != null;
+    }
+
+    /**
+     * Asynchronous access to the repository, or null while it is not open
+     */
+    public AsyncGitService getAsyncGitService() {
+        return asyncGit;
+    }
+
+    /**
+     * Claim the loading of the repository with the given future. Returns
+     * null if the caller won, otherwise the load already in progress.
+     */
+    CompletableFuture<Void> claimLoad(CompletableFuture<Void> pending) {
+        return load.compareAndExchange(null, pending);
+    }
+
+    void opened(GitService gitService, FileWatcherService watcher) {
+        this.gitService = gitService;
+        this.watcher = watcher;
+        this.asyncGit = new AsyncGitService(gitService);
+    }
+
+    synchronized RepositorySummary updateSummary(UnaryOperator<RepositorySummary> update) {
+        summary = update.apply(summary);
+        return summary;
+    }
+
+    /**
+     * Close what the workspace opened. The foreground repository belongs
+     * to the main window and is left alone.
+     */
+    void close() {
+        if (foreground) {
+            return;
+        }
+        if (watcher != null) {
+            watcher.shutdown();
+        }
+        if (gitService != null) {
+            gitService.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getName() + ": " + summary;
+    }
+}
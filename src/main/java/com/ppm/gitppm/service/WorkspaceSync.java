@@ -0,0 +1,269 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.SyncReport;
+import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.transport.URIish;
+
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Fetches or pulls every repository of a workspace concurrently.
+ * At most maxConcurrent transfers run at once, and at most maxPerHost of
+ * them talk to the same remote host, so a single server is not hit with
+ * one connection per repository. Repositories that cannot start because
+ * their host is busy wait while others go ahead.
+ * Limits are set with -Dgitppm.sync.maxConcurrent and -Dgitppm.sync.maxPerHost.
+ */
+public class WorkspaceSync {
+    public static final int DEFAULT_MAX_CONCURRENT = 4;
+    public static final int DEFAULT_MAX_PER_HOST = 2;
+    private static final String LOCAL_HOST = "local";
+
+    private final Workspace workspace;
+    private final int maxConcurrent;
+    private final int maxPerHost;
+    private final Transfer transfer;
+
+    public enum Mode {
+        FETCH("Fetch all"),
+        PULL("Pull all");
+
+        private final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public WorkspaceSync(Workspace workspace) {
+        this(workspace, Integer.getInteger("gitppm.sync.maxConcurrent", DEFAULT_MAX_CONCURRENT),
+                Integer.getInteger("gitppm.sync.maxPerHost", DEFAULT_MAX_PER_HOST));
+    }
+
+    /**
+     * The transfer of one repository
+     */
+    @FunctionalInterface
+    interface Transfer {
+        void run(GitService gitService, Mode mode) throws Exception;
+    }
+
+    public WorkspaceSync(Workspace workspace, int maxConcurrent, int maxPerHost) {
+        this(workspace, maxConcurrent, maxPerHost, WorkspaceSync::fetchOrPull);
+    }
+
+    /**
+     * Sync with a different transfer, e.g. one that can be observed in tests
+     */
+    WorkspaceSync(Workspace workspace, int maxConcurrent, int maxPerHost, Transfer transfer) {
+        this.workspace = workspace;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxPerHost = Math.max(1, maxPerHost);
+        this.transfer = transfer;
+    }
+
+    /**
+     * Sync every repository of the workspace, opening those not loaded yet.
+     * Each finished repository is reported to the listener on a background
+     * thread. Cancelling the returned future stops queued and running
+     * transfers.
+     */
+    public CompletableFuture<SyncReport> syncAll(Mode mode, Consumer<SyncReport.Entry> listener) {
+        return new SyncRun(mode, workspace.getRepositories(), listener).start();
+    }
+
+    /**
+     * State of one syncAll call
+     */
+    private class SyncRun {
+        private final Mode mode;
+        private final List<WorkspaceRepository> repositories;
+        private final Consumer<SyncReport.Entry> listener;
+        private final CompletableFuture<SyncReport> report = new CompletableFuture<>();
+        private final long startNanos = System.nanoTime();
+
+        // Guarded by "this"
+        private final Deque<Queued> queue = new ArrayDeque<>();
+        private final Map<String, Integer> hostLoad = new HashMap<>();
+        private final List<CompletableFuture<?>> running = new ArrayList<>();
+        private final List<SyncReport.Entry> entries = new ArrayList<>();
+
+        SyncRun(Mode mode, List<WorkspaceRepository> repositories, Consumer<SyncReport.Entry> listener) {
+            this.mode = mode;
+            this.repositories = repositories;
+            this.listener = listener;
+        }
+
+        CompletableFuture<SyncReport> start() {
+            if (repositories.isEmpty()) {
+                report.complete(new SyncReport(mode.toString(), entries, 0));
+                return report;
+            }
+            report.whenComplete((result, error) -> {
+                if (report.isCancelled()) {
+                    cancelAll();
+                }
+            });
+            for (WorkspaceRepository repository : repositories) {
+                workspace.ensureLoaded(repository).whenComplete((loaded, error) -> {
+                    if (error != null) {
+                        finished(repository, LOCAL_HOST, 0, error);
+                    } else {
+                        enqueue(repository);
+                    }
+                });
+            }
+            return report;
+        }
+
+        private synchronized void enqueue(WorkspaceRepository repository) {
+            Set<String> hosts = hostsOf(repository.getAsyncGitService().getGitService());
+            queue.add(new Queued(repository, hosts));
+            startNext();
+        }
+
+        private void startNext() {
+            while (running.size() < maxConcurrent && !report.isDone()) {
+                Queued next = pollStartable();
+                if (next == null) {
+                    return;
+                }
+                for (String host : next.hosts) {
+                    hostLoad.merge(host, 1, Integer::sum);
+                }
+
+                AtomicLong transferStart = new AtomicLong();
+                CompletableFuture<?> transfer = transfer(next.repository, transferStart);
+                running.add(transfer);
+                transfer.whenComplete((result, error) -> {
+                    long elapsed = transferStart.get() == 0 ? 0
+                            : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - transferStart.get());
+                    synchronized (this) {
+                        running.remove(transfer);
+                        for (String host : next.hosts) {
+                            hostLoad.merge(host, -1, Integer::sum);
+                        }
+                    }
+                    finished(next.repository, String.join(", ", next.hosts), elapsed, error);
+                });
+            }
+        }
+
+        /**
+         * First queued repository whose hosts all have a free connection
+         */
+        private Queued pollStartable() {
+            for (Queued queued : queue) {
+                boolean hostsFree = queued.hosts.stream()
+                        .allMatch(host -> hostLoad.getOrDefault(host, 0) < maxPerHost);
+                if (hostsFree) {
+                    queue.remove(queued);
+                    return queued;
+                }
+            }
+            return null;
+        }
+
+        private CompletableFuture<?> transfer(WorkspaceRepository repository, AtomicLong transferStart) {
+            GitService gitService = repository.getAsyncGitService().getGitService();
+            GitTaskExecutor executor = gitService.getTaskExecutor();
+            GitTaskExecutor.GitTask<Void> task = () -> {
+                transferStart.set(System.nanoTime());
+                transfer.run(gitService, mode);
+                return null;
+            };
+            // A pull changes the working tree, a fetch only refs
+            return mode == Mode.PULL ? executor.submitWrite(task) : executor.submitTransfer(task);
+        }
+
+        private void finished(WorkspaceRepository repository, String host, long millis, Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            String message = cause == null ? null
+                    : cause instanceof CancellationException ? "cancelled"
+                    : cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+            SyncReport.Entry entry = new SyncReport.Entry(repository.getName(), host, millis, message);
+
+            boolean complete;
+            synchronized (this) {
+                entries.add(entry);
+                complete = entries.size() == repositories.size();
+                startNext();
+            }
+            if (cause == null) {
+                // New remote refs change ahead/behind; a pull also changes files
+                workspace.requestRefresh(repository, mode == Mode.PULL ? null : List.of());
+            }
+            listener.accept(entry);
+            if (complete) {
+                long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                report.complete(new SyncReport(mode.toString(), entries, wallMillis));
+            }
+        }
+
+        private synchronized void cancelAll() {
+            queue.clear();
+            for (CompletableFuture<?> transfer : new ArrayList<>(running)) {
+                transfer.cancel(true);
+            }
+        }
+    }
+
+    private static void fetchOrPull(GitService gitService, Mode mode) throws Exception {
+        if (mode == Mode.PULL) {
+            PullResult result = gitService.pull();
+            if (!result.isSuccessful()) {
+                throw new IllegalStateException("Pull did not complete, resolve it in the repository");
+            }
+        } else {
+            gitService.fetchAll();
+        }
+    }
+
+    private static class Queued {
+        private final WorkspaceRepository repository;
+        private final Set<String> hosts;
+
+        Queued(WorkspaceRepository repository, Set<String> hosts) {
+            this.repository = repository;
+            this.hosts = hosts;
+        }
+    }
+
+    /**
+     * Hosts of all remotes; file and path remotes count as one local host
+     */
+    private static Set<String> hostsOf(GitService gitService) {
+        Set<String> hosts = new TreeSet<>();
+        try {
+            for (URIish uri : gitService.getRemoteUris()) {
+                hosts.add(uri.getHost() != null ? uri.getHost().toLowerCase() : LOCAL_HOST);
+            }
+        } catch (URISyntaxException e) {
+            hosts.add(LOCAL_HOST);
+        }
+        if (hosts.isEmpty()) {
+            hosts.add(LOCAL_HOST);
+        }
+        return hosts;
+    }
+}
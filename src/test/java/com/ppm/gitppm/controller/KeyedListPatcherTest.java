@@ -0,0 +1,127 @@
+package com.ppm.gitppm.controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Items are "key=content" strings
+ */
+class KeyedListPatcherTest {
+    private final KeyedListPatcher<String, String> patcher = new KeyedListPatcher<>(
+            item -> item.substring(0, item.indexOf('=')), String::equals);
+
+    @Test
+    void insertsRunsOfNewItems() {
+        ObservableList<String> target = FXCollections.observableArrayList("a=1", "d=1");
+        List<String> changes = recordChanges(target);
+
+        patch(target, "a=1", "b=1", "c=1", "d=1", "e=1");
+
+        assertEquals(List.of("add 1-3", "add 4-5"), changes);
+    }
+
+    @Test
+    void removesRunsOfMissingItems() {
+        ObservableList<String> target = FXCollections.observableArrayList("a=1", "b=1", "c=1", "d=1", "e=1");
+        List<String> changes = recordChanges(target);
+
+        patch(target, "a=1", "d=1");
+
+        assertEquals(List.of("remove 4-5", "remove 1-3"), changes);
+    }
+
+    @Test
+    void movesItemsWithoutTouchingTheRest() {
+        ObservableList<String> target = FXCollections.observableArrayList("a=1", "b=1", "c=1", "d=1");
+        String moved = target.get(2);
+
+        patch(target, "c=1", "a=1", "b=1", "d=1");
+
+        assertSame(moved, target.get(0));
+    }
+
+    @Test
+    void replacesChangedItemsInPlace() {
+        ObservableList<String> target = FXCollections.observableArrayList("a=1", "b=1", "c=1");
+        List<String> changes = recordChanges(target);
+
+        patch(target, "a=1", "b=2", "c=1");
+
+        assertEquals(List.of("replace 1-2"), changes);
+    }
+
+    @Test
+    void unchangedSnapshotFiresNothing() {
+        ObservableList<String> target = FXCollections.observableArrayList("a=1", "b=1");
+        List<String> changes = recordChanges(target);
+
+        patch(target, "a=1", "b=1");
+
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    void duplicateKeysInSnapshotAreAppliedAsIs() {
+        ObservableList<String> target = FXCollections.observableArrayList("a=1", "b=1", "c=1");
+
+        patch(target, "a=1", "b=1", "a=2", "c=1");
+    }
+
+    @Test
+    void duplicateKeysInTargetAreReplaced() {
+        ObservableList<String> target = FXCollections.observableArrayList("a=1", "a=1", "b=1");
+
+        patch(target, "b=1", "a=1");
+    }
+
+    @Test
+    void largeReorderEndsInSnapshotOrder() {
+        List<String> items = IntStream.range(0, 2000).mapToObj(i -> "k" + i + "=1").collect(Collectors.toList());
+        ObservableList<String> target = FXCollections.observableArrayList(items);
+        List<String> shuffled = new ArrayList<>(items);
+        Collections.shuffle(shuffled, new Random(42));
+
+        patch(target, shuffled.toArray(new String[0]));
+    }
+
+    @Test
+    void mixedChangesEndInSnapshotOrder() {
+        ObservableList<String> target = FXCollections.observableArrayList("a=1", "b=1", "c=1", "d=1", "e=1");
+
+        patch(target, "x=1", "d=2", "a=1", "y=1", "c=1", "z=1");
+    }
+
+    private void patch(ObservableList<String> target, String... snapshot) {
+        patcher.patch(target, List.of(snapshot));
+        assertEquals(List.of(snapshot), target);
+    }
+
+    private static List<String> recordChanges(ObservableList<String> list) {
+        List<String> changes = new ArrayList<>();
+        list.addListener((ListChangeListener<String>) change -> {
+            while (change.next()) {
+                if (change.wasReplaced()) {
+                    changes.add("replace " + change.getFrom() + "-" + change.getTo());
+                } else if (change.wasAdded()) {
+                    changes.add("add " + change.getFrom() + "-" + change.getTo());
+                } else if (change.wasRemoved()) {
+                    changes.add("remove " + change.getFrom() + "-" + (change.getFrom() + change.getRemovedSize()));
+                }
+            }
+        });
+        return changes;
+    }
+}
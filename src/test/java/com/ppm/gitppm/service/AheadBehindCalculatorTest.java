@@ -0,0 +1,141 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.AheadBehind;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AheadBehindCalculatorTest {
+    private static final PersonIdent AUTHOR = new PersonIdent("Test", "test@example.com");
+
+    @TempDir
+    Path temp;
+
+    private Git local;
+    private Git other;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        File origin = temp.resolve("origin.git").toFile();
+        Git.init().setBare(true).setDirectory(origin).setInitialBranch("main").call().close();
+
+        try (Git seed = Git.init().setDirectory(temp.resolve("seed").toFile()).setInitialBranch("main").call()) {
+            commit(seed, "README.md");
+            seed.push().setRemote(origin.toURI().toString()).add("main").call();
+        }
+
+        local = Git.cloneRepository().setURI(origin.toURI().toString())
+                .setDirectory(temp.resolve("local").toFile()).call();
+        other = Git.cloneRepository().setURI(origin.toURI().toString())
+                .setDirectory(temp.resolve("other").toFile()).call();
+    }
+
+    @AfterEach
+    void tearDown() {
+        local.close();
+        other.close();
+    }
+
+    @Test
+    void upToDateBranchIsInSync() throws IOException {
+        AheadBehind result = new AheadBehindCalculator(local.getRepository()).compute();
+
+        assertEquals("main", result.getBranch());
+        assertEquals("refs/remotes/origin/main", result.getUpstream());
+        assertEquals(0, result.getAhead());
+        assertEquals(0, result.getBehind());
+        assertTrue(result.isInSync());
+    }
+
+    @Test
+    void divergedBranchCountsBothSides() throws Exception {
+        commit(local, "local-1.txt");
+        commit(local, "local-2.txt");
+        commit(other, "other-1.txt");
+        commit(other, "other-2.txt");
+        commit(other, "other-3.txt");
+        other.push().call();
+        local.fetch().call();
+
+        AheadBehind result = new AheadBehindCalculator(local.getRepository()).compute();
+
+        assertEquals(2, result.getAhead());
+        assertEquals(3, result.getBehind());
+        assertFalse(result.isTruncated());
+    }
+
+    @Test
+    void countsStopAtWalkLimit() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            commit(local, "local-" + i + ".txt");
+        }
+
+        AheadBehind result = new AheadBehindCalculator(local.getRepository(), 3).compute();
+
+        assertEquals(3, result.getAhead());
+        assertEquals(0, result.getBehind());
+        assertTrue(result.isTruncated());
+    }
+
+    @Test
+    void countsEqualToWalkLimitAreNotTruncated() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            commit(local, "local-" + i + ".txt");
+        }
+
+        AheadBehind result = new AheadBehindCalculator(local.getRepository(), 3).compute();
+
+        assertEquals(3, result.getAhead());
+        assertFalse(result.isTruncated());
+    }
+
+    @Test
+    void branchWithoutUpstreamHasNoCounts() throws Exception {
+        local.checkout().setCreateBranch(true).setName("topic").call();
+        commit(local, "topic.txt");
+
+        assertNull(new AheadBehindCalculator(local.getRepository()).compute());
+    }
+
+    @Test
+    void detachedHeadHasNoCounts() throws Exception {
+        String head = local.getRepository().resolve("HEAD").name();
+        local.checkout().setName(head).call();
+
+        assertNull(new AheadBehindCalculator(local.getRepository()).compute());
+    }
+
+    @Test
+    void unchangedTipsReuseLastResult() throws Exception {
+        AheadBehindCalculator calculator = new AheadBehindCalculator(local.getRepository());
+        AheadBehind first = calculator.compute();
+
+        assertSame(first, calculator.compute());
+
+        commit(local, "local.txt");
+        AheadBehind second = calculator.compute();
+        assertEquals(1, second.getAhead());
+    }
+
+    private static void commit(Git git, String fileName) throws IOException, GitAPIException {
+        Path file = git.getRepository().getWorkTree().toPath().resolve(fileName);
+        Files.writeString(file, fileName + "\n");
+        git.add().addFilepattern(fileName).call();
+        git.commit().setMessage("Add " + fileName).setAuthor(AUTHOR).setCommitter(AUTHOR).call();
+    }
+}
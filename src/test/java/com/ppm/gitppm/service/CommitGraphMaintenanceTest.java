@@ -0,0 +1,93 @@
+package com.ppm.gitppm.service;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommitGraphMaintenanceTest {
+    private static final PersonIdent AUTHOR = new PersonIdent("Test", "test@example.com");
+
+    @TempDir
+    Path temp;
+
+    private Git git;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        git = Git.init().setDirectory(temp.toFile()).setInitialBranch("main").call();
+        commit("first.txt");
+    }
+
+    @AfterEach
+    void tearDown() {
+        git.close();
+    }
+
+    @Test
+    void writesGraphWithoutChangingConfigFile() throws Exception {
+        Repository repository = git.getRepository();
+        Path configFile = repository.getDirectory().toPath().resolve("config");
+        String config = Files.readString(configFile);
+
+        CommitGraphMaintenance.Result result = new CommitGraphMaintenance(repository).updateIfStale();
+
+        assertNotNull(result);
+        assertEquals(1, result.getCommitCount());
+        assertTrue(graphFile().isFile());
+        assertTrue(isEnabled(repository));
+        assertEquals(config, Files.readString(configFile));
+    }
+
+    @Test
+    void rewritesGraphOnlyAfterNewCommits() throws Exception {
+        CommitGraphMaintenance maintenance = new CommitGraphMaintenance(git.getRepository());
+        assertNotNull(maintenance.updateIfStale());
+        assertNull(maintenance.updateIfStale());
+
+        commit("second.txt");
+
+        assertEquals(2, maintenance.updateIfStale().getCommitCount());
+    }
+
+    @Test
+    void leavesRepositoryThatDisablesCommitGraphAlone() throws Exception {
+        StoredConfig config = git.getRepository().getConfig();
+        config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, false);
+        config.save();
+
+        assertNull(new CommitGraphMaintenance(git.getRepository()).updateIfStale());
+        assertFalse(graphFile().exists());
+        assertFalse(isEnabled(git.getRepository()));
+    }
+
+    private File graphFile() {
+        return new File(git.getRepository().getDirectory(), "objects/info/commit-graph");
+    }
+
+    private static boolean isEnabled(Repository repository) {
+        return repository.getConfig().getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+                ConfigConstants.CONFIG_COMMIT_GRAPH, false);
+    }
+
+    private void commit(String fileName) throws Exception {
+        Files.writeString(temp.resolve(fileName), fileName + "\n");
+        git.add().addFilepattern(fileName).call();
+        git.commit().setMessage("Add " + fileName).setAuthor(AUTHOR).setCommitter(AUTHOR).call();
+    }
+}
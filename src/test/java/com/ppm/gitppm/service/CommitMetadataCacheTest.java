@@ -0,0 +1,166 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.CommitInfo;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommitMetadataCacheTest {
+    private static final PersonIdent AUTHOR = new PersonIdent("Test", "test@example.com");
+    private static final int COMMITS = 6;
+
+    @TempDir
+    Path temp;
+
+    private Git origin;
+    private List<RevCommit> history;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        origin = Git.init().setDirectory(temp.resolve("origin").toFile()).setInitialBranch("main").call();
+        history = new ArrayList<>();
+        for (int i = 0; i < COMMITS; i++) {
+            history.add(commit(origin, "file-" + i + ".txt"));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        origin.close();
+    }
+
+    @Test
+    void recordsSurviveReload() {
+        File gitDir = origin.getRepository().getDirectory();
+        CommitMetadataCache cache = new CommitMetadataCache(gitDir);
+        history.forEach(cache::add);
+        cache.flush();
+
+        CommitMetadataCache reloaded = new CommitMetadataCache(gitDir);
+        assertEquals(COMMITS, reloaded.size());
+        RevCommit last = history.get(COMMITS - 1);
+        assertEquals(last.getShortMessage(), reloaded.get(last).getSubject());
+        assertEquals(history.get(COMMITS - 2), reloaded.get(last).getParents()[0]);
+    }
+
+    @Test
+    void flushKeepsRecordsAppendedByAnotherInstance() {
+        File gitDir = origin.getRepository().getDirectory();
+        CommitMetadataCache first = new CommitMetadataCache(gitDir);
+        CommitMetadataCache second = new CommitMetadataCache(gitDir);
+        first.add(history.get(0));
+        first.flush();
+        second.add(history.get(1));
+        second.flush();
+        first.add(history.get(2));
+        first.flush();
+
+        CommitMetadataCache reloaded = new CommitMetadataCache(gitDir);
+        assertEquals(3, reloaded.size());
+        assertNotNull(first.get(history.get(1)));
+    }
+
+    @Test
+    void flushDropsTornRecord() throws IOException {
+        File gitDir = origin.getRepository().getDirectory();
+        CommitMetadataCache cache = new CommitMetadataCache(gitDir);
+        cache.add(history.get(0));
+        cache.flush();
+        Path file = gitDir.toPath().resolve("gitppm").resolve("commits.bin");
+        Files.write(file, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+        cache.add(history.get(1));
+        cache.flush();
+
+        CommitMetadataCache reloaded = new CommitMetadataCache(gitDir);
+        assertEquals(2, reloaded.size());
+        assertNotNull(reloaded.get(history.get(1)));
+    }
+
+    @Test
+    void flushDropsCorruptRecordAndKeepsPersisting() throws IOException {
+        File gitDir = origin.getRepository().getDirectory();
+        CommitMetadataCache cache = new CommitMetadataCache(gitDir);
+        cache.add(history.get(0));
+        cache.add(history.get(1));
+        cache.flush();
+        Path file = gitDir.toPath().resolve("gitppm").resolve("commits.bin");
+        long validLength = Files.size(file);
+        // A whole fake record whose author is not valid modified UTF-8
+        byte[] garbage = new byte[64];
+        garbage[20] = 0;
+        garbage[33] = 0;
+        garbage[34] = 4;
+        garbage[35] = (byte) 0xFF;
+        garbage[36] = (byte) 0xFF;
+        Files.write(file, garbage, StandardOpenOption.APPEND);
+
+        CommitMetadataCache reopened = new CommitMetadataCache(gitDir);
+        assertEquals(2, reopened.size());
+        reopened.add(history.get(2));
+        reopened.flush();
+        reopened.add(history.get(3));
+        reopened.flush();
+        // The first instance loaded before the corruption and reads past it on flush
+        cache.add(history.get(4));
+        cache.flush();
+
+        CommitMetadataCache reloaded = new CommitMetadataCache(gitDir);
+        assertEquals(5, reloaded.size());
+        assertNotNull(reloaded.get(history.get(3)));
+        assertNotNull(reloaded.get(history.get(4)));
+        assertTrue(Files.size(file) > validLength);
+    }
+
+    @Test
+    void shallowCommitsAreNotCached() throws Exception {
+        File clone = temp.resolve("shallow").toFile();
+        try (Git shallow = Git.cloneRepository().setURI(origin.getRepository().getDirectory().toURI().toString())
+                .setDirectory(clone).setDepth(2).call()) {
+            File gitDir = shallow.getRepository().getDirectory();
+            try (CommitHistoryPager pager = new CommitHistoryPager(shallow.getRepository())) {
+                assertEquals(2, pager.nextPage(null, 100).size());
+            }
+            CommitMetadataCache cache = new CommitMetadataCache(gitDir);
+            assertEquals(1, cache.size());
+            assertNull(cache.get(history.get(COMMITS - 2)));
+
+            shallow.fetch().setUnshallow(true).call();
+
+            try (CommitHistoryPager pager = new CommitHistoryPager(shallow.getRepository())) {
+                List<CommitInfo> page = pager.nextPage(null, 100);
+                assertEquals(COMMITS, page.size());
+                assertEquals(history.get(0).name(), page.get(COMMITS - 1).getCommitId());
+            }
+        }
+    }
+
+    private static RevCommit commit(Git git, String fileName) throws IOException, GitAPIException {
+        Path file = git.getRepository().getWorkTree().toPath().resolve(fileName);
+        Files.writeString(file, fileName + "\n");
+        git.add().addFilepattern(fileName).call();
+        RevCommit commit = git.commit().setMessage("Add " + fileName).setAuthor(AUTHOR).setCommitter(AUTHOR).call();
+        try (RevWalk walk = new RevWalk(git.getRepository())) {
+            return walk.parseCommit(commit);
+        }
+    }
+}
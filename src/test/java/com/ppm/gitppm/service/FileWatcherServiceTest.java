@@ -0,0 +1,154 @@
+package com.ppm.gitppm.service;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileWatcherServiceTest {
+    private static final PersonIdent AUTHOR = new PersonIdent("Test", "test@example.com");
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final long QUIET_MILLIS = 500;
+
+    @TempDir
+    Path directory;
+
+    private Git git;
+    private WatchServiceHub hub;
+    private FileWatcherService watcher;
+    private final BlockingQueue<Set<String>> batches = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        git = Git.init().setDirectory(directory.toFile()).setInitialBranch("main").call();
+        Files.writeString(directory.resolve("README.md"), "readme\n");
+        git.add().addFilepattern("README.md").call();
+        git.commit().setMessage("Initial commit").setAuthor(AUTHOR).setCommitter(AUTHOR).call();
+
+        hub = new WatchServiceHub();
+        watcher = new FileWatcherService(hub, Runnable::run);
+        watcher.setBatchWindow(50, 200);
+        watcher.startWatching(directory.toString(), new FileWatcherService.FileChangeListener() {
+            @Override
+            public void onFilesChanged(Set<String> filePaths) {
+                batches.add(filePaths);
+            }
+        }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.shutdown();
+        hub.close();
+        git.close();
+    }
+
+    @Test
+    void workingTreeChangeReportsPath() throws Exception {
+        Files.writeString(directory.resolve("notes.txt"), "notes\n");
+
+        assertEquals(Set.of("notes.txt"), batches.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void indexUpdateRequestsFullRescan() throws Exception {
+        Files.writeString(directory.resolve("README.md"), "changed\n");
+        assertEquals(Set.of("README.md"), batches.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        git.add().addFilepattern("README.md").call();
+
+        assertEquals(Set.of(""), batches.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void branchCheckoutRequestsFullRescan() throws Exception {
+        git.branchCreate().setName("topic/one").call();
+        assertEquals(Set.of(""), batches.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        git.checkout().setName("topic/one").call();
+
+        assertEquals(Set.of(""), batches.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void otherGitFilesAreIgnored() throws Exception {
+        Files.writeString(directory.resolve(".git").resolve("description"), "changed\n");
+        Files.createDirectories(directory.resolve(".git").resolve("gitppm"));
+        Files.writeString(directory.resolve(".git").resolve("gitppm").resolve("cache.bin"), "data");
+
+        assertNull(batches.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void forceAddedFileInIgnoredDirectoryIsWatched() throws Exception {
+        Files.writeString(directory.resolve(".gitignore"), "build/\n");
+        assertTrue(batches.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS).contains(".gitignore"));
+        Path build = Files.createDirectories(directory.resolve("build"));
+        Files.writeString(build.resolve("tracked.txt"), "tracked\n");
+        assertNull(batches.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+        int registered = watcher.getRegisteredDirectoryCount();
+
+        forceAdd("build/tracked.txt");
+
+        assertEquals(Set.of(""), batches.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (watcher.getRegisteredDirectoryCount() == registered && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(registered + 1, watcher.getRegisteredDirectoryCount());
+
+        Files.writeString(build.resolve("scratch.txt"), "untracked\n");
+        Files.writeString(build.resolve("tracked.txt"), "changed\n");
+
+        assertEquals(Set.of("build/tracked.txt"), batches.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Stage a file regardless of ignore rules, like git add -f
+     */
+    private void forceAdd(String path) throws Exception {
+        Repository repository = git.getRepository();
+        byte[] content = Files.readAllBytes(directory.resolve(path));
+        ObjectId blob;
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            blob = inserter.insert(Constants.OBJ_BLOB, content);
+            inserter.flush();
+        }
+        DirCache index = repository.lockDirCache();
+        try {
+            DirCacheEditor editor = index.editor();
+            editor.add(new DirCacheEditor.PathEdit(path) {
+                @Override
+                public void apply(DirCacheEntry entry) {
+                    entry.setFileMode(FileMode.REGULAR_FILE);
+                    entry.setObjectId(blob);
+                    entry.setLength(content.length);
+                }
+            });
+            editor.commit();
+        } finally {
+            index.unlock();
+        }
+    }
+}
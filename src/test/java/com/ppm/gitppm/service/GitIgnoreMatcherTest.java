@@ -0,0 +1,90 @@
+package com.ppm.gitppm.service;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitIgnoreMatcherTest {
+
+    @TempDir
+    Path directory;
+
+    private Git git;
+    private GitIgnoreMatcher matcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        git = Git.init().setDirectory(directory.toFile()).setInitialBranch("main").call();
+        matcher = new GitIgnoreMatcher(directory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        git.close();
+    }
+
+    @Test
+    void skipsIgnoredDirectoriesAndFiles() throws Exception {
+        Files.writeString(directory.resolve(".gitignore"), "build/\n*.log\n!keep.log\n");
+        Path info = Files.createDirectories(directory.resolve(".git").resolve("info"));
+        Files.writeString(info.resolve("exclude"), "local/\n");
+        Files.createDirectories(directory.resolve("src").resolve("logs"));
+        Files.writeString(directory.resolve("src").resolve(".gitignore"), "generated/\n");
+
+        assertTrue(matcher.isIgnored(directory.resolve("build"), true));
+        assertTrue(matcher.isIgnored(directory.resolve("build").resolve("out").resolve("A.class"), false));
+        assertTrue(matcher.isIgnored(directory.resolve("app.log"), false));
+        assertTrue(matcher.isIgnored(directory.resolve("local"), true));
+        assertTrue(matcher.isIgnored(directory.resolve("src").resolve("generated"), true));
+        assertTrue(matcher.isIgnored(directory.resolve(".git").resolve("index"), false));
+        assertFalse(matcher.isIgnored(directory, true));
+        assertFalse(matcher.isIgnored(directory.resolve("keep.log"), false));
+        assertFalse(matcher.isIgnored(directory.resolve("src").resolve("logs"), true));
+        assertFalse(matcher.isIgnored(directory.resolve("generated"), true));
+        assertFalse(matcher.isIgnored(directory.resolve("build.txt"), false));
+    }
+
+    @Test
+    void trackedFilesAreNotIgnored() throws Exception {
+        Path nested = Files.createDirectories(directory.resolve("build").resolve("nested"));
+        Files.writeString(nested.resolve("tracked.txt"), "tracked\n");
+        Files.writeString(directory.resolve("debug.log"), "tracked\n");
+        git.add().addFilepattern("build/nested/tracked.txt").addFilepattern("debug.log").call();
+        Files.writeString(directory.resolve(".gitignore"), "build/\n*.log\n");
+        Files.createDirectories(directory.resolve("build").resolve("tmp"));
+
+        assertFalse(matcher.isIgnored(directory.resolve("build"), true));
+        assertFalse(matcher.isIgnored(nested, true));
+        assertFalse(matcher.isIgnored(nested.resolve("tracked.txt"), false));
+        assertFalse(matcher.isIgnored(directory.resolve("debug.log"), false));
+        assertTrue(matcher.isIgnored(nested.resolve("other.txt"), false));
+        assertTrue(matcher.isIgnored(directory.resolve("build").resolve("tmp"), true));
+        assertTrue(matcher.isIgnored(directory.resolve("other.log"), false));
+        assertEquals(Set.of(directory.resolve("build"), nested), matcher.getTrackedIgnoredDirectories());
+    }
+
+    @Test
+    void untrackingFileInIgnoredDirectoryIgnoresItAgain() throws Exception {
+        Path build = Files.createDirectories(directory.resolve("build"));
+        Files.writeString(build.resolve("tracked.txt"), "tracked\n");
+        git.add().addFilepattern("build/tracked.txt").call();
+        Files.writeString(directory.resolve(".gitignore"), "build/\n");
+        assertFalse(matcher.isIgnored(build, true));
+
+        git.rm().setCached(true).addFilepattern("build/tracked.txt").call();
+
+        assertTrue(matcher.isIgnored(build, true));
+        assertTrue(matcher.isIgnored(build.resolve("tracked.txt"), false));
+        assertEquals(Set.of(), matcher.getTrackedIgnoredDirectories());
+    }
+}
@@ -0,0 +1,191 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.SyntheticRepoGenerator;
+import com.ppm.gitppm.model.CloneOptions;
+import com.ppm.gitppm.model.CloneProgress;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitServiceCloneTest {
+    private static final String RECEIVING = "Receiving objects";
+
+    @TempDir
+    static Path origin;
+
+    @TempDir
+    Path temp;
+
+    private GitService gitService;
+
+    @BeforeAll
+    static void createOrigin() throws Exception {
+        SyntheticRepoGenerator generator = new SyntheticRepoGenerator();
+        generator.setFileCount(400);
+        generator.setCommitCount(40);
+        generator.setBranchCount(3);
+        generator.setBinaryFraction(0.1);
+        generator.generate(origin);
+    }
+
+    @BeforeEach
+    void setUp() {
+        gitService = new GitService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gitService.close();
+    }
+
+    @Test
+    void reportsBytesWhileReceivingObjects() throws Exception {
+        File destination = temp.resolve("clone").toFile();
+        List<CloneProgress> reports = new CopyOnWriteArrayList<>();
+        CloneProgressMonitor monitor = new CloneProgressMonitor(destination, reports::add);
+
+        gitService.cloneRepository(originUri(), destination.getPath(), null, new CloneOptions(), monitor);
+
+        long receivedBytes = reports.stream()
+                .filter(progress -> progress.getTask().equals(RECEIVING))
+                .mapToLong(CloneProgress::getBytesReceived)
+                .max()
+                .orElse(0);
+        assertTrue(receivedBytes > 0, "no bytes reported while receiving objects: " + reports);
+        assertTrue(reports.stream().anyMatch(progress -> progress.getFraction() == 1.0));
+        assertTrue(gitService.isRepositoryInitialized());
+        assertEquals(headOf(origin.toFile()), headOf(destination));
+    }
+
+    @Test
+    void cancelWhileReceivingRemovesPartialClone() {
+        File destination = temp.resolve("clone").toFile();
+        CloneProgressMonitor monitor = cancellingMonitor(destination);
+
+        assertThrows(Exception.class, () -> gitService.cloneRepository(
+                originUri(), destination.getPath(), null, new CloneOptions(), monitor));
+
+        assertFalse(destination.exists());
+        assertFalse(gitService.isRepositoryInitialized());
+    }
+
+    @Test
+    void cancelIntoExistingDirectoryEmptiesIt() throws Exception {
+        File destination = Files.createDirectory(temp.resolve("existing")).toFile();
+        CloneProgressMonitor monitor = cancellingMonitor(destination);
+
+        assertThrows(Exception.class, () -> gitService.cloneRepository(
+                originUri(), destination.getPath(), null, new CloneOptions(), monitor));
+
+        assertTrue(destination.isDirectory());
+        assertEquals(0, destination.list().length);
+    }
+
+    @Test
+    void cloneIntoNonEmptyDirectoryKeepsItsFiles() throws Exception {
+        File destination = Files.createDirectory(temp.resolve("existing")).toFile();
+        Path precious = Files.writeString(destination.toPath().resolve("precious.txt"), "keep me\n");
+
+        assertThrows(Exception.class, () -> gitService.cloneRepository(
+                originUri(), destination.getPath(), null, new CloneOptions(),
+                new CloneProgressMonitor(destination, progress -> { })));
+
+        assertEquals("keep me\n", Files.readString(precious));
+        assertEquals(1, destination.list().length);
+        assertFalse(gitService.isRepositoryInitialized());
+    }
+
+    @Test
+    void shallowCloneFetchesRequestedDepth() throws Exception {
+        File destination = temp.resolve("shallow").toFile();
+        CloneOptions options = new CloneOptions();
+        options.setDepth(2);
+        options.setSingleBranch(true);
+
+        gitService.cloneRepository(originUri(), destination.getPath(), null, options,
+                new CloneProgressMonitor(destination, progress -> { }));
+
+        try (Git git = Git.open(destination)) {
+            Repository repository = git.getRepository();
+            assertEquals(2, countCommits(repository));
+            assertEquals(1, repository.getObjectDatabase().getShallowCommits().size());
+            assertEquals(1, repository.getRefDatabase().getRefsByPrefix(Constants.R_REMOTES).size());
+        }
+    }
+
+    @Test
+    void cloneReleasesPreviouslyOpenRepository() throws Exception {
+        gitService.openRepository(origin.toString(), null);
+        File destination = temp.resolve("clone").toFile();
+
+        gitService.cloneRepository(originUri(), destination.getPath(), null);
+
+        assertEquals(destination.getCanonicalFile(), gitService.getRepositoryDirectory().getCanonicalFile());
+        // Only the clone is still leased, so everything else can be closed
+        RepositoryRegistry.getDefault().evictIdle();
+        assertEquals(1, RepositoryRegistry.getDefault().getStatistics().getOpenRepositories());
+    }
+
+    /**
+     * A monitor that cancels the clone after some objects were received
+     */
+    private static CloneProgressMonitor cancellingMonitor(File destination) {
+        return new CloneProgressMonitor(destination, progress -> { }) {
+            private boolean receiving;
+            private int updates;
+
+            @Override
+            public void beginTask(String title, int totalWork) {
+                super.beginTask(title, totalWork);
+                receiving = title.equals(RECEIVING);
+            }
+
+            @Override
+            public void update(int completedWork) {
+                super.update(completedWork);
+                if (receiving && ++updates == 20) {
+                    cancel();
+                }
+            }
+        };
+    }
+
+    private static String originUri() {
+        return origin.toUri().toString();
+    }
+
+    private static ObjectId headOf(File directory) throws Exception {
+        try (Git git = Git.open(directory)) {
+            return git.getRepository().resolve(Constants.HEAD);
+        }
+    }
+
+    private static int countCommits(Repository repository) throws Exception {
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.markStart(walk.parseCommit(repository.resolve(Constants.HEAD)));
+            int count = 0;
+            while (walk.next() != null) {
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ppm.gitppm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitTaskExecutorTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final GitTaskExecutor executor = new GitTaskExecutor(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void statusTasksRunOneAtATimeInSubmissionOrder() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Integer> slow = executor.submitStatus(() -> {
+            release.await();
+            return record(0, running, order);
+        });
+        CompletableFuture<Integer> fast = executor.submitStatus(() -> record(1, running, order));
+        CompletableFuture<Integer> last = executor.submitStatus(() -> record(2, running, order));
+
+        assertFalse(fast.isDone());
+        release.countDown();
+        last.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(List.of(0, 1, 2), order);
+        assertTrue(slow.isDone() && fast.isDone());
+    }
+
+    @Test
+    void readsDoNotWaitForStatusTasks() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> status = executor.submitStatus(() -> release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        assertEquals("read", executor.submitRead(() -> "read").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(status.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void writesRunAloneInSubmissionOrder() throws Exception {
+        AtomicInteger writers = new AtomicInteger();
+        AtomicInteger readers = new AtomicInteger();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<String> violations = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<?>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            int task = i;
+            tasks.add(executor.submitWrite(() -> {
+                if (writers.incrementAndGet() != 1 || readers.get() != 0) {
+                    violations.add("write " + task + " overlapped");
+                }
+                order.add(task);
+                Thread.sleep(2);
+                writers.decrementAndGet();
+                return task;
+            }));
+            tasks.add(executor.submitRead(() -> {
+                readers.incrementAndGet();
+                if (writers.get() != 0) {
+                    violations.add("read overlapped a write");
+                }
+                Thread.sleep(1);
+                readers.decrementAndGet();
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(List.of(), violations);
+        assertEquals(IntStream.range(0, 20).boxed().collect(Collectors.toList()), order);
+    }
+
+    @Test
+    void sharedPoolShutdownFailsQueuedTasks() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        GitTaskExecutor shared = GitTaskExecutor.shared(pool);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = shared.submitWrite(() -> release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = shared.submitWrite(() -> "queued");
+
+        pool.shutdown();
+        release.countDown();
+
+        assertTrue(running.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> queued.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertTrue(shared.submitStatus(() -> "late").isCompletedExceptionally());
+    }
+
+    private static int record(int task, AtomicInteger running, List<Integer> order) {
+        if (running.incrementAndGet() != 1) {
+            throw new IllegalStateException("status tasks overlap");
+        }
+        order.add(task);
+        running.decrementAndGet();
+        return task;
+    }
+}
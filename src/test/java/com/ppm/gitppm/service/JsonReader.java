@@ -0,0 +1,191 @@
+package com.ppm.gitppm.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Strict parser for the JSON the application writes by hand, so tests can
+ * check it is valid without a JSON library. Objects become maps, arrays
+ * lists and numbers doubles.
+ */
+final class JsonReader {
+    private final String text;
+    private int position;
+
+    private JsonReader(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parse a complete document, failing on trailing content
+     */
+    static Object parse(String text) {
+        JsonReader reader = new JsonReader(text);
+        Object value = reader.value();
+        reader.whitespace();
+        if (reader.position != text.length()) {
+            throw reader.error("trailing content");
+        }
+        return value;
+    }
+
+    private Object value() {
+        whitespace();
+        if (position >= text.length()) {
+            throw error("unexpected end");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                return number();
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        whitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            whitespace();
+            String key = string();
+            whitespace();
+            expect(':');
+            object.put(key, value());
+            whitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        whitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(value());
+            whitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String string() {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            if (position >= text.length()) {
+                throw error("unterminated string");
+            }
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c < 0x20) {
+                throw error("control character in string");
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    value.append(escaped);
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default:
+                    throw error("bad escape");
+            }
+        }
+    }
+
+    private Double number() {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        if (start == position) {
+            throw error("unexpected character");
+        }
+        return Double.valueOf(text.substring(start, position));
+    }
+
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, position)) {
+            throw error("unexpected character");
+        }
+        position += word.length();
+        return value;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : '\0';
+    }
+
+    private void whitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + position + " in: " + text);
+    }
+}
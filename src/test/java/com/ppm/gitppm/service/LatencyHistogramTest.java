@@ -0,0 +1,99 @@
+package com.ppm.gitppm.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    // The clamp: 2^37 - 1 µs, about 38 hours
+    private static final long MAX_MICROS = (1L << 37) - 1;
+
+    @Test
+    void bucketsAreExactBelow64AndTwoWideAbove() {
+        assertEquals(Map.of(31L, 1L), bucketsOf(31));
+        assertEquals(Map.of(32L, 1L), bucketsOf(32));
+        assertEquals(Map.of(63L, 1L), bucketsOf(63));
+        assertEquals(Map.of(65L, 1L), bucketsOf(64));
+        assertEquals(Map.of(65L, 1L), bucketsOf(65));
+        assertEquals(Map.of(67L, 1L), bucketsOf(66));
+    }
+
+    @Test
+    void bucketsStayWithinThreePercent() {
+        for (long micros = 1; micros < 10_000_000; micros = micros * 3 / 2 + 1) {
+            long upper = bucketsOf(micros).keySet().iterator().next();
+            assertTrue(upper >= micros && upper <= micros + micros / 32, micros + " -> " + upper);
+        }
+    }
+
+    @Test
+    void hugeAndNegativeDurationsAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(Long.MAX_VALUE);
+        histogram.recordNanos(-5);
+
+        Map<Long, Long> buckets = buckets(histogram);
+        assertEquals(Map.of(0L, 1L, MAX_MICROS, 1L), buckets);
+        assertEquals(MAX_MICROS, histogram.getMaxMicros());
+        assertEquals(MAX_MICROS, histogram.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    void quantilesOfUniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 100; micros++) {
+            histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getMeanMicros());
+        assertEquals(1, histogram.getValueAtQuantile(0.0));
+        assertEquals(50, histogram.getValueAtQuantile(0.50));
+        assertEquals(91, histogram.getValueAtQuantile(0.90));
+        assertEquals(99, histogram.getValueAtQuantile(0.99));
+        // The bucket of 100 ends at 101, but nothing above the maximum was recorded
+        assertEquals(100, histogram.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    void quantilesOfTwoClusters() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 900; i++) {
+            histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(10));
+        }
+        for (int i = 0; i < 100; i++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        assertEquals(10, histogram.getValueAtQuantile(0.50));
+        assertEquals(10, histogram.getValueAtQuantile(0.90));
+        assertEquals(10_000, histogram.getValueAtQuantile(0.91));
+        assertEquals(10_000, histogram.getValueAtQuantile(0.99));
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getValueAtQuantile(0.99));
+        assertEquals(0, histogram.getMeanMicros());
+        assertTrue(buckets(histogram).isEmpty());
+    }
+
+    private static Map<Long, Long> bucketsOf(long micros) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+        return buckets(histogram);
+    }
+
+    private static Map<Long, Long> buckets(LatencyHistogram histogram) {
+        Map<Long, Long> buckets = new LinkedHashMap<>();
+        histogram.forEachBucket(buckets::put);
+        return buckets;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ppm.gitppm.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OperationMetricsTest {
+
+    @Test
+    void emptyExportIsValidJson() {
+        Map<?, ?> json = (Map<?, ?>) JsonReader.parse(new OperationMetrics().toJson());
+
+        assertEquals(List.of(), json.get("operations"));
+    }
+
+    @Test
+    void exportIsValidJsonWithEscapedNames() {
+        OperationMetrics metrics = new OperationMetrics();
+        metrics.record("status", TimeUnit.MICROSECONDS.toNanos(40), false);
+        metrics.record("status", TimeUnit.MICROSECONDS.toNanos(70), true);
+        metrics.record("odd \"name\"\\\n\t", TimeUnit.MILLISECONDS.toNanos(3), false);
+        metrics.addBytes("status", 1234);
+
+        Map<?, ?> json = (Map<?, ?>) JsonReader.parse(metrics.toJson());
+        List<?> operations = (List<?>) json.get("operations");
+
+        assertEquals(2, operations.size());
+        Map<?, ?> odd = (Map<?, ?>) operations.get(0);
+        assertEquals("odd \"name\"\\\n\t", odd.get("name"));
+        Map<?, ?> status = (Map<?, ?>) operations.get(1);
+        assertEquals("status", status.get("name"));
+        assertEquals(2.0, status.get("count"));
+        assertEquals(1.0, status.get("errors"));
+        assertEquals(1234.0, status.get("bytes"));
+        assertEquals(70.0, status.get("maxMicros"));
+        assertEquals(List.of(List.of(40.0, 1.0), List.of(71.0, 1.0)), status.get("histogram"));
+    }
+
+    @Test
+    void failedCallsAreCountedAsErrors() {
+        OperationMetrics metrics = new OperationMetrics();
+
+        assertThrows(IOException.class, () -> metrics.call("fetch", () -> {
+            throw new IOException("offline");
+        }));
+        metrics.run("fetch", () -> { });
+
+        assertEquals(2, metrics.getSnapshot().get(0).getCount());
+        assertEquals(1, metrics.getSnapshot().get(0).getErrors());
+    }
+}
@@ -0,0 +1,84 @@
+package com.ppm.gitppm.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PathTableTest {
+
+    @Test
+    void rootIsTheEmptyPath() {
+        PathTable table = new PathTable();
+
+        assertEquals(0, table.intern(""));
+        assertEquals("", table.path(0));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void pathsRoundTripAndShareParents() {
+        PathTable table = new PathTable();
+        int file = table.intern("src/main/App.java");
+        int sibling = table.intern("src/main/Util.java");
+        int directory = table.intern("src/main");
+
+        assertEquals("src/main/App.java", table.path(file));
+        assertEquals("src/main/Util.java", table.path(sibling));
+        assertEquals("src/main", table.path(directory));
+        assertEquals(file, table.intern("src/main/App.java"));
+        // root, src, src/main and the two files
+        assertEquals(5, table.size());
+    }
+
+    @Test
+    void sameSegmentInDifferentDirectoriesIsADifferentPath() {
+        PathTable table = new PathTable();
+
+        assertNotEquals(table.intern("a/index.js"), table.intern("b/index.js"));
+        assertEquals("b/index.js", table.path(table.intern("b/index.js")));
+    }
+
+    @Test
+    void multibyteNamesRoundTrip() {
+        PathTable table = new PathTable();
+        List<String> paths = List.of("docs/über/Straße.md", "日本語/ファイル.txt", "emoji/🚀/rocket.txt",
+                "mixed/ñ/ñ");
+
+        List<Integer> ids = new ArrayList<>();
+        for (String path : paths) {
+            ids.add(table.intern(path));
+        }
+
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals(paths.get(i), table.path(ids.get(i)));
+            assertEquals(ids.get(i), table.intern(paths.get(i)));
+        }
+    }
+
+    @Test
+    void idsStayValidWhileTheTableGrows() {
+        PathTable table = new PathTable();
+        int first = table.intern("dir-0/file-0.txt");
+        List<Integer> ids = new ArrayList<>();
+        // Far past the initial 256 nodes, 512 hash slots and 4 KB segment arena
+        for (int i = 0; i < 20_000; i++) {
+            ids.add(table.intern(path(i)));
+        }
+
+        assertEquals(first, ids.get(0).intValue());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(path(i), table.path(ids.get(i)));
+            assertEquals(ids.get(i).intValue(), table.intern(path(i)));
+        }
+        // root, 100 directories and 20,000 files
+        assertEquals(1 + 100 + 20_000, table.size());
+    }
+
+    private static String path(int i) {
+        return "dir-" + (i % 100) + "/file-" + i + ".txt";
+    }
+}
@@ -0,0 +1,137 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.FileChange;
+import com.ppm.gitppm.model.FileChange.ChangeType;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusCacheTest {
+    private static final PersonIdent AUTHOR = new PersonIdent("Test", "test@example.com");
+
+    @TempDir
+    Path directory;
+
+    private Git git;
+    private final StatusCache cache = new StatusCache();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        git = Git.init().setDirectory(directory.toFile()).setInitialBranch("main").call();
+        write("README.md", "readme\n");
+        write("src/App.java", "class App {}\n");
+        write("src/Util.java", "class Util {}\n");
+        write("srcfile.txt", "next to src\n");
+        write("gone.txt", "gone\n");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Initial commit").setAuthor(AUTHOR).setCommitter(AUTHOR).call();
+    }
+
+    @AfterEach
+    void tearDown() {
+        git.close();
+    }
+
+    @Test
+    void snapshotListsEveryChangeOfTheStatusSortedByPath() throws Exception {
+        write("README.md", "changed\n");
+        write("src/New.java", "class New {}\n");
+        git.add().addFilepattern("src/New.java").call();
+        write("src/New.java", "class New { int x; }\n");
+        write("notes.txt", "untracked\n");
+        Files.delete(directory.resolve("gone.txt"));
+        git.rm().addFilepattern("src/Util.java").call();
+
+        cache.replaceAll(git.status().call());
+
+        assertEquals(List.of(
+                new FileChange("README.md", ChangeType.MODIFIED, false),
+                new FileChange("gone.txt", ChangeType.MISSING, false),
+                new FileChange("notes.txt", ChangeType.UNTRACKED, false),
+                new FileChange("src/New.java", ChangeType.ADDED, true),
+                new FileChange("src/New.java", ChangeType.MODIFIED, false),
+                new FileChange("src/Util.java", ChangeType.DELETED, true)), List.copyOf(cache.snapshot()));
+        assertEquals(List.of("src/New.java", "src/Util.java"), cache.snapshot().getStagedPaths());
+        assertTrue(cache.isPopulated());
+    }
+
+    @Test
+    void mergeOfDirectoryReplacesEverythingBelowIt() throws Exception {
+        write("src/App.java", "changed\n");
+        write("src/Util.java", "changed\n");
+        write("srcfile.txt", "changed\n");
+        cache.replaceAll(git.status().call());
+
+        write("src/Util.java", "class Util {}\n");
+        write("src/deep/Extra.java", "class Extra {}\n");
+        merge(List.of("src"));
+
+        assertEquals(List.of(
+                new FileChange("src/App.java", ChangeType.MODIFIED, false),
+                new FileChange("src/deep/Extra.java", ChangeType.UNTRACKED, false),
+                new FileChange("srcfile.txt", ChangeType.MODIFIED, false)), List.copyOf(cache.snapshot()));
+    }
+
+    @Test
+    void mergeOfDuplicatePathsAddsEachChangeOnce() throws Exception {
+        cache.replaceAll(git.status().call());
+
+        write("README.md", "changed\n");
+        merge(List.of("README.md", "README.md", "README.md"));
+
+        assertEquals(List.of(new FileChange("README.md", ChangeType.MODIFIED, false)),
+                List.copyOf(cache.snapshot()));
+    }
+
+    @Test
+    void mergeDropsPathsThatBecameClean() throws Exception {
+        write("README.md", "changed\n");
+        write("notes.txt", "untracked\n");
+        cache.replaceAll(git.status().call());
+
+        write("README.md", "readme\n");
+        Files.delete(directory.resolve("notes.txt"));
+        merge(List.of("README.md", "notes.txt"));
+
+        assertTrue(cache.snapshot().isEmpty());
+    }
+
+    @Test
+    void earlierSnapshotsStayUnchanged() throws Exception {
+        write("README.md", "changed\n");
+        cache.replaceAll(git.status().call());
+        StatusSnapshot before = cache.snapshot();
+
+        write("notes.txt", "untracked\n");
+        merge(List.of("notes.txt"));
+
+        assertEquals(1, before.size());
+        assertEquals(2, cache.snapshot().size());
+        assertTrue(before.isSameEntry(0, cache.snapshot(), 0));
+    }
+
+    private void merge(List<String> paths) throws Exception {
+        StatusCommand command = git.status();
+        paths.forEach(command::addPath);
+        Status status = command.call();
+        cache.merge(paths, status);
+    }
+
+    private void write(String path, String content) throws Exception {
+        Path file = directory.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
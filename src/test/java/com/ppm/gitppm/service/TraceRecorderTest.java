@@ -0,0 +1,159 @@
+package com.ppm.gitppm.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceRecorderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void eachLineIsOneEventWithNestingFlowsAndThreadNames() throws Exception {
+        TraceRecorder recorder = new TraceRecorder(directory, 1 << 20, 5);
+        TraceRecorder.Link link;
+        try (TraceRecorder.Span batch = recorder.begin("watcher", "batch \"é\"").arg("files", 3)) {
+            try (TraceRecorder.Span nested = recorder.begin("git", "status")) {
+                nested.arg("path", "a\\b\n");
+            }
+            link = recorder.link();
+        }
+        Thread worker = new Thread(() -> recorder.begin("ui", "update", link).close(), "Worker é");
+        worker.start();
+        worker.join();
+        recorder.flush();
+
+        List<Path> files = traceFiles();
+        assertEquals(1, files.size());
+        List<Map<?, ?>> events = new ArrayList<>();
+        for (String line : Files.readAllLines(files.get(0), StandardCharsets.UTF_8)) {
+            events.add((Map<?, ?>) JsonReader.parse(line));
+        }
+
+        assertEquals("process_name", events.get(0).get("name"));
+        Map<?, ?> batch = span(events, "batch \"é\"");
+        Map<?, ?> status = span(events, "status");
+        Map<?, ?> update = span(events, "update");
+        Map<?, ?> batchArgs = (Map<?, ?>) batch.get("args");
+        assertEquals(3.0, batchArgs.get("files"));
+        assertFalse(batchArgs.containsKey("parent"));
+        Map<?, ?> statusArgs = (Map<?, ?>) status.get("args");
+        assertEquals(batchArgs.get("id"), statusArgs.get("parent"));
+        assertEquals("a\\b\n", statusArgs.get("path"));
+        assertEquals(batchArgs.get("id"), ((Map<?, ?>) update.get("args")).get("parent"));
+
+        Map<?, ?> start = phase(events, "s");
+        Map<?, ?> finish = phase(events, "f");
+        assertEquals(start.get("id"), finish.get("id"));
+        assertEquals(batch.get("tid"), start.get("tid"));
+        assertEquals(update.get("tid"), finish.get("tid"));
+        assertEquals("e", finish.get("bp"));
+
+        List<String> threadNames = events.stream()
+                .filter(event -> "thread_name".equals(event.get("name")))
+                .map(event -> (String) ((Map<?, ?>) event.get("args")).get("name"))
+                .collect(Collectors.toList());
+        assertTrue(threadNames.contains(Thread.currentThread().getName()));
+        assertTrue(threadNames.contains("Worker é"));
+    }
+
+    @Test
+    void convertJoinsFilesIntoOneArray() throws Exception {
+        TraceRecorder recorder = new TraceRecorder(directory, 1, 10);
+        for (int i = 0; i < 3; i++) {
+            recorder.begin("git", "op" + i).close();
+        }
+        recorder.flush();
+
+        List<Path> files = traceFiles();
+        int lines = 0;
+        for (Path file : files) {
+            lines += Files.readAllLines(file, StandardCharsets.UTF_8).size();
+        }
+        Path output = directory.resolve("trace.json");
+        TraceRecorder.convert(files, output);
+
+        List<?> events = (List<?>) JsonReader.parse(Files.readString(output, StandardCharsets.UTF_8));
+        assertEquals(lines, events.size());
+        assertEquals("op2", ((Map<?, ?>) events.get(events.size() - 1)).get("name"));
+    }
+
+    @Test
+    void rotationKeepsNewestFilesUnderUniqueNames() throws Exception {
+        TraceRecorder recorder = new TraceRecorder(directory, 1, 2);
+        for (int i = 0; i < 5; i++) {
+            recorder.begin("git", "op" + i).close();
+            recorder.flush();
+        }
+
+        List<Path> files = traceFiles();
+        assertEquals(2, files.size());
+        assertTrue(files.get(0).getFileName().toString().endsWith("-4.jsonl"), files.toString());
+        assertTrue(files.get(1).getFileName().toString().endsWith("-5.jsonl"), files.toString());
+        List<String> last = Files.readAllLines(files.get(1), StandardCharsets.UTF_8);
+        assertEquals("process_name", ((Map<?, ?>) JsonReader.parse(last.get(0))).get("name"));
+        assertEquals("op4", ((Map<?, ?>) JsonReader.parse(last.get(last.size() - 1))).get("name"));
+    }
+
+    @Test
+    void rotationCountsEncodedBytes() throws Exception {
+        long maxFileBytes = 1000;
+        TraceRecorder recorder = new TraceRecorder(directory, maxFileBytes, 100);
+        String wide = "é".repeat(200);
+        for (int i = 0; i < 20; i++) {
+            recorder.begin("git", "op").arg("text", wide).close();
+        }
+        recorder.flush();
+
+        List<Path> files = traceFiles();
+        assertTrue(files.size() > 1);
+        for (Path file : files) {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            long lastLineBytes = lines.get(lines.size() - 1).getBytes(StandardCharsets.UTF_8).length + 1;
+            assertTrue(Files.size(file) - lastLineBytes < maxFileBytes, file + " grew past the limit");
+        }
+    }
+
+    private List<Path> traceFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".jsonl"))
+                    .sorted(Comparator.comparingInt(TraceRecorderTest::sequence))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int sequence(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1, name.length() - ".jsonl".length()));
+    }
+
+    private static Map<?, ?> span(List<Map<?, ?>> events, String name) {
+        Map<?, ?> span = events.stream()
+                .filter(event -> "X".equals(event.get("ph")) && name.equals(event.get("name")))
+                .findFirst().orElse(null);
+        assertNotNull(span, name);
+        return span;
+    }
+
+    private static Map<?, ?> phase(List<Map<?, ?>> events, String phase) {
+        Map<?, ?> event = events.stream().filter(e -> phase.equals(e.get("ph"))).findFirst().orElse(null);
+        assertNotNull(event, phase);
+        return event;
+    }
+}
@@ -0,0 +1,103 @@
+package com.ppm.gitppm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WatchServiceHubTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @TempDir
+    Path directory;
+
+    private WatchServiceHub hub;
+    private final BlockingQueue<Path> first = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Path> second = new LinkedBlockingQueue<>();
+    private final WatchServiceHub.WatchHandler firstHandler = (key, events) -> record(first, events);
+    private final WatchServiceHub.WatchHandler secondHandler = (key, events) -> record(second, events);
+
+    @BeforeEach
+    void setUp() {
+        hub = new WatchServiceHub();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.close();
+    }
+
+    @Test
+    void directoryWatchedTwiceNotifiesBothHandlers() throws Exception {
+        WatchKey firstKey = hub.register(directory, firstHandler);
+        WatchKey secondKey = hub.register(directory, secondHandler);
+
+        Files.writeString(directory.resolve("a.txt"), "a");
+
+        assertSame(firstKey, secondKey);
+        assertEquals(1, hub.getWatchedDirectoryCount());
+        assertEquals(Path.of("a.txt"), first.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Path.of("a.txt"), second.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void unregisteringOneHandlerKeepsTheOther() throws Exception {
+        WatchKey key = hub.register(directory, firstHandler);
+        hub.register(directory, secondHandler);
+
+        hub.unregister(key, firstHandler);
+        Files.writeString(directory.resolve("b.txt"), "b");
+
+        assertTrue(key.isValid());
+        assertEquals(1, hub.getWatchedDirectoryCount());
+        assertEquals(Path.of("b.txt"), second.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(first.isEmpty());
+    }
+
+    @Test
+    void unregisteringLastHandlerCancelsKey() throws Exception {
+        WatchKey key = hub.register(directory, firstHandler);
+        hub.register(directory, secondHandler);
+
+        hub.unregister(key, firstHandler);
+        hub.unregister(key, secondHandler);
+
+        assertFalse(key.isValid());
+        assertEquals(0, hub.getWatchedDirectoryCount());
+    }
+
+    @Test
+    void registeringAgainAfterCancelWatchesAgain() throws Exception {
+        WatchKey key = hub.register(directory, firstHandler);
+        hub.unregister(key, firstHandler);
+
+        WatchKey newKey = hub.register(directory, secondHandler);
+        Files.writeString(directory.resolve("c.txt"), "c");
+
+        assertNotNull(newKey);
+        assertTrue(newKey.isValid());
+        assertEquals(Path.of("c.txt"), second.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static void record(BlockingQueue<Path> queue, Iterable<WatchEvent<?>> events) {
+        for (WatchEvent<?> event : events) {
+            if (event.context() instanceof Path) {
+                queue.add((Path) event.context());
+            }
+        }
+    }
+}
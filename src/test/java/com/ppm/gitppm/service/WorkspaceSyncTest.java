@@ -0,0 +1,197 @@
+package com.ppm.gitppm.service;
+
+import com.ppm.gitppm.model.SyncReport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.URIish;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkspaceSyncTest {
+    private static final PersonIdent AUTHOR = new PersonIdent("Test", "test@example.com");
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @TempDir
+    Path temp;
+
+    private Workspace workspace;
+
+    @BeforeEach
+    void setUp() {
+        workspace = new Workspace(null, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workspace.close();
+    }
+
+    @Test
+    void fetchAllReportsEveryRepository() throws Exception {
+        Path origin = createOrigin("origin.git");
+        List<Path> clones = List.of(cloneOf(origin, "one"), cloneOf(origin, "two"), cloneOf(origin, "three"));
+        ObjectId pushed = pushNewCommit(origin);
+        Path broken = cloneOf(origin, "broken");
+        setRemoteUrl(broken, temp.resolve("missing.git").toUri().toString());
+        Path notARepository = Files.createDirectory(temp.resolve("plain"));
+        for (Path path : List.of(clones.get(0), clones.get(1), clones.get(2), broken, notARepository)) {
+            workspace.addRepository(path);
+        }
+        List<SyncReport.Entry> reported = new CopyOnWriteArrayList<>();
+
+        SyncReport report = new WorkspaceSync(workspace, 2, 2)
+                .syncAll(WorkspaceSync.Mode.FETCH, reported::add)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        Map<String, SyncReport.Entry> entries = report.getEntries().stream()
+                .collect(Collectors.toMap(SyncReport.Entry::getRepositoryName, entry -> entry));
+        assertEquals(Set.of("one", "two", "three", "broken", "plain"), entries.keySet());
+        assertEquals(5, reported.size());
+        for (String name : List.of("one", "two", "three")) {
+            assertTrue(entries.get(name).isSuccessful(), entries.get(name).toString());
+            assertEquals("local", entries.get(name).getHost());
+        }
+        assertFalse(entries.get("broken").isSuccessful());
+        assertFalse(entries.get("plain").isSuccessful());
+        for (Path clone : clones) {
+            try (Git git = Git.open(clone.toFile())) {
+                assertEquals(pushed, git.getRepository().resolve("refs/remotes/origin/main"));
+            }
+        }
+    }
+
+    @Test
+    void transfersStayWithinGlobalAndPerHostLimits() throws Exception {
+        Path origin = createOrigin("origin.git");
+        List<String> hosts = List.of("a", "a", "a", "a", "a", "b", "b", "b", "c", "c");
+        for (int i = 0; i < hosts.size(); i++) {
+            Path clone = cloneOf(origin, "repo-" + i);
+            setRemoteUrl(clone, "https://" + hosts.get(i) + ".example.com/repo-" + i + ".git");
+            workspace.addRepository(clone);
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Map<String, AtomicInteger> runningPerHost = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> maxPerHost = new ConcurrentHashMap<>();
+        WorkspaceSync.Transfer transfer = (gitService, mode) -> {
+            String host = gitService.getRemoteUris().get(0).getHost();
+            AtomicInteger hostRunning = runningPerHost.computeIfAbsent(host, key -> new AtomicInteger());
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            maxPerHost.computeIfAbsent(host, key -> new AtomicInteger())
+                    .accumulateAndGet(hostRunning.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            } finally {
+                hostRunning.decrementAndGet();
+                running.decrementAndGet();
+            }
+        };
+
+        SyncReport report = new WorkspaceSync(workspace, 3, 2, transfer)
+                .syncAll(WorkspaceSync.Mode.FETCH, entry -> { })
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(hosts.size(), report.getEntries().size());
+        assertTrue(report.getEntries().stream().allMatch(SyncReport.Entry::isSuccessful));
+        assertEquals(3, maxRunning.get());
+        assertEquals(2, maxPerHost.get("a.example.com").get());
+        maxPerHost.values().forEach(max -> assertTrue(max.get() <= 2));
+    }
+
+    @Test
+    void cancellingStopsRunningAndQueuedTransfers() throws Exception {
+        Path origin = createOrigin("origin.git");
+        for (int i = 0; i < 4; i++) {
+            workspace.addRepository(cloneOf(origin, "repo-" + i));
+        }
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(2);
+        AtomicInteger starts = new AtomicInteger();
+        WorkspaceSync.Transfer transfer = (gitService, mode) -> {
+            starts.incrementAndGet();
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        };
+
+        CompletableFuture<SyncReport> sync = new WorkspaceSync(workspace, 2, 2, transfer)
+                .syncAll(WorkspaceSync.Mode.FETCH, entry -> { });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        sync.cancel(true);
+
+        assertTrue(sync.isDone());
+        assertThrows(CancellationException.class, sync::join);
+        assertTrue(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(2, starts.get());
+    }
+
+    private Path createOrigin(String name) throws Exception {
+        Path origin = temp.resolve(name);
+        Git.init().setBare(true).setDirectory(origin.toFile()).setInitialBranch("main").call().close();
+        try (Git seed = Git.init().setDirectory(temp.resolve(name + "-seed").toFile())
+                .setInitialBranch("main").call()) {
+            commit(seed, "README.md");
+            seed.push().setRemote(origin.toUri().toString()).add("main").call();
+        }
+        return origin;
+    }
+
+    private ObjectId pushNewCommit(Path origin) throws Exception {
+        try (Git seed = Git.open(temp.resolve(origin.getFileName() + "-seed").toFile())) {
+            ObjectId commit = commit(seed, "CHANGES.md");
+            seed.push().setRemote(origin.toUri().toString()).add("main").call();
+            return commit;
+        }
+    }
+
+    private Path cloneOf(Path origin, String name) throws Exception {
+        Path clone = temp.resolve(name);
+        Git.cloneRepository().setURI(origin.toUri().toString()).setDirectory(clone.toFile()).call().close();
+        return clone;
+    }
+
+    private static void setRemoteUrl(Path clone, String url) throws Exception {
+        try (Git git = Git.open(clone.toFile())) {
+            StoredConfig config = git.getRepository().getConfig();
+            config.setString("remote", "origin", "url", new URIish(url).toString());
+            config.save();
+        }
+    }
+
+    private static ObjectId commit(Git git, String fileName) throws Exception {
+        Files.writeString(git.getRepository().getWorkTree().toPath().resolve(fileName), fileName + "\n");
+        git.add().addFilepattern(fileName).call();
+        ObjectId commit = git.commit().setMessage("Add " + fileName).setAuthor(AUTHOR).setCommitter(AUTHOR).call();
+        assertNotNull(commit);
+        return commit;
+    }
+}